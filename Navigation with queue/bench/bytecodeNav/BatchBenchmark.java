@@ -0,0 +1,144 @@
+package bytecodeNav;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import navigation.Map;
+import navigation.MovingAI;
+import navigation.OpenList;
+import navigation.ScenarioBenchmark;
+import navigation.SearchContext;
+
+/**
+ * Throughput of PathPlanner.getPaths against one PathPlanner searching the
+ * same pairs in sequence.
+ *
+ * Usage: ant bench -Dbench.class=bytecodeNav.BatchBenchmark
+ *                  -Dbench.args="path/to/file.scen path/to/dir ..."
+ *
+ * The scenarios of each map are repeated until there are at least PAIRS of
+ * them. Each batch is run REPEATS times after one warmup, on pools of 1, 2,
+ * 4, ... worker threads up to the number of processors, and at least 4 so
+ * that planners run concurrently even on one processor. Every path found in
+ * parallel is checked to be the same as the sequential one.
+ *
+ * @author David
+ */
+public class BatchBenchmark {
+
+    static final int PAIRS = 4096;
+    static final int REPEATS = 5;
+
+    public static void main(String[] args) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            ScenarioBenchmark.collect(new File(arg), files);
+        }
+        if (files.isEmpty()) {
+            System.out.println("usage: BatchBenchmark <file.scen | directory> ...");
+            return;
+        }
+
+        System.out.printf("%-24s %-20s %8s %8s %12s %8s %9s%n",
+                "map", "mode", "threads", "pairs", "paths/s", "speedup", "mismatch");
+        for (File file : files) {
+            List<MovingAI.Scenario> scenarios = MovingAI.loadScenarios(file);
+            String loaded = null;
+            List<MovingAI.Scenario> group = new ArrayList<>();
+            for (MovingAI.Scenario s : scenarios) {
+                if (loaded != null && !s.map.equals(loaded)) {
+                    run(file, loaded, group);
+                    group.clear();
+                }
+                loaded = s.map;
+                group.add(s);
+            }
+            if (loaded != null) {
+                run(file, loaded, group);
+            }
+        }
+    }
+
+    /**
+     * Benchmark the scenarios of one map.
+     */
+    static void run(File scen, String name, List<MovingAI.Scenario> scenarios) throws IOException {
+        Map map = MovingAI.loadMap(ScenarioBenchmark.resolve(scen, name));
+        int offsetX = 128 - map.origin[0];
+        int offsetY = 128 - map.origin[1];
+
+        int pairs = Math.max(PAIRS, scenarios.size());
+        int[][] starts = new int[pairs][];
+        int[][] goals = new int[pairs][];
+        for (int i = 0; i < pairs; i++) {
+            MovingAI.Scenario s = scenarios.get(i % scenarios.size());
+            starts[i] = new int[] { s.startX + offsetX, s.startY + offsetY };
+            goals[i] = new int[] { s.goalX + offsetX, s.goalY + offsetY };
+        }
+
+        // Sequential baseline with a single planner.
+        PathPlanner planner = new PathPlanner(map, OpenList.DEFAULT, new SearchContext());
+        JumpPoint[] found = new JumpPoint[pairs];
+        long sequential = Long.MAX_VALUE;
+        for (int r = 0; r <= REPEATS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < pairs; i++) {
+                found[i] = planner.getPath(starts[i], goals[i]);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (r > 0) {
+                sequential = Math.min(sequential, elapsed);
+            }
+        }
+        // Unpacked after timing, so that only the searches are measured.
+        int[][] expected = new int[pairs][];
+        for (int i = 0; i < pairs; i++) {
+            expected[i] = points(found[i]);
+        }
+        report(new File(name).getName(), "sequential", 1, pairs, sequential, sequential, 0);
+
+        int processors = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long best = Long.MAX_VALUE;
+            int mismatches = 0;
+            for (int r = 0; r <= REPEATS; r++) {
+                long start = System.nanoTime();
+                JumpPoint[] paths = PathPlanner.getPaths(pool, map, OpenList.DEFAULT, starts, goals);
+                long elapsed = System.nanoTime() - start;
+                if (r > 0) {
+                    best = Math.min(best, elapsed);
+                }
+                mismatches = 0;
+                for (int i = 0; i < pairs; i++) {
+                    if (!Arrays.equals(expected[i], points(paths[i]))) {
+                        mismatches++;
+                    }
+                }
+            }
+            pool.shutdown();
+            report(new File(name).getName(), "getPaths", threads, pairs, best, sequential, mismatches);
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+
+    static void report(String map, String mode, int threads, int pairs, long nanos,
+            long sequential, int mismatches) {
+        System.out.printf("%-24s %-20s %8d %8d %12.0f %8.2f %9d%n", map, mode, threads, pairs,
+                pairs / (nanos / 1e9), (double) sequential / nanos, mismatches);
+    }
+
+    /**
+     * @return the packed points of a path, or null if there is no path.
+     */
+    static int[] points(JumpPoint path) {
+        int[] out = new int[1 << 12];
+        int n = HeapPlanner.write(path, out);
+        return n == -1 ? null : Arrays.copyOf(out, n);
+    }
+}
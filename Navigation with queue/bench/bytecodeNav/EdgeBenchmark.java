@@ -0,0 +1,159 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import java.util.Random;
+import navigation.Map;
+import navigation.OpenList;
+import navigation.SearchContext;
+
+/**
+ * Searches of PathPlanner that keep running into the edges of the map.
+ *
+ * Each map is 256x256 with random obstacles and no border walls, so the
+ * edge of the bit arrays is the only wall around it. Every start and goal
+ * lies within a few cells of an edge:
+ *
+ * - along:  start and goal near the same edge.
+ * - across: start and goal near opposite edges.
+ * - corner: start and goal in two different corners.
+ *
+ * The diagonal loops of PathPlanner stop at the edge, and the scans for
+ * the wall beside a run stop where the wall meets the edge; these are the
+ * cases this benchmark makes common. For each pattern and obstacle density
+ * the report gives the searches that found a path, the searches that threw
+ * (an exception escaping getPath), the latency in microseconds and the
+ * mean number of JumpPoints expanded.
+ *
+ * @author David
+ */
+public class EdgeBenchmark {
+
+    static final int SEARCHES = 2000;   // Searches per pattern and density.
+    static final int MARGIN = 4;        // Greatest distance of an end from its edge.
+
+    enum Pattern {
+        ALONG, ACROSS, CORNER
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-7s %7s %7s %7s %9s %9s %9s %9s%n",
+                "pattern", "density", "solved", "threw", "p50 us", "p90 us", "mean us", "expanded");
+        for (Pattern pattern : Pattern.values()) {
+            for (int density = 0; density <= 30; density += 10) {
+                Map map = new Map(128, 128);
+                Random random = new Random(2000 + density);
+                for (int y = 0; y < 256; y++) {
+                    for (int x = 0; x < 256; x++) {
+                        if (random.nextInt(100) < density) {
+                            map.mapX[y][x/64] |= 1L << (63-(x % 64));
+                        }
+                    }
+                }
+                map.syncColumns();
+                int[][] ends = ends(map, pattern, random);
+                PathPlanner planner = new PathPlanner(map, OpenList.ORDERED, new SearchContext());
+                run(planner, ends, null);   // Warm up.
+                long[] times = new long[SEARCHES];
+                int[] counts = run(planner, ends, times);
+                Arrays.sort(times);
+                long total = 0;
+                for (long t : times) {
+                    total += t;
+                }
+                System.out.printf("%-7s %6d%% %7d %7d %9.1f %9.1f %9.1f %9.1f%n",
+                        pattern.name().toLowerCase(), density, counts[0], counts[1],
+                        times[SEARCHES / 2] / 1e3, times[SEARCHES * 9 / 10] / 1e3,
+                        total / 1e3 / SEARCHES, counts[2] / (double) SEARCHES);
+            }
+        }
+    }
+
+    /**
+     * Run every search once.
+     * @param times nanoseconds of each search, or null to discard them.
+     * @return paths found, exceptions thrown, and JumpPoints expanded.
+     */
+    static int[] run(PathPlanner planner, int[][] ends, long[] times) {
+        int[] counts = new int[3];
+        for (int i = 0; i < SEARCHES; i++) {
+            long start = System.nanoTime();
+            try {
+                if (planner.getPath(ends[2 * i], ends[2 * i + 1]) != null) {
+                    counts[0]++;
+                }
+            } catch (RuntimeException e) {
+                counts[1]++;
+            }
+            if (times != null) {
+                times[i] = System.nanoTime() - start;
+            }
+            counts[2] += planner.getExpanded();
+        }
+        return counts;
+    }
+
+    /**
+     * Walkable starts and goals near the edges, start then goal.
+     */
+    static int[][] ends(Map map, Pattern pattern, Random random) {
+        int[][] ends = new int[2 * SEARCHES][];
+        for (int i = 0; i < SEARCHES; ) {
+            int edge = random.nextInt(4);
+            int[] a = near(edge, random);
+            int[] b;
+            switch (pattern) {
+                case ALONG:
+                    b = near(edge, random);
+                    break;
+                case ACROSS:
+                    b = near(edge ^ 2, random);
+                    break;
+                default:
+                    a = corner(edge, random);
+                    b = corner((edge + 1 + random.nextInt(3)) & 3, random);
+                    break;
+            }
+            if (!blocked(map, a) && !blocked(map, b)) {
+                ends[2 * i] = a;
+                ends[2 * i + 1] = b;
+                i++;
+            }
+        }
+        return ends;
+    }
+
+    /**
+     * A cell within MARGIN of edge 0 (top), 1 (right), 2 (bottom) or 3 (left).
+     */
+    static int[] near(int edge, Random random) {
+        int along = random.nextInt(256);
+        int in = random.nextInt(MARGIN);
+        switch (edge) {
+            case 0:
+                return new int[] { along, in };
+            case 1:
+                return new int[] { 255 - in, along };
+            case 2:
+                return new int[] { along, 255 - in };
+            default:
+                return new int[] { in, along };
+        }
+    }
+
+    /**
+     * A cell within MARGIN of both edges of corner 0 (top left) to 3,
+     * clockwise.
+     */
+    static int[] corner(int corner, Random random) {
+        int x = random.nextInt(MARGIN);
+        int y = random.nextInt(MARGIN);
+        return new int[] {
+            corner == 1 || corner == 2 ? 255 - x : x,
+            corner >= 2 ? 255 - y : y
+        };
+    }
+
+    static boolean blocked(Map map, int[] p) {
+        return ((map.mapX[p[1]][p[0] >>> 6] >>> (63 - (p[0] & 63))) & 1L) != 0;
+    }
+}
@@ -0,0 +1,69 @@
+package bytecodeNav;
+
+import navigation.Map;
+import navigation.OpenList;
+import navigation.SearchContext;
+import navigation.ScenarioPlanner;
+
+/**
+ * ScenarioPlanner for the heap-based jump point search of bytecodeNav.
+ *
+ * @author David
+ */
+public class HeapPlanner implements ScenarioPlanner {
+
+    private final PathPlanner planner;
+
+    public HeapPlanner() {
+        this(OpenList.ORDERED);
+    }
+
+    public HeapPlanner(OpenList open) {
+        planner = new PathPlanner(new Map(128, 128), open, new SearchContext());
+    }
+
+    @Override
+    public String name() {
+        return planner.open == OpenList.ORDERED
+                ? "heap/tables" : "heap/tables/" + planner.open.name().toLowerCase();
+    }
+
+    @Override
+    public void load(long[][] mapX, long[][] mapY) {
+        planner.map.mapX = mapX;
+        planner.map.mapY = mapY;
+    }
+
+    @Override
+    public int plan(int startX, int startY, int goalX, int goalY, int[] out) {
+        JumpPoint path = planner.getPath(new int[] { startX, startY }, new int[] { goalX, goalY });
+        return write(path, out);
+    }
+
+    /**
+     * Write a path as packed points.
+     * @param path JumpPoint at the start of the path, or null.
+     * @param out buffer for the points.
+     * @return number of points written, or -1 if path is null.
+     */
+    static int write(JumpPoint path, int[] out) {
+        if (path == null) {
+            return -1;
+        }
+
+        int i = 0;
+        out[i++] = path.location[1] << 8 | path.location[0];
+        for (JumpPoint jp = path.mapNext; jp != null; jp = jp.mapNext) {
+            if (jp.waypoint.length == 2) {
+                out[i++] = jp.waypoint[1] << 8 | jp.waypoint[0];
+            }
+            out[i++] = jp.location[1] << 8 | jp.location[0];
+        }
+        return i;
+    }
+
+    @Override
+    public int expanded() {
+        return planner.getExpanded();
+    }
+}
@@ -0,0 +1,69 @@
+package bytecodeNav;
+
+import java.util.Random;
+import navigation.OpenList;
+import navigation.SearchContext;
+
+/**
+ * Synthetic search that exercises a Heap or BucketHeap on its own, for
+ * navigation.OpenListBenchmark.
+ *
+ * Each run removes up to a fixed number of jump points from the heap. Every
+ * removal inserts three jump points at random offsets of up to 16 cells
+ * from the removed one, in random directions, at a distance equal to the
+ * Chebyshev length of the offset.
+ *
+ * @author David
+ */
+public class HeapWorkload {
+
+    private final Heap heap;
+    private final Random random = new Random();
+    private final int removals;
+
+    /**
+     * @param open ORDERED for Heap, BUCKET for BucketHeap, INDEXED for
+     * IndexedHeap.
+     * @param removals jump points removed per run.
+     */
+    public HeapWorkload(OpenList open, int removals) {
+        int[] start = new int[] { 128, 128 };
+        SearchContext context = new SearchContext();
+        switch (open) {
+            case BUCKET:
+                heap = new BucketHeap(start, start, context);
+                break;
+            case INDEXED:
+                heap = new IndexedHeap(start, start, context);
+                break;
+            default:
+                heap = new Heap(start, start, context);
+                break;
+        }
+        this.removals = removals;
+    }
+
+    /**
+     * Run one search.
+     * @param seed selects the goal and the inserted jump points.
+     * @return sum of the scores removed, to keep the work observable.
+     */
+    public int run(int seed) {
+        random.setSeed(seed);
+        heap.reset(new int[] { 128, 128 }, new int[] { random.nextInt(256), random.nextInt(256) });
+        int sum = 0;
+        for (int n = 0; n < removals && heap.size != 0; n++) {
+            JumpPoint jp = heap.remove();
+            sum += jp.score;
+            for (int k = 0; k < 3; k++) {
+                int dx = random.nextInt(33) - 16;
+                int dy = random.nextInt(33) - 16;
+                int x = Math.max(0, Math.min(255, jp.location[0] + dx));
+                int y = Math.max(0, Math.min(255, jp.location[1] + dy));
+                heap.insert(new int[] { x, y }, 1 + 2 * random.nextInt(4), new int[0], jp,
+                        Math.max(Math.abs(dx), Math.abs(dy)));
+            }
+        }
+        return sum;
+    }
+}
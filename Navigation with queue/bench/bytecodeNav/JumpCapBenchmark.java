@@ -0,0 +1,139 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import java.util.Random;
+import navigation.Map;
+import navigation.OpenList;
+import navigation.SearchContext;
+
+/**
+ * Heap traffic of PathPlanner against its jump cap.
+ *
+ * A diagonal that is still walkable after jumpCap steps is queued again as
+ * a continuation JumpPoint. A small cap keeps the search closer to best
+ * first; a large one saves the push and pop of each continuation. This runs
+ * the same searches under several caps, fixed and adaptive, on open and on
+ * cluttered 256x256 maps (obstacle density in percent), and reports per
+ * search:
+ *
+ * - pops:     JumpPoints removed from the heap (expansions).
+ * - pushes:   JumpPoints added to the heap.
+ * - cont:     continuations among the pushes.
+ * - us:       mean latency in microseconds.
+ * - length:   mean octile length of the returned paths, in cells, over
+ *             the searches that every cap solved.
+ *
+ * @author David
+ */
+public class JumpCapBenchmark {
+
+    static final int SEARCHES = 500;    // Searches per map and cap.
+    static final int[] CAPS = { 5, 10, 20, 40, Integer.MAX_VALUE };
+
+    public static void main(String[] args) {
+        System.out.printf("%7s %-12s %8s %8s %8s %8s %9s%n",
+                "density", "cap", "pops", "pushes", "cont", "us", "length");
+        for (int density : new int[] { 0, 5, 20, 35 }) {
+            Map map = new Map(128, 128);
+            Random random = new Random(2300 + density);
+            for (int y = 0; y < 256; y++) {
+                for (int x = 0; x < 256; x++) {
+                    boolean border = x < 16 || x >= 240 || y < 16 || y >= 240;
+                    if (border || random.nextInt(100) < density) {
+                        map.mapX[y][x/64] |= 1L << (63-(x % 64));
+                    }
+                }
+            }
+            map.syncColumns();
+            int[][] ends = new int[2 * SEARCHES][];
+            for (int i = 0; i < SEARCHES; ) {
+                int[] a = { 16 + random.nextInt(224), 16 + random.nextInt(224) };
+                int[] b = { 16 + random.nextInt(224), 16 + random.nextInt(224) };
+                if (!EdgeBenchmark.blocked(map, a) && !EdgeBenchmark.blocked(map, b)) {
+                    ends[2 * i] = a;
+                    ends[2 * i + 1] = b;
+                    i++;
+                }
+            }
+
+            // Every cap once, then every adaptive cap.
+            int configs = 2 * CAPS.length;
+            double[][] rows = new double[configs][];
+            double[][] lengths = new double[configs][];
+            boolean[] solvedByAll = new boolean[SEARCHES];
+            Arrays.fill(solvedByAll, true);
+            for (int c = 0; c < configs; c++) {
+                PathPlanner planner = new PathPlanner(map, OpenList.ORDERED, new SearchContext());
+                planner.setJumpCap(CAPS[c % CAPS.length], c >= CAPS.length);
+                run(planner, ends, null, solvedByAll);   // Warm up.
+                lengths[c] = new double[SEARCHES];
+                rows[c] = run(planner, ends, lengths[c], solvedByAll);
+            }
+            for (int c = 0; c < configs; c++) {
+                double total = 0;
+                int n = 0;
+                for (int i = 0; i < SEARCHES; i++) {
+                    if (solvedByAll[i]) {
+                        total += lengths[c][i];
+                        n++;
+                    }
+                }
+                int cap = CAPS[c % CAPS.length];
+                String name = (cap == Integer.MAX_VALUE ? "none" : Integer.toString(cap))
+                        + (c >= CAPS.length ? " adaptive" : "");
+                System.out.printf("%6d%% %-12s %8.1f %8.1f %8.1f %8.1f %9.2f%n", density, name,
+                        rows[c][0], rows[c][1], rows[c][2], rows[c][3], total / n);
+            }
+        }
+    }
+
+    /**
+     * Run every search once.
+     * @param lengths octile length of each path, or null to discard them.
+     * @param solvedByAll cleared for each search that finds no path.
+     * @return mean pops, pushes, continuations and microseconds per search.
+     */
+    static double[] run(PathPlanner planner, int[][] ends, double[] lengths, boolean[] solvedByAll) {
+        double[] sums = new double[4];
+        for (int i = 0; i < SEARCHES; i++) {
+            long start = System.nanoTime();
+            JumpPoint path = planner.getPath(ends[2 * i], ends[2 * i + 1]);
+            sums[3] += (System.nanoTime() - start) / 1e3;
+            sums[0] += planner.getExpanded();
+            sums[1] += planner.getExpanded() + planner.heap.size - 1;
+            sums[2] += planner.getContinued();
+            if (path == null) {
+                solvedByAll[i] = false;
+            } else if (lengths != null) {
+                lengths[i] = length(path);
+            }
+        }
+        for (int k = 0; k < sums.length; k++) {
+            sums[k] /= SEARCHES;
+        }
+        return sums;
+    }
+
+    /**
+     * Octile length of a path through its waypoints and jump points.
+     */
+    static double length(JumpPoint path) {
+        double total = 0;
+        int[] last = path.location;
+        for (JumpPoint jp = path.mapNext; jp != null; jp = jp.mapNext) {
+            if (jp.waypoint.length == 2) {
+                total += octile(last, jp.waypoint);
+                last = jp.waypoint;
+            }
+            total += octile(last, jp.location);
+            last = jp.location;
+        }
+        return total;
+    }
+
+    static double octile(int[] a, int[] b) {
+        int dx = Math.abs(a[0] - b[0]);
+        int dy = Math.abs(a[1] - b[1]);
+        return Math.max(dx, dy) + (Math.sqrt(2) - 1) * Math.min(dx, dy);
+    }
+}
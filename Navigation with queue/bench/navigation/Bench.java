@@ -0,0 +1,128 @@
+package navigation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Small timing harness shared by the benchmarks in this directory.
+ *
+ * - Every benchmark body returns an int which is folded into a volatile sink
+ *   so the JIT cannot discard the work being measured.
+ * - "Cold" numbers time the first pass through a body before any warmup.
+ * - "Warm" numbers are the mean of several measured iterations taken after a
+ *   fixed number of warmup iterations.
+ * - Every body is called from the one call site in cold(). Once it has seen
+ *   several Body classes the JIT stops inlining there, which slows whichever
+ *   body is measured after that. Benchmarks comparing implementations run
+ *   each one in its own JVM with fork().
+ *
+ * @author David
+ */
+final class Bench {
+
+    static volatile int sink;   // Consumes benchmark results.
+
+    static final int WARMUP_ITERATIONS = 5;
+    static final int MEASURED_ITERATIONS = 5;
+
+    /**
+     * A unit of work. The argument is the index of the call within a pass.
+     */
+    interface Body {
+        int run(int i);
+    }
+
+    private Bench() {
+    }
+
+    /**
+     * Time a single pass of calls to body without warming it up first.
+     * @param body work to measure.
+     * @param calls number of calls in the pass.
+     * @return nanoseconds per call.
+     */
+    static double cold(Body body, int calls) {
+        int acc = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            acc += body.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += acc;
+        return (double) elapsed / calls;
+    }
+
+    /**
+     * Warm body up, then time it.
+     * @param body work to measure.
+     * @param calls number of calls in each iteration.
+     * @return mean nanoseconds per call over the measured iterations.
+     */
+    static double warm(Body body, int calls) {
+        for (int w = 0; w < WARMUP_ITERATIONS; w++) {
+            cold(body, calls);
+        }
+        double total = 0;
+        for (int m = 0; m < MEASURED_ITERATIONS; m++) {
+            total += cold(body, calls);
+        }
+        return total / MEASURED_ITERATIONS;
+    }
+
+    /**
+     * Run a benchmark's main method in a new JVM with the same class path
+     * and JVM flags as this one.
+     * @param main class whose main method to run.
+     * @param args program arguments.
+     * @return the lines the new JVM printed.
+     * @throws IOException if it cannot be started, or exits with an error.
+     */
+    static List<String> fork(Class<?> main, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main.getName());
+        command.addAll(Arrays.asList(args));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            for (String line; (line = in.readLine()) != null; ) {
+                lines.add(line);
+            }
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException(main.getName() + " " + String.join(" ", args)
+                        + " failed: " + String.join("\n", lines));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return lines;
+    }
+
+    /**
+     * Value at the given percentile of an array of samples.
+     * @param samples unsorted samples; sorted in place.
+     * @param p percentile from 0 to 100.
+     * @return the sample at that rank.
+     */
+    static long percentile(long[] samples, double p) {
+        if (samples.length == 0) {
+            return 0;
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(p / 100.0 * samples.length) - 1;
+        return samples[Math.max(0, Math.min(samples.length - 1, rank))];
+    }
+}
@@ -0,0 +1,59 @@
+package navigation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * ScenarioPlanner for the allocation-free JumpSearch, OctileJumpSearch,
+ * BidirectionalJumpSearch and JumpPlusSearch. The jump table of a JumpPlusSearch is rebuilt on load, or
+ * taken from PrecomputeCache.DEFAULT when "navigation.cache" is set.
+ *
+ * @author David
+ */
+public class JumpSearchPlanner implements ScenarioPlanner {
+
+    private final JumpSearch search;
+
+    public JumpSearchPlanner(ScanEngine scan) {
+        this(new JumpSearch(new Map(128, 128), scan));
+    }
+
+    public JumpSearchPlanner(JumpSearch search) {
+        this.search = search;
+    }
+
+    @Override
+    public String name() {
+        if (search instanceof JumpPlusSearch) {
+            return "jps+/table";
+        }
+        String prefix = search instanceof BidirectionalJumpSearch ? "jps8-bi/"
+                : search instanceof OctileJumpSearch ? "jps8/" : "soa/";
+        return prefix + search.scan.name().toLowerCase();
+    }
+
+    @Override
+    public void load(long[][] mapX, long[][] mapY) {
+        search.map.mapX = mapX;
+        search.map.mapY = mapY;
+        if (search instanceof JumpPlusSearch) {
+            PrecomputeCache cache = PrecomputeCache.DEFAULT;
+            try {
+                ((JumpPlusSearch) search).setTable(cache != null ? cache.jumpTable(mapX) : new JumpTable(mapX));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public int plan(int startX, int startY, int goalX, int goalY, int[] out) {
+        int end = search.search(startY << 8 | startX, goalY << 8 | goalX);
+        return end == -1 ? -1 : search.path(end, out);
+    }
+
+    @Override
+    public int expanded() {
+        return search.getExpanded();
+    }
+}
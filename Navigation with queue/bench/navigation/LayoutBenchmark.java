@@ -0,0 +1,198 @@
+package navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Jagged long[256][4] maps against the flat long[1024] of NavToolsFlat.
+ *
+ * Three layouts hold the same bits:
+ *
+ * - jagged:    new long[256][4], rows allocated back to back as Map does.
+ * - scattered: the same rows allocated between other live arrays, as rows
+ *              copied or replaced in a long-running program end up.
+ * - flat:      NavToolsFlat.flatten of the jagged map.
+ *
+ * Two kernels are timed on each:
+ *
+ * - scan:     the four primitives at random positions (ns/call).
+ * - diagonal: the scans of the north-east diagonal loop of
+ *             Navigation.getPath, walked from random free cells until the
+ *             walk leaves free space (ns/walk). Each step scans a row of
+ *             mapX, a column of mapY, and on a change of run length a void
+ *             run of the row behind.
+ *
+ * @author David
+ */
+public class LayoutBenchmark {
+
+    static final int QUERIES = 4096;        // Positions per map.
+    static final int CALLS = 1 << 18;       // Calls per measured scan iteration.
+    static final int WALKS = 1 << 14;       // Walks per measured diagonal iteration.
+
+    static final List<Object> keep = new ArrayList<>();    // Arrays between scattered rows.
+
+    public static void main(String[] args) {
+        String[] names = { "jagged", "scattered", "flat" };
+        System.out.printf("%-10s %-9s", "kernel", "layout");
+        for (int d = 0; d <= 60; d += 10) {
+            System.out.printf("%8s", d + "%");
+        }
+        System.out.println();
+
+        for (int kernel = 0; kernel < 2; kernel++) {
+            for (int l = 0; l < names.length; l++) {
+                System.out.printf("%-10s %-9s", kernel == 0 ? "scan" : "diagonal", names[l]);
+                for (int d = 0; d <= 60; d += 10) {
+                    long[][] mapX = TestMaps.random(new Random(1900 + d), d / 100.0);
+                    long[][] mapY = Map.transpose(mapX);
+                    Bench.Body body;
+                    if (l == 2) {
+                        long[] flatX = NavToolsFlat.flatten(mapX);
+                        long[] flatY = NavToolsFlat.flatten(mapY);
+                        body = kernel == 0
+                                ? scanFlat(flatX, queries(2000 + d))
+                                : diagonalFlat(flatX, flatY, starts(mapX, 2100 + d));
+                    } else {
+                        long[][] x = l == 1 ? scatter(mapX) : mapX;
+                        long[][] y = l == 1 ? scatter(mapY) : mapY;
+                        body = kernel == 0
+                                ? scanJagged(x, queries(2000 + d))
+                                : diagonalJagged(x, y, starts(mapX, 2100 + d));
+                    }
+                    double ns = Bench.warm(body, kernel == 0 ? CALLS : WALKS);
+                    System.out.printf("%8.2f", ns);
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    /**
+     * Copy a map, allocating each row between arrays of random size.
+     */
+    static long[][] scatter(long[][] map) {
+        Random random = new Random(map.length);
+        long[][] copy = new long[map.length][];
+        for (int y = 0; y < map.length; y++) {
+            keep.add(new long[8 + random.nextInt(256)]);
+            copy[y] = map[y].clone();
+        }
+        return copy;
+    }
+
+    static Bench.Body scanJagged(long[][] map, int[] queries) {
+        int mask = queries.length - 1;
+        return i -> {
+            int q = queries[i & mask];
+            int x = q & 0xFF;
+            int y = q >>> 8;
+            switch (i & 3) {
+                case 0:
+                    return NavToolsCompact.distanceRight(x, y, map);
+                case 1:
+                    return NavToolsCompact.distanceLeft(x, y, map);
+                case 2:
+                    return NavToolsCompact.distanceVoidRight(x, y, map);
+                default:
+                    return NavToolsCompact.distanceVoidLeft(x, y, map);
+            }
+        };
+    }
+
+    static Bench.Body scanFlat(long[] map, int[] queries) {
+        int mask = queries.length - 1;
+        return i -> {
+            int q = queries[i & mask];
+            int x = q & 0xFF;
+            int y = q >>> 8;
+            switch (i & 3) {
+                case 0:
+                    return NavToolsFlat.distanceRight(x, y, map);
+                case 1:
+                    return NavToolsFlat.distanceLeft(x, y, map);
+                case 2:
+                    return NavToolsFlat.distanceVoidRight(x, y, map);
+                default:
+                    return NavToolsFlat.distanceVoidLeft(x, y, map);
+            }
+        };
+    }
+
+    /**
+     * Walk north-east from each start cell, scanning as the diagonal loop
+     * does.
+     */
+    static Bench.Body diagonalJagged(long[][] mapX, long[][] mapY, int[] starts) {
+        int mask = starts.length - 1;
+        return i -> {
+            int s = starts[i & mask];
+            int x = s & 0xFF;
+            int y = s >>> 8;
+            int acc = 0;
+            int last = NavToolsCompact.distanceRight(x, y, mapX);
+            while (last != 0 && x < 255 && y > 0) {
+                int step = NavToolsCompact.distanceRight(++x, --y, mapX);
+                acc += NavToolsCompact.distanceLeft(y, x, mapY);
+                if (step - last >= 0 && x + last - 1 < 256) {
+                    acc += NavToolsCompact.distanceVoidRight(x + last - 1, y + 1, mapX);
+                } else if (step - last < -1) {
+                    acc += NavToolsCompact.distanceVoidRight(x + step, y, mapX);
+                }
+                last = step;
+            }
+            return acc + x;
+        };
+    }
+
+    /**
+     * The walks of diagonalJagged over flat maps.
+     */
+    static Bench.Body diagonalFlat(long[] mapX, long[] mapY, int[] starts) {
+        int mask = starts.length - 1;
+        return i -> {
+            int s = starts[i & mask];
+            int x = s & 0xFF;
+            int y = s >>> 8;
+            int acc = 0;
+            int last = NavToolsFlat.distanceRight(x, y, mapX);
+            while (last != 0 && x < 255 && y > 0) {
+                int step = NavToolsFlat.distanceRight(++x, --y, mapX);
+                acc += NavToolsFlat.distanceLeft(y, x, mapY);
+                if (step - last >= 0 && x + last - 1 < 256) {
+                    acc += NavToolsFlat.distanceVoidRight(x + last - 1, y + 1, mapX);
+                } else if (step - last < -1) {
+                    acc += NavToolsFlat.distanceVoidRight(x + step, y, mapX);
+                }
+                last = step;
+            }
+            return acc + x;
+        };
+    }
+
+    static int[] queries(long seed) {
+        Random random = new Random(seed);
+        int[] queries = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextInt(65536);
+        }
+        return queries;
+    }
+
+    /**
+     * Free cells to start walks from, packed as y << 8 | x.
+     */
+    static int[] starts(long[][] mapX, long seed) {
+        Random random = new Random(seed);
+        int[] starts = new int[QUERIES];
+        for (int i = 0; i < QUERIES; ) {
+            int x = random.nextInt(256);
+            int y = random.nextInt(256);
+            if (((mapX[y][x >>> 6] >>> (63 - (x & 63))) & 1L) == 0) {
+                starts[i++] = y << 8 | x;
+            }
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,128 @@
+package navigation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader for the grid benchmark files of the Moving AI Lab
+ * (https://movingai.com/benchmarks/grids.html).
+ *
+ * - A .map file holds a header (type, height, width, "map") followed by one
+ *   line of characters per row. '.', 'G' and 'S' are walkable; every other
+ *   character is an obstacle.
+ * - A .scen file holds a version line followed by one scenario per line:
+ *   bucket, map file, width, height, start x, start y, goal x, goal y and
+ *   the optimal octile path length.
+ *
+ * Maps are loaded into a Map whose origin is the middle of the real map, so
+ * real coords (x, y) become map coords (x - origin + 128, y - origin + 128).
+ * Every cell outside the real map is blocked, which leaves the searches a wall
+ * to stop against. Maps must therefore be at most 254 cells on a side.
+ *
+ * @author David
+ */
+public class MovingAI {
+
+    /**
+     * One line of a .scen file.
+     */
+    public static class Scenario {
+        public int bucket;
+        public String map;
+        public int width, height;
+        public int startX, startY, goalX, goalY;
+        public double optimal;  // Optimal octile length without corner cutting.
+    }
+
+    private MovingAI() {
+    }
+
+    /**
+     * Load a .map file.
+     * @param file the .map file.
+     * @return a Map with mapX and mapY filled in.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static Map loadMap(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            int width = -1, height = -1;
+            String line;
+            while ((line = in.readLine()) != null && !line.trim().equals("map")) {
+                String[] field = line.trim().split("\\s+");
+                if (field[0].equals("width")) {
+                    width = Integer.parseInt(field[1]);
+                } else if (field[0].equals("height")) {
+                    height = Integer.parseInt(field[1]);
+                }
+            }
+            if (width < 1 || height < 1) {
+                throw new IOException(file + ": missing width or height");
+            }
+            if (width > 254 || height > 254) {
+                throw new IOException(file + ": " + width + "x" + height
+                        + " is larger than 254x254");
+            }
+
+            Map map = new Map(width / 2, height / 2);
+            int offsetX = 128 - map.origin[0];
+            int offsetY = 128 - map.origin[1];
+
+            // Start with every cell blocked, then clear the walkable ones.
+            for (int y = 0; y < 256; y++) {
+                for (int w = 0; w < 4; w++) {
+                    map.mapX[y][w] = -1L;
+                }
+            }
+            for (int y = 0; y < height; y++) {
+                line = in.readLine();
+                if (line == null || line.length() < width) {
+                    throw new IOException(file + ": row " + y + " is missing or short");
+                }
+                for (int x = 0; x < width; x++) {
+                    char c = line.charAt(x);
+                    if (c == '.' || c == 'G' || c == 'S') {
+                        int mx = x + offsetX;
+                        map.mapX[y + offsetY][mx / 64] &= ~(1L << (63 - (mx % 64)));
+                    }
+                }
+            }
+            map.mapY = TestMaps.getYMap(map.mapX);
+            return map;
+        }
+    }
+
+    /**
+     * Load a .scen file.
+     * @param file the .scen file.
+     * @return its scenarios in file order.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static List<Scenario> loadScenarios(File file) throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] field = line.trim().split("\\s+");
+                if (field.length < 9) {
+                    continue;   // Version line or blank line.
+                }
+                Scenario s = new Scenario();
+                s.bucket = Integer.parseInt(field[0]);
+                s.map = field[1];
+                s.width = Integer.parseInt(field[2]);
+                s.height = Integer.parseInt(field[3]);
+                s.startX = Integer.parseInt(field[4]);
+                s.startY = Integer.parseInt(field[5]);
+                s.goalX = Integer.parseInt(field[6]);
+                s.goalY = Integer.parseInt(field[7]);
+                s.optimal = Double.parseDouble(field[8]);
+                scenarios.add(s);
+            }
+        }
+        return scenarios;
+    }
+}
@@ -0,0 +1,179 @@
+package navigation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Per-call cost of the four bit scan primitives for each ScanEngine.
+ *
+ * Each primitive is run over seeded 256x256 maps at obstacle densities from
+ * 0% to 90%, with query positions drawn from three span patterns:
+ *
+ * - word:     x anywhere in the row; most scans end inside the first long.
+ * - boundary: x within two bits of a word boundary, so a scan often has to
+ *             read the neighbouring long.
+ * - multi:    obstacles only in the outer two longs of each row and x in the
+ *             middle two, so every scan crosses at least one whole long.
+ *
+ * Void scans count runs of set bits, so they are run on the complement of
+ * each map. Each (engine, primitive) pair runs in its own JVM (see
+ * Bench.fork), so no pair is slowed by the profile another one left at the
+ * shared call sites. The cold column is the first pass through the pair in
+ * its JVM; the remaining columns are warm. Run with -Dbench.jvmargs=-Xint
+ * for an interpreter-only baseline; the flag is passed on to every pair.
+ *
+ * @author David
+ */
+public class NavToolsBenchmark {
+
+    static final int QUERIES = 4096;        // Positions per map.
+    static final int CALLS = 1 << 18;       // Calls per measured iteration.
+
+    enum Primitive {
+        LEFT, RIGHT, VOID_LEFT, VOID_RIGHT;
+
+        int call(ScanEngine e, int x, int y, long[][] map) {
+            switch (this) {
+                case LEFT:
+                    return e.distanceLeft(x, y, map);
+                case RIGHT:
+                    return e.distanceRight(x, y, map);
+                case VOID_LEFT:
+                    return e.distanceVoidLeft(x, y, map);
+                default:
+                    return e.distanceVoidRight(x, y, map);
+            }
+        }
+
+        boolean isVoid() {
+            return this == VOID_LEFT || this == VOID_RIGHT;
+        }
+    }
+
+    enum Span {
+        WORD, BOUNDARY, MULTI
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2) {
+            run(ScanEngine.valueOf(args[0]), Primitive.valueOf(args[1]));
+            return;
+        }
+        ScanEngine[] engines = ScanEngine.values();
+        Primitive[] primitives = Primitive.values();
+
+        // One JVM per pair. Its first line is the cold time, then one line
+        // per span of warm times.
+        List<String> cold = new ArrayList<>();
+        String[][][] warm = new String[primitives.length][engines.length][];
+        for (ScanEngine e : engines) {
+            for (Primitive p : primitives) {
+                List<String> lines = Bench.fork(NavToolsBenchmark.class, e.name(), p.name());
+                cold.add(lines.get(0));
+                warm[p.ordinal()][e.ordinal()] = lines.subList(1, lines.size()).toArray(new String[0]);
+            }
+        }
+
+        System.out.println("# cold: first " + QUERIES + " calls, 50% density, ns/call");
+        for (String line : cold) {
+            System.out.println(line);
+        }
+
+        System.out.println();
+        System.out.println("# warm: ns/call after " + Bench.WARMUP_ITERATIONS
+                + " warmup iterations of " + CALLS + " calls");
+        System.out.printf("%-8s %-11s %-9s", "engine", "primitive", "span");
+        for (int d = 0; d <= 90; d += 10) {
+            System.out.printf("%7s", d + "%");
+        }
+        System.out.println();
+        for (Primitive p : primitives) {
+            for (Span s : Span.values()) {
+                for (ScanEngine e : engines) {
+                    System.out.println(warm[p.ordinal()][e.ordinal()][s.ordinal()]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measure one (engine, primitive) pair: print its cold time, then its
+     * warm times for each span.
+     */
+    static void run(ScanEngine e, Primitive p) {
+        long[][] cold = mapFor(p, Span.WORD, 50, 1);
+        System.out.printf("%-8s %-11s %10.1f%n", e, p,
+                Bench.cold(body(e, p, cold, queriesFor(Span.WORD, 2)), QUERIES));
+
+        for (Span s : Span.values()) {
+            StringBuilder line = new StringBuilder(String.format("%-8s %-11s %-9s", e, p, s));
+            for (int d = 0; d <= 90; d += 10) {
+                long[][] map = mapFor(p, s, d, 1000 + d);
+                int[] queries = queriesFor(s, 2000 + d);
+                line.append(String.format("%7.2f", Bench.warm(body(e, p, map, queries), CALLS)));
+            }
+            System.out.println(line);
+        }
+    }
+
+    static Bench.Body body(ScanEngine e, Primitive p, long[][] map, int[] queries) {
+        int mask = queries.length - 1;
+        return i -> {
+            int q = queries[i & mask];
+            return p.call(e, q & 0xFF, q >>> 8, map);
+        };
+    }
+
+    /**
+     * Build the map for one benchmark cell.
+     * @param p primitive, to decide whether the map is complemented.
+     * @param s span pattern.
+     * @param density obstacle density in percent.
+     * @param seed random seed.
+     */
+    static long[][] mapFor(Primitive p, Span s, int density, long seed) {
+        long[][] map = TestMaps.random(new Random(seed), density / 100.0);
+        if (s == Span.MULTI) {
+            for (long[] row : map) {
+                row[1] = 0;
+                row[2] = 0;
+            }
+        }
+        if (p.isVoid()) {
+            for (long[] row : map) {
+                for (int w = 0; w < 4; w++) {
+                    row[w] = ~row[w];
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Build query positions packed as y << 8 | x.
+     * @param s span pattern.
+     * @param seed random seed.
+     */
+    static int[] queriesFor(Span s, long seed) {
+        Random random = new Random(seed);
+        int[] queries = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int x;
+            switch (s) {
+                case WORD:
+                    x = random.nextInt(256);
+                    break;
+                case BOUNDARY:
+                    x = (random.nextInt(4) * 64 + 62 + random.nextInt(4)) & 255;
+                    break;
+                default:
+                    x = 64 + random.nextInt(128);
+                    break;
+            }
+            queries[i] = random.nextInt(256) << 8 | x;
+        }
+        return queries;
+    }
+}
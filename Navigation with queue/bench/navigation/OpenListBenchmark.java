@@ -0,0 +1,76 @@
+package navigation;
+
+import bytecodeNav.HeapWorkload;
+import java.util.Random;
+
+/**
+ * Cost of the open list structures on their own, without any map scans.
+ *
+ * Each structure runs the same synthetic search: remove the best entry, then
+ * insert three entries at random offsets of up to 16 cells from it, until
+ * REMOVALS entries have been removed. Queue and BucketQueue order entries by
+ * h(n) alone; Heap, BucketHeap and IndexedHeap by f(n) = g(n) + h(n) (see
+ * HeapWorkload).
+ * The search is repeated with a different seed for each call.
+ *
+ * Usage: ant bench -Dbench.class=navigation.OpenListBenchmark
+ *
+ * @author David
+ */
+public class OpenListBenchmark {
+
+    static final int REMOVALS = 2000;   // Entries removed per search.
+    static final int SEARCHES = 200;    // Searches per measured iteration.
+
+    public static void main(String[] args) {
+        System.out.printf("%-8s %-8s %12s %12s%n", "list", "open", "us/search", "ns/removal");
+        for (OpenList open : new OpenList[] { OpenList.ORDERED, OpenList.BUCKET }) {
+            QueueWorkload queue = new QueueWorkload(open, REMOVALS);
+            report("queue", open, Bench.warm(queue::run, SEARCHES));
+        }
+        for (OpenList open : OpenList.values()) {
+            HeapWorkload heap = new HeapWorkload(open, REMOVALS);
+            report("heap", open, Bench.warm(heap::run, SEARCHES));
+        }
+    }
+
+    static void report(String list, OpenList open, double nanos) {
+        System.out.printf("%-8s %-8s %12.1f %12.1f%n", list, open.name().toLowerCase(),
+                nanos / 1e3, nanos / REMOVALS);
+    }
+
+    /**
+     * The synthetic search of HeapWorkload run against a Queue or BucketQueue.
+     */
+    static class QueueWorkload {
+
+        final OpenList open;
+        final SearchContext context = new SearchContext();
+        final Random random = new Random();
+        final int removals;
+
+        QueueWorkload(OpenList open, int removals) {
+            this.open = open;
+            this.removals = removals;
+        }
+
+        int run(int seed) {
+            random.setSeed(seed);
+            int[] start = new int[] { 128, 128 };
+            int[] goal = new int[] { random.nextInt(256), random.nextInt(256) };
+            Queue q = open == OpenList.BUCKET
+                    ? new BucketQueue(start, goal, context) : new Queue(start, goal, context);
+            int sum = 0;
+            for (int n = 0; n < removals && !q.isEmpty(); n++) {
+                Node node = q.pop();
+                sum += node.score;
+                for (int k = 0; k < 3; k++) {
+                    int x = Math.max(0, Math.min(255, node.location[0] + random.nextInt(33) - 16));
+                    int y = Math.max(0, Math.min(255, node.location[1] + random.nextInt(33) - 16));
+                    q.offer(new int[] { x, y }, 1 + 2 * random.nextInt(4), new int[0], node);
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package navigation;
+
+/**
+ * ScenarioPlanner for the queue-based navigation.Navigation.
+ *
+ * @author David
+ */
+public class QueuePlanner implements ScenarioPlanner {
+
+    private final Navigation nav;
+
+    public QueuePlanner(ScanEngine scan) {
+        this(scan, OpenList.ORDERED);
+    }
+
+    public QueuePlanner(ScanEngine scan, OpenList open) {
+        nav = new Navigation(128, 128, scan, open);
+    }
+
+    @Override
+    public String name() {
+        String name = "queue/" + nav.scan.name().toLowerCase();
+        return nav.open == OpenList.BUCKET ? name + "/bucket" : name;
+    }
+
+    @Override
+    public void load(long[][] mapX, long[][] mapY) {
+        nav.map.mapX = mapX;
+        nav.map.mapY = mapY;
+    }
+
+    @Override
+    public int plan(int startX, int startY, int goalX, int goalY, int[] out) {
+        Node path = nav.getPath(new int[] { startX, startY }, new int[] { goalX, goalY });
+        if (path == null) {
+            return -1;
+        }
+
+        int i = 0;
+        out[i++] = path.location[1] << 8 | path.location[0];
+        for (Node n = path.mapNext; n != null; n = n.mapNext) {
+            if (n.waypoint.length == 2) {
+                out[i++] = n.waypoint[1] << 8 | n.waypoint[0];
+            }
+            out[i++] = n.location[1] << 8 | n.location[0];
+        }
+        return i;
+    }
+
+    @Override
+    public int expanded() {
+        return nav.expanded;
+    }
+}
@@ -0,0 +1,221 @@
+package navigation;
+
+import bytecodeNav.HeapPlanner;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * End-to-end pathfinding benchmark over Moving AI scenario files.
+ *
+ * Usage: ant bench -Dbench.class=navigation.ScenarioBenchmark
+ *                  -Dbench.args="path/to/file.scen path/to/dir ..."
+ *
+ * Directories are searched for .scen files. The .map named by each scenario
+ * is looked up next to the .scen file, first by its full relative path and
+ * then by file name alone.
+ *
+ * Every planner runs every scenario once to warm up and once measured. For
+ * each .scen file and planner the report gives:
+ *
+ * - solved:   scenarios that returned a path.
+ * - invalid:  returned paths that cross an obstacle or do not join start and
+ *             goal.
+ * - p50..max: search latency in microseconds.
+ * - expanded: mean nodes removed from the open list per search.
+ * - bytes:    mean heap allocated per search by the searching thread, when
+ *             the JVM can report it.
+ * - error:    mean and worst octile length of the returned path relative to
+ *             the scenario's optimal length, in percent. The diagonal
+ *             searches allow corner cutting and the optimal lengths do not,
+ *             so their error can be negative. jps8 (OctileJumpSearch), jps8-bi
+ *             (BidirectionalJumpSearch) and jps+ (JumpPlusSearch) do not cut
+ *             corners and should score 0.
+ *
+ * @author David
+ */
+public class ScenarioBenchmark {
+
+    static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            collect(new File(arg), files);
+        }
+        if (files.isEmpty()) {
+            System.out.println("usage: ScenarioBenchmark <file.scen | directory> ...");
+            return;
+        }
+
+        ScenarioPlanner[] planners = new ScenarioPlanner[] {
+            new QueuePlanner(ScanEngine.TABLES),
+            new QueuePlanner(ScanEngine.COMPACT),
+            new QueuePlanner(ScanEngine.COMPACT, OpenList.BUCKET),
+            new HeapPlanner(),
+            new HeapPlanner(OpenList.BUCKET),
+            new HeapPlanner(OpenList.INDEXED),
+            new JumpSearchPlanner(ScanEngine.COMPACT),
+            new JumpSearchPlanner(new OctileJumpSearch(new Map(128, 128), ScanEngine.COMPACT)),
+            new JumpSearchPlanner(new BidirectionalJumpSearch(new Map(128, 128), ScanEngine.COMPACT)),
+            new JumpSearchPlanner(new JumpPlusSearch(new Map(128, 128), new JumpTable(new long[256][4])))
+        };
+
+        System.out.printf("%-24s %-20s %6s %6s %7s %8s %8s %8s %8s %9s %9s %7s %7s%n",
+                "scenario file", "planner", "solved", "invalid", "count",
+                "p50 us", "p90 us", "p99 us", "max us", "expanded", "bytes",
+                "err %", "worst %");
+
+        for (File file : files) {
+            List<MovingAI.Scenario> scenarios = MovingAI.loadScenarios(file);
+            for (ScenarioPlanner planner : planners) {
+                run(file, scenarios, planner, false);
+                run(file, scenarios, planner, true);
+            }
+        }
+    }
+
+    /**
+     * Run every scenario of one file through one planner.
+     * @param report false for the warmup pass.
+     */
+    static void run(File file, List<MovingAI.Scenario> scenarios,
+            ScenarioPlanner planner, boolean report) throws IOException {
+        long[] nanos = new long[scenarios.size()];
+        int[] path = new int[1 << 17];
+        long expanded = 0, bytes = 0;
+        int solved = 0, invalid = 0, measured = 0;
+        double errorSum = 0, errorMax = Double.NEGATIVE_INFINITY;
+
+        String loaded = null;
+        Map map = null;
+        int offsetX = 0, offsetY = 0;
+
+        for (MovingAI.Scenario s : scenarios) {
+            if (s.optimal <= 0) {
+                continue;   // Start and goal are the same cell.
+            }
+            if (!s.map.equals(loaded)) {
+                map = MovingAI.loadMap(resolve(file, s.map));
+                planner.load(map.mapX, map.mapY);
+                offsetX = 128 - map.origin[0];
+                offsetY = 128 - map.origin[1];
+                loaded = s.map;
+            }
+
+            int sx = s.startX + offsetX, sy = s.startY + offsetY;
+            int gx = s.goalX + offsetX, gy = s.goalY + offsetY;
+
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            int length = planner.plan(sx, sy, gx, gy, path);
+            nanos[measured++] = System.nanoTime() - start;
+            bytes += allocatedBytes() - allocated;
+            expanded += planner.expanded();
+
+            if (length != -1) {
+                solved++;
+                if (!valid(path, length, sx, sy, gx, gy, map.mapX)) {
+                    invalid++;
+                } else {
+                    double error = (length(path, length) - s.optimal) / s.optimal * 100;
+                    errorSum += error;
+                    errorMax = Math.max(errorMax, error);
+                }
+            }
+        }
+
+        if (!report) {
+            return;
+        }
+        long[] samples = Arrays.copyOf(nanos, measured);
+        int scored = solved - invalid;
+        System.out.printf("%-24s %-20s %6d %6d %7d %8.1f %8.1f %8.1f %8.1f %9.1f %9d %7.2f %7.2f%n",
+                file.getName(), planner.name(), solved, invalid, measured,
+                Bench.percentile(samples, 50) / 1e3,
+                Bench.percentile(samples, 90) / 1e3,
+                Bench.percentile(samples, 99) / 1e3,
+                Bench.percentile(samples, 100) / 1e3,
+                measured == 0 ? 0.0 : (double) expanded / measured,
+                measured == 0 ? 0 : bytes / measured,
+                scored == 0 ? 0.0 : errorSum / scored,
+                scored == 0 ? 0.0 : errorMax);
+    }
+
+    /**
+     * Octile length of a path of packed points.
+     */
+    static double length(int[] path, int points) {
+        double length = 0;
+        for (int i = 1; i < points; i++) {
+            int dx = Math.abs((path[i] & 0xFF) - (path[i-1] & 0xFF));
+            int dy = Math.abs((path[i] >>> 8) - (path[i-1] >>> 8));
+            length += Math.max(dx, dy) + (Math.sqrt(2) - 1) * Math.min(dx, dy);
+        }
+        return length;
+    }
+
+    /**
+     * Check that a path joins start to goal and that every cell it steps
+     * through, moving diagonally first and then straight, is walkable.
+     */
+    static boolean valid(int[] path, int points, int sx, int sy, int gx, int gy, long[][] mapX) {
+        if (path[0] != (sy << 8 | sx) || path[points-1] != (gy << 8 | gx)) {
+            return false;
+        }
+        for (int i = 1; i < points; i++) {
+            int x = path[i-1] & 0xFF, y = path[i-1] >>> 8;
+            int tx = path[i] & 0xFF, ty = path[i] >>> 8;
+            while (x != tx || y != ty) {
+                x += Integer.signum(tx - x);
+                y += Integer.signum(ty - y);
+                if (((mapX[y][x/64] >>> (63-(x%64))) & 1L) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or 0 if the JVM does not
+     * expose per-thread allocation counters.
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public static File resolve(File scen, String map) throws IOException {
+        File dir = scen.getAbsoluteFile().getParentFile();
+        File file = new File(dir, map);
+        if (!file.isFile()) {
+            file = new File(dir, new File(map).getName());
+        }
+        if (!file.isFile()) {
+            throw new IOException(scen + ": cannot find map " + map);
+        }
+        return file;
+    }
+
+    public static void collect(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collect(child, files);
+                }
+            }
+        } else if (file.getName().endsWith(".scen")) {
+            files.add(file);
+        }
+    }
+}
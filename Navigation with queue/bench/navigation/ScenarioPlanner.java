@@ -0,0 +1,37 @@
+package navigation;
+
+/**
+ * One path planner under test in ScenarioBenchmark.
+ *
+ * Coordinates are indices into the 256x256 bit arrays of a Map. Paths are
+ * written as packed points (y << 8 | x): the start, every waypoint and jump
+ * point in order, and the goal.
+ *
+ * @author David
+ */
+public interface ScenarioPlanner {
+
+    /**
+     * @return short name used in the report.
+     */
+    String name();
+
+    /**
+     * Replace the map searched by this planner.
+     * @param mapX row-major bit array.
+     * @param mapY column-major bit array.
+     */
+    void load(long[][] mapX, long[][] mapY);
+
+    /**
+     * Search for a path.
+     * @param out buffer for the packed points of the path.
+     * @return number of points written, or -1 if no path was found.
+     */
+    int plan(int startX, int startY, int goalX, int goalY, int[] out);
+
+    /**
+     * @return number of nodes expanded by the last call to plan.
+     */
+    int expanded();
+}
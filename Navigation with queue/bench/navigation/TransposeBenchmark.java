@@ -0,0 +1,71 @@
+package navigation;
+
+import java.util.Random;
+
+/**
+ * Cost of building mapY from mapX: the cell-by-cell copy TestMaps.getYMap
+ * used to make, against the 64x64 block transpose in Map.transpose.
+ *
+ * Both are run over seeded maps at obstacle densities from 0% to 90% and
+ * their results compared. Times are microseconds per 256x256 map:
+ *
+ * - cells:  the cell-by-cell copy into a new array.
+ * - blocks: Map.transpose into a new array.
+ * - reused: Map.transpose into an existing array, as Map.syncColumns does.
+ *
+ * @author David
+ */
+public class TransposeBenchmark {
+
+    static final int MAPS = 16;     // Maps per density.
+    static final int CALLS = 2000;  // Transposes per measured iteration.
+
+    public static void main(String[] args) {
+        final long[][] target = new long[256][4];
+        System.out.printf("%-8s %10s %10s %10s %8s%n", "density", "cells us", "blocks us", "reused us", "speedup");
+        for (int d = 0; d <= 90; d += 10) {
+            final long[][][] maps = new long[MAPS][][];
+            for (int i = 0; i < MAPS; i++) {
+                maps[i] = TestMaps.random(new Random(d * 100 + i), d / 100.0);
+                if (!equal(cellByCell(maps[i]), Map.transpose(maps[i]))) {
+                    throw new AssertionError("transpose differs at density " + d + "%, map " + i);
+                }
+            }
+            double cells = Bench.warm(i -> (int) cellByCell(maps[i % MAPS])[i & 255][i & 3], CALLS);
+            double blocks = Bench.warm(i -> (int) Map.transpose(maps[i % MAPS])[i & 255][i & 3], CALLS);
+            double reused = Bench.warm(i -> {
+                Map.transpose(maps[i % MAPS], target);
+                return (int) target[i & 255][i & 3];
+            }, CALLS);
+            System.out.printf("%-8s %10.2f %10.2f %10.2f %7.1fx%n", d + "%",
+                    cells / 1000, blocks / 1000, reused / 1000, cells / reused);
+        }
+    }
+
+    /**
+     * The copy TestMaps.getYMap made before Map.transpose: one test and at
+     * most one write per cell.
+     */
+    static long[][] cellByCell(long[][] x) {
+        long[][] bitArray = new long[256][4];
+        for (int i = 0; i < 256; i++) {
+            for (int j = 0; j < 256; j++) {
+                if ((x[i][j/64] & (1L << (63-(j % 64)))) != 0) {
+                    bitArray[j][i/64] |= 1L << (63-(i % 64));
+                }
+            }
+        }
+        return bitArray;
+    }
+
+    static boolean equal(long[][] a, long[][] b) {
+        for (int i = 0; i < 256; i++) {
+            for (int w = 0; w < 4; w++) {
+                if (a[i][w] != b[i][w]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
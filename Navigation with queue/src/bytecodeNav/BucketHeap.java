@@ -0,0 +1,147 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import navigation.BucketIndex;
+import navigation.CostModel;
+import navigation.SearchContext;
+
+/**
+ * Open list for jump point search that keeps one bucket per integer key
+ * instead of a binary heap.
+ *
+ * The key of a JumpPoint is its f(n) = g(n) + h(n), counted from h of the
+ * start, which no f(n) of the search falls below, so the buckets only span
+ * the detours of the search and not the length of its path; they start
+ * small and grow on demand. h(n) is not part of the key: under
+ * CostModel.OCTILE it runs past any fixed number of tie-break bits, and a
+ * key with h in it would multiply the number of buckets by its range.
+ * Within a bucket JumpPoints are removed in the order they were inserted. Insertion is constant time; removal is a bit scan in a
+ * BucketIndex, which moves forward only as long as f(n) does not decrease.
+ *
+ * The points array of Heap is not used.
+ *
+ * @author david
+ */
+public class BucketHeap extends Heap {
+
+    private BucketIndex occupied;   // Buckets holding at least one JumpPoint.
+    private JumpPoint[] heads;      // First JumpPoint of each bucket.
+    private JumpPoint[] tails;      // Last JumpPoint of each bucket.
+    private int base;               // f(n) of bucket 0: h(n) of the start.
+
+    /**
+     * Constructor.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    public BucketHeap(int[] start, int[] g) {
+        this(start, g, new SearchContext());
+    }
+
+    /**
+     * Constructor reusing a record of visited locations.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     * @param context record of visited locations, kept for every later search.
+     */
+    public BucketHeap(int[] start, int[] g, SearchContext context) {
+        this(start, g, context, CostModel.CHEBYSHEV);
+    }
+
+    /**
+     * Constructor with a choice of cost model.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     * @param context record of visited locations, kept for every later search.
+     * @param cost cost model for distance traveled and the heuristic.
+     */
+    public BucketHeap(int[] start, int[] g, SearchContext context, CostModel cost) {
+        super(context, cost);
+        occupied = new BucketIndex(256);        // f(n) up to base + 255 before growing
+        heads = new JumpPoint[occupied.capacity()];
+        tails = new JumpPoint[occupied.capacity()];
+        reset(start, g);
+    }
+
+    /**
+     * Start a new search, counting f(n) from h(n) of the start.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    @Override
+    public void reset(int[] start, int[] g) {
+        base = cost.between(start, g);
+        super.reset(start, g);
+    }
+
+    /**
+     * @param jp a JumpPoint.
+     * @return the bucket holding jp.
+     */
+    int key(JumpPoint jp) {
+        return Math.max(jp.score - base, 0);
+    }
+
+    /**
+     * Remove the jump point with the lowest key.
+     * @return the jump point with the lowest f(n) = h(n) + g(n), ties going
+     * to the one inserted first, or null if the heap is empty.
+     */
+    @Override
+    public JumpPoint remove() {
+        int key = occupied.first();
+        if (key == -1) {
+            return null;
+        }
+        JumpPoint top = heads[key];
+        heads[key] = top.queueNext;
+        if (top.queueNext == null) {
+            tails[key] = null;
+            occupied.remove(key);
+        }
+        top.queueNext = null;
+        size--;
+        return top;
+    }
+
+    /**
+     * Append an existing JumpPoint to the bucket for its key.
+     * @param jp existing JumpPoint
+     */
+    @Override
+    public void insert(JumpPoint jp) {
+        int key = key(jp);
+        if (key >= heads.length) {
+            int capacity = occupied.ensureCapacity(key);
+            heads = Arrays.copyOf(heads, capacity);
+            tails = Arrays.copyOf(tails, capacity);
+        }
+        if (heads[key] == null) {
+            heads[key] = jp;
+            occupied.add(key);
+        } else {
+            tails[key].queueNext = jp;
+        }
+        tails[key] = jp;
+        size++;
+    }
+
+    /**
+     * Empty every bucket still holding JumpPoints from the last search.
+     */
+    @Override
+    protected void clear() {
+        for (int key = occupied.first(); key != -1; key = occupied.first()) {
+            for (JumpPoint jp = heads[key]; jp != null; ) {
+                JumpPoint next = jp.queueNext;
+                jp.queueNext = null;
+                jp = next;
+            }
+            heads[key] = null;
+            tails[key] = null;
+            occupied.remove(key);
+        }
+        occupied.clear();
+        size = 0;
+    }
+}
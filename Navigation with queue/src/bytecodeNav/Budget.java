@@ -0,0 +1,105 @@
+package bytecodeNav;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Work a PathPlanner may do before it has to stop and let something else
+ * run.
+ *
+ * The planner calls charge() once per JumpPoint it has expanded, and asks
+ * exhausted() before taking the next JumpPoint off the heap and before each
+ * step along a diagonal after the first. Once exhausted() returns true the
+ * search stops at the next point where it can be resumed: a diagonal cut
+ * short is queued again from where it stopped, so no work is lost. Every
+ * slice expands at least one JumpPoint and takes at least one step along
+ * its diagonal, so a search always makes progress, however small its
+ * budget.
+ *
+ * A Budget is used up by the slice it is given to; give each call to
+ * SearchSession.step a new one.
+ *
+ * @author David
+ */
+public interface Budget {
+
+    /**
+     * A budget that is never exhausted: the search runs to completion.
+     */
+    Budget UNLIMITED = new Budget() {
+        @Override
+        public void charge() {
+        }
+
+        @Override
+        public boolean exhausted() {
+            return false;
+        }
+    };
+
+    /**
+     * Record the expansion of one JumpPoint.
+     */
+    void charge();
+
+    /**
+     * @return true iff the search must stop as soon as it can.
+     */
+    boolean exhausted();
+
+    /**
+     * A budget of a fixed number of expansions.
+     * @param expansions JumpPoints the slice may expand.
+     */
+    static Budget expansions(final int expansions) {
+        return new Budget() {
+            int spent;
+
+            @Override
+            public void charge() {
+                spent++;
+            }
+
+            @Override
+            public boolean exhausted() {
+                return spent >= expansions;
+            }
+        };
+    }
+
+    /**
+     * A budget that runs out at a point in time.
+     * @param deadline value of System.nanoTime() at which to stop.
+     */
+    static Budget deadline(final long deadline) {
+        return new Budget() {
+            @Override
+            public void charge() {
+            }
+
+            @Override
+            public boolean exhausted() {
+                return System.nanoTime() - deadline >= 0;
+            }
+        };
+    }
+
+    /**
+     * A budget read from an outside counter of remaining work, such as the
+     * bytecodes left in a Battlecode turn.
+     * @param left remaining work, read on every check.
+     * @param reserve work to keep for the caller; the budget is exhausted
+     * once left falls to this.
+     */
+    static Budget counter(final IntSupplier left, final int reserve) {
+        return new Budget() {
+            @Override
+            public void charge() {
+            }
+
+            @Override
+            public boolean exhausted() {
+                return left.getAsInt() <= reserve;
+            }
+        };
+    }
+}
@@ -1,5 +1,9 @@
 package bytecodeNav;
 
+import java.util.Arrays;
+import navigation.CostModel;
+import navigation.SearchContext;
+
 /**
  * Priority heap for jump point search.
  * @author david
@@ -9,7 +13,8 @@ public class Heap {
     JumpPoint[] points;     // Array used to store this heap's nodes.
     
     int[] goal;             // Coordinates of the goal.
-    int[] visited;          // Record of locations that have been visited.
+    SearchContext visited;  // Record of locations that have been visited.
+    CostModel cost;         // Distances traveled and the heuristic.
     
     int size;               // Size of this heap.
     
@@ -22,12 +27,58 @@ public class Heap {
      * @param g end coordinates.
      */
     public Heap(int[] start, int[] g) {
-        visited = new int[65536];           // Track which nodes have been visited  
-        points = new JumpPoint[65536];      // Memory for the priority heap
-        goal = new int[] { g[0], g[1] };    // End coordinates
+        this(start, g, new SearchContext());
+    }
+    
+    /**
+     * Constructor reusing a record of visited locations.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     * @param context record of visited locations, kept for every later search.
+     */
+    public Heap(int[] start, int[] g, SearchContext context) {
+        this(start, g, context, CostModel.CHEBYSHEV);
+    }
+    
+    /**
+     * Constructor with a choice of cost model.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     * @param context record of visited locations, kept for every later search.
+     * @param cost cost model for distance traveled and the heuristic.
+     */
+    public Heap(int[] start, int[] g, SearchContext context, CostModel cost) {
+        this(context, cost);
+        points = new JumpPoint[64];         // Memory for the priority heap, grown on demand
+        reset(start, g);
+    }
+    
+    /**
+     * Constructor for subclasses that store their jump points elsewhere. The
+     * subclass must call reset before the heap is used.
+     * @param context record of visited locations, kept for every later search.
+     * @param cost cost model for distance traveled and the heuristic.
+     */
+    protected Heap(SearchContext context, CostModel cost) {
+        visited = context;                  // Track which nodes have been visited
+        this.cost = cost;                   // Distances and heuristic
+        goal = new int[2];                  // End coordinates
+    }
+    
+    /**
+     * Start a new search in this heap's memory. Only the entries still in the
+     * heap are cleared, so the cost does not depend on the size of the map.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    public void reset(int[] start, int[] g) {
+        clear();                            // Release JumpPoints of the last search
+        visited.begin();                    // Forget the last search's visits
+        goal[0] = g[0];                     // End coordinates
+        goal[1] = g[1];
         
-        // Calculate the Chebyshev distance to the goal
-        int score = Math.max(Math.abs(g[0] - start[0]), Math.abs(g[1] - start[1]));
+        // Calculate the heuristic distance to the goal
+        int score = cost.between(start, g);
         
         // Create four new JumpPoint objects at this location
         JumpPoint front = new JumpPoint(start, score);
@@ -36,7 +87,7 @@ public class Heap {
         JumpPoint next3 = new JumpPoint(start, score+3);
         
         // Mark the initial coordinates as visited
-        visited[start[1]*256+start[0]] = -1;
+        visited.set(start[1]*256+start[0], -1);
         
         switch (front.directionTo(g)) {
             case 1:     // NNE
@@ -89,13 +140,23 @@ public class Heap {
                 break;
         }
         
-        // Start at index = 1 for efficient access to objects in the heap 
-        points[1] = front;  // top of the heap
-        points[2] = next;   // top's left node
-        points[3] = next2;  // top's right node
-        points[4] = next3;  // top left's left node 
-        
-        size = 4;
+        // Scores increase in this order, so each lands at the bottom of the heap:
+        // at index 1 (the top), 2 (top's left), 3 (top's right) and 4 (top
+        // left's left). Index 1 is the top for efficient access to children.
+        insert(front);
+        insert(next);
+        insert(next2);
+        insert(next3);
+    }
+    
+    /**
+     * Remove every JumpPoint from the heap.
+     */
+    protected void clear() {
+        for (int i = 1; i <= size; i++) {
+            points[i] = null;
+        }
+        size = 0;
     }
     
     /**
@@ -152,53 +213,54 @@ public class Heap {
      */
     public void insert(int[] newNode, int direction, int[] waypoint, JumpPoint lastJP, int distance) {
         int index = newNode[1]*256+newNode[0];  // Linear index of newNode coordinates.
-        int visitedDirection = visited[index];  // Previous direction of search from the new point, if any.
-        distance += lastJP.distance;            // Total distance traveled to this point.
+        int visitedDirection = visited.get(index);  // Previous direction of search from the new point, if any.
+        distance = travel(lastJP, waypoint, newNode, distance); // Total distance traveled to this point.
         
         if (visitedDirection == 0) {    // If this node has not been visited...
-            visited[index] = direction; // Mark it as visited with the current direction of search.
-            
-            // Increase the size of the heap and create the new JumpPoint object.
-            points[++size] = new JumpPoint(newNode, waypoint, lastJP, direction, distance,
-                    Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1]))+distance);
-            
-            int next = size-1;  // Index of the first JumpPoint.
+            visited.set(index, direction); // Mark it as visited with the current direction of search.
             
-            // Iterate from the bottom of the heap to the top.
-            for (int i = next; i > 2; i=next) { // i = the current JumpPoint.
-                next /= 2;  // Index of the next JumpPoint (the current's parent).
-                
-                // If the current JumpPoint's heuristic score is less than the next's...
-                if (points[i].score < points[next].score) {
-                    JumpPoint temp = points[next];  // Reference the next JumpPoint.
-                    points[next] = points[i];       // Swap in the current JumpPoint.
-                    points[i] = temp;               // Swap in the next JumpPoint.
-                } else {// Nothing needed to be swapped; our heap is ordered correctly.
-                    break;  // End of insertion.
-                }
-            }
+            // Create the new JumpPoint object and add it to the heap.
+            insert(new JumpPoint(newNode, waypoint, lastJP, direction, distance,
+                    heuristic(newNode)+distance));
         // else if this node has been visited and the direction of search is different...
         } else if (visitedDirection != direction && visitedDirection > 0) {
-            visited[index] = -1;    // No need to visit this location again, mark as closed.
-            
-            // Increase the size of the heap and create the new JumpPoint object.
-            points[++size] = new JumpPoint(newNode, waypoint, lastJP, direction, distance,
-                    Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1]))+distance);
+            visited.set(index, -1); // No need to visit this location again, mark as closed.
             
-            int next = size-1;  // Index of the first JumpPoint.
-            for (int i = next; i > 2; i=next) { // i = the current JumpPoint.
-                next /= 2;  // Index of the next JumpPoint (the current's parent).
-                
-                // If the current JumpPoint's heuristic score is less than the next's...
-                if (points[i].score < points[next].score) {
-                    JumpPoint temp = points[next];  // Reference the next JumpPoint.
-                    points[next] = points[i];       // Swap in the current JumpPoint.
-                    points[i] = temp;               // Swap in the next JumpPoint.
-                } else {// Nothing needed to be swapped; our heap is ordered correctly.
-                    break;  // End of insertion.
-                }
-            }
+            // Create the new JumpPoint object and add it to the heap.
+            insert(new JumpPoint(newNode, waypoint, lastJP, direction, distance,
+                    heuristic(newNode)+distance));
+        }
+    }
+    
+    /**
+     * Heuristic h(n) of a location under this heap's cost model.
+     * @param location coordinates of a jump point.
+     * @return estimated distance from location to the goal.
+     */
+    public int heuristic(int[] location) {
+        return cost.between(location, goal);
+    }
+    
+    /**
+     * Total distance traveled to a new jump point, g(n). Under CHEBYSHEV this
+     * is lastJP's distance plus the steps counted by the search. Any other
+     * model prices the route from lastJP through the waypoint to the new jump
+     * point by its straight and diagonal runs.
+     * @param lastJP    the last jump point
+     * @param waypoint  point between lastJP and the new jump point, or empty
+     * @param newNode   coordinates of the new jump point
+     * @param steps     Chebyshev steps counted from lastJP to the new jump point
+     * @return g(n) of the new jump point
+     */
+    public int travel(JumpPoint lastJP, int[] waypoint, int[] newNode, int steps) {
+        if (cost == CostModel.CHEBYSHEV) {
+            return lastJP.distance + steps;
+        }
+        if (waypoint.length != 2) {
+            return lastJP.distance + cost.between(lastJP.location, newNode);
         }
+        return lastJP.distance + cost.between(lastJP.location, waypoint)
+                + cost.between(waypoint, newNode);
     }
     
     /**
@@ -206,6 +268,9 @@ public class Heap {
      * @param jp existing JumpPoint
      */
     public void insert(JumpPoint jp) {
+        if (size + 1 == points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
         points[++size] = jp;
         int next = size-1;  // Index of the first JumpPoint.
         // Iterate from the bottom of the heap to the top.
@@ -0,0 +1,267 @@
+package bytecodeNav;
+
+import java.util.Arrays;
+import navigation.CostModel;
+import navigation.SearchContext;
+
+/**
+ * Open list for jump point search holding at most one JumpPoint per location
+ * and direction of search, with a true decrease-key.
+ *
+ * Heap inserts a location again whenever it is reached in a new direction and
+ * ignores it when it is reached again in the same direction, even along a
+ * shorter route. Here every (location, direction) pair has one entry. When
+ * the pair is reached again while its JumpPoint is still in the heap and the
+ * new distance is shorter, the JumpPoint takes the new distance, waypoint and
+ * previous JumpPoint and moves up the heap. Once a JumpPoint has been removed
+ * its pair is closed for the rest of the search. The four directions of a
+ * location are kept apart because each one continues a different diagonal.
+ *
+ * The heap is 4-ary and ordered by f(n) = g(n) + h(n), ties going to the
+ * lowest h(n). Each JumpPoint records its position in heapIndex, so it can be
+ * found without a search. The entries of the pairs are kept in a hash table
+ * with linear probing that grows with the number of pairs reached, so a
+ * heap held by a search that has only just started is small. Slots are
+ * tagged with the number of the search that filled them, so starting a
+ * search does not clear them.
+ *
+ * The points array of Heap and the visited record are not used for ordering
+ * or pruning.
+ *
+ * @author david
+ */
+public class IndexedHeap extends Heap {
+
+    private JumpPoint[] nodes;      // The 4-ary heap, top at index 0.
+    private int[] keys;             // Pair held by each slot of the table.
+    private JumpPoint[] entries;    // JumpPoint of the pair in each slot.
+    private int[] stamps;           // Search that filled each slot.
+    private int used;               // Slots filled by the current search.
+    private int generation;         // Number of the current search.
+
+    /**
+     * Constructor.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     */
+    public IndexedHeap(int[] start, int[] g) {
+        this(start, g, new SearchContext());
+    }
+
+    /**
+     * Constructor reusing a record of visited locations.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     * @param context record of visited locations, kept for every later search.
+     */
+    public IndexedHeap(int[] start, int[] g, SearchContext context) {
+        this(start, g, context, CostModel.CHEBYSHEV);
+    }
+
+    /**
+     * Constructor with a choice of cost model.
+     * @param start start coordinates.
+     * @param g end coordinates.
+     * @param context record of visited locations, kept for every later search.
+     * @param cost cost model for distance traveled and the heuristic.
+     */
+    public IndexedHeap(int[] start, int[] g, SearchContext context, CostModel cost) {
+        super(context, cost);
+        nodes = new JumpPoint[64];
+        keys = new int[256];
+        entries = new JumpPoint[256];
+        stamps = new int[256];
+        reset(start, g);
+    }
+
+    /**
+     * @param key a (location, direction) pair.
+     * @return the slot holding the pair in this search, or the empty slot
+     * where it would go.
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int h = key * 0x9E3779B9;
+        int i = (h ^ h >>> 16) & mask;
+        while (stamps[i] == generation && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Double the table once it is half full, moving the pairs of the current
+     * search.
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        JumpPoint[] oldEntries = entries;
+        int[] oldStamps = stamps;
+        keys = new int[oldKeys.length * 2];
+        entries = new JumpPoint[oldKeys.length * 2];
+        stamps = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] == generation) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                entries[slot] = oldEntries[i];
+                stamps[slot] = generation;
+            }
+        }
+    }
+
+    /**
+     * @param location coordinates of a jump point.
+     * @param direction direction of search from it, 1, 3, 5 or 7.
+     * @return a number for this pair, below 65536 * 4.
+     */
+    static int key(int[] location, int direction) {
+        return (location[1]*256 + location[0]) << 2 | direction >> 1;
+    }
+
+    /**
+     * @return true iff a should be removed before b.
+     */
+    static boolean before(JumpPoint a, JumpPoint b) {
+        return a.score < b.score || (a.score == b.score && a.distance > b.distance);
+    }
+
+    /**
+     * Remove the jump point at the top of the heap and close its entry.
+     * @return the jump point with the lowest f(n) = h(n) + g(n)
+     */
+    @Override
+    public JumpPoint remove() {
+        JumpPoint top = nodes[0];
+        JumpPoint last = nodes[--size];
+        nodes[size] = null;
+        if (size > 0) {
+            siftDown(last, 0);
+        }
+        top.heapIndex = -1;
+        return top;
+    }
+
+    /**
+     * Create a jump point and add it to the heap, or shorten the route to the
+     * jump point already queued for this location and direction.
+     * @param newNode   coordinates of the new jump point
+     * @param direction directionality of search from the new jump point
+     * @param waypoint  point between last jump point and the new jump point
+     * @param lastJP    the last jump point
+     * @param distance the distance traveled to get to the new jump point
+     */
+    @Override
+    public void insert(int[] newNode, int direction, int[] waypoint, JumpPoint lastJP, int distance) {
+        int slot = slot(key(newNode, direction));
+        distance = travel(lastJP, waypoint, newNode, distance);
+        if (stamps[slot] != generation) {
+            insert(new JumpPoint(newNode, waypoint, lastJP, direction, distance,
+                    heuristic(newNode)+distance));
+            return;
+        }
+        JumpPoint jp = entries[slot];
+        if (jp.heapIndex >= 0 && distance < jp.distance) {
+            jp.score -= jp.distance - distance;     // h(n) is unchanged
+            jp.distance = distance;
+            jp.waypoint = waypoint;
+            jp.mapLast = lastJP;
+            lastJP.mapNext = jp;
+            siftUp(jp, jp.heapIndex);
+        }
+    }
+
+    /**
+     * Add an existing JumpPoint to the heap unless its location and direction
+     * already have an entry in this search. If that entry is still queued and
+     * jp is shorter, jp replaces it.
+     * @param jp existing JumpPoint
+     */
+    @Override
+    public void insert(JumpPoint jp) {
+        int key = key(jp.location, jp.direction);
+        int slot = slot(key);
+        if (stamps[slot] == generation) {
+            JumpPoint old = entries[slot];
+            if (old.heapIndex < 0 || !before(jp, old)) {
+                return;
+            }
+            jp.heapIndex = old.heapIndex;
+            old.heapIndex = -1;
+            entries[slot] = jp;
+            siftUp(jp, jp.heapIndex);
+            return;
+        }
+        stamps[slot] = generation;
+        keys[slot] = key;
+        entries[slot] = jp;
+        if (++used * 2 > keys.length) {
+            grow();
+        }
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        siftUp(jp, size++);
+    }
+
+    /**
+     * Remove every JumpPoint and start a new search.
+     */
+    @Override
+    protected void clear() {
+        Arrays.fill(nodes, 0, size, null);
+        size = 0;
+        used = 0;
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(entries, null);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Move a jump point up from the given slot until its parent comes first.
+     */
+    private void siftUp(JumpPoint jp, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >> 2;
+            JumpPoint p = nodes[parent];
+            if (!before(jp, p)) {
+                break;
+            }
+            nodes[i] = p;
+            p.heapIndex = i;
+            i = parent;
+        }
+        nodes[i] = jp;
+        jp.heapIndex = i;
+    }
+
+    /**
+     * Move a jump point down from the given slot until it comes before all of
+     * its children.
+     */
+    private void siftDown(JumpPoint jp, int i) {
+        while (true) {
+            int first = 4 * i + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            int end = Math.min(first + 4, size);
+            for (int c = first + 1; c < end; c++) {
+                if (before(nodes[c], nodes[best])) {
+                    best = c;
+                }
+            }
+            if (!before(nodes[best], jp)) {
+                break;
+            }
+            nodes[i] = nodes[best];
+            nodes[i].heapIndex = i;
+            i = best;
+        }
+        nodes[i] = jp;
+        jp.heapIndex = i;
+    }
+}
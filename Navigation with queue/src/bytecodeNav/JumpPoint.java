@@ -8,6 +8,8 @@ public class JumpPoint {
     
     JumpPoint mapNext;  // Link to the JumpPoint following this JumpPoint in the path.
     JumpPoint mapLast;  // Link to the JumpPoint behind this JumpPoint in the path.
+    JumpPoint queueNext;// Link to the next JumpPoint in the same bucket of a BucketHeap.
+    int heapIndex;      // Position in an IndexedHeap, or -1 once removed from it.
     int score;          // Result of the heuristic function for this JumpPoint.
     int distance;       // Distance traveled to this JumpPoint.
     int direction;      // Direction of search from this JumpPoint.
@@ -0,0 +1,379 @@
+package bytecodeNav;
+
+import navigation.DStarLite;
+import navigation.FlowField;
+import navigation.FlowFieldCache;
+import navigation.Map;
+import navigation.OpenList;
+import navigation.TestMaps;
+
+/**
+ * Navigation based on Jump Point Search (a flavor of A*) utilizing arrays of
+ * bits to store the map in memory. This enables the use of efficient bit
+ * manipulation to determine the number of trailing zeroes, leading zeroes,
+ * trailing ones, and leading ones between any two points. The number of
+ * trailing or leading zeroes represents the walkable distance from one point in
+ * the direction of another point, and the number of trailing or leading ones
+ * represents the number of non-walkable spaces from one point in the direction
+ * to another point.
+ *
+ * Jump Point Search can be more efficient than vanilla A* when the cost of
+ * creating, adding and removing nodes to a queue is high and the cost of
+ * checking many spaces is low. In the case of Battlecode, it should be far more
+ * efficient in terms of bytecode use.
+ *
+ * @author David
+ */
+public class Navigation {
+
+    public static void main(String[] args) {
+
+        int[] start = new int[]{121, 121};   // Search from these coordinates
+        int[] end = new int[]{133,133};     // Search to these coordinates
+
+        Navigation n = new Navigation(128, 128, start[0], start[1]);
+
+        // Populate two bit arrays based on a String representation of the map in the TestMaps class.
+        map.mapX = TestMaps.getXMap();            // Bit array to represent rows.
+        map.mapY = TestMaps.getYMap(map.mapX);  // Bit array to represent columns.
+
+        pathStart = getPath(start, end);    // Search for a path from start to end.
+
+        // Print out the map with the jump points of the path marked by their directions of search.
+        for (int i = 119; i < 137; i++) {
+            for (int j = 119; j < 137; j++) {
+                if ((((map.mapX[i][(j) / 64] >>> (63 - (j % 64))) & 1L) == 1)
+                        && (((map.mapY[j][(i) / 64] >>> (63 - (i % 64))) & 1L) == 1)) {
+                    System.out.print("X ");
+                } else {
+                    boolean notVisited = true;
+                    if (pathStart != null) {
+                        JumpPoint path = new JumpPoint(pathStart);
+
+                        while (path != null) {
+                            if (path.location[0] == j && path.location[1] == i) {
+                                if (path.direction == 0) {
+                                    System.out.print("F ");
+                                } else if (path.mapLast == null) {
+                                    System.out.print("S ");
+                                } else {
+                                    System.out.print(path.direction + " ");
+                                }
+                                notVisited = false;
+                                break;
+                            } else {
+                                path = path.mapNext;
+                            }
+                        }
+                    }
+                    if (notVisited) {
+                        System.out.print("- ");
+                    }
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    static Map map;    // Map object to hold the bit arrays and the origin.
+    static PathPlanner planner; // Search state for this robot's paths.
+    static JumpPoint pathStart, pathNext, backToStart, returnTo;
+    static int[] nextPt;
+    static boolean pathChanged;
+    static boolean flowField;   // true iff tryMove follows shared flow fields.
+    static final FlowFieldCache flowFields = new FlowFieldCache(8); // Shared by every unit.
+    static boolean incremental; // true iff tryMove repairs one D* Lite plan.
+    static DStarLite replanner; // Plan kept between calls in incremental mode.
+    public static final int bytecodeLimit = 2000;
+
+    /**
+     * @return the Map searched by getPath.
+     */
+    public static Map getMap() {
+        return map;
+    }
+
+    /**
+     * Choose the priority structure used by the next search.
+     *
+     * @param list ORDERED for the binary Heap, BUCKET for BucketHeap, INDEXED
+     * for IndexedHeap.
+     */
+    public static void setOpenList(OpenList list) {
+        planner.setOpenList(list);
+    }
+
+    /**
+     * Choose between searching for a path and following a flow field.
+     *
+     * In flow-field mode tryMove looks up the next step in a flow field of
+     * the goal instead of running getPath. The fields are built once per goal
+     * and map version and shared by every unit, so units sent to the same
+     * goal each pay one array read per step. Call Map.changed() after
+     * writing to the map.
+     *
+     * @param on true for flow fields, false for getPath.
+     */
+    public static void setFlowField(boolean on) {
+        flowField = on;
+    }
+
+    /**
+     * Choose between searching for a path and repairing one plan.
+     *
+     * In incremental mode tryMove keeps a D* Lite plan to the goal between
+     * calls. Each call reads the changes to the map since the last one and
+     * repairs the plan around them, instead of searching again from the
+     * current location. A new goal, or a new map, starts a new plan. Flow
+     * fields, if on, take precedence.
+     *
+     * @param on true to repair one plan, false for getPath.
+     */
+    public static void setIncremental(boolean on) {
+        incremental = on;
+        if (!on) {
+            replanner = null;
+        }
+    }
+
+    /**
+     * @return number of JumpPoints expanded by the most recent search.
+     */
+    public static int getExpanded() {
+        return planner.getExpanded();
+    }
+
+    /**
+     * Constructor. Origin will be shifted to the center of a 256x256 map to
+     * prevent indices from going out of bounds for maps up to 128x128 bits
+     * regardless of where the actual center of the map is.
+     *
+     * @param x coordinate of the origin of the map.
+     * @param y coordinate of the origin of the map.
+     * @param myX current location's x-coordinate.
+     * @param myY current location's y-coordinate.
+     */
+    public Navigation(int x, int y, int myX, int myY) {
+        map = new Map(x, y);
+        planner = new PathPlanner(map);
+        nextPt = new int[]{myX,myY};
+        pathChanged = false;
+        pathStart = null;
+        pathNext = null;
+        returnTo = null;
+        backToStart = null;
+    }
+    
+    public static boolean tryMove(int[] goal) {
+        if (flowField) {
+            return flowMove(goal);
+        }
+        if (incremental) {
+            return incrementalMove(goal);
+        }
+        boolean moved;
+        if (planner.searching && planner.heap.goal[0] == goal[0] && planner.heap.goal[1] == goal[1]) {
+            // Continue a previous search
+            JumpPoint path = getPath(null,null);
+            if (path == null) {
+                return false;
+            }
+            
+            JumpPoint nextNew = path.mapNext;
+            JumpPoint nextOld = pathStart == null ? null : pathStart.mapNext;
+            if (nextNew != null) {
+                while (nextNew.equals(nextOld) && !nextNew.equals(pathNext)) {
+                    if (nextNew.mapNext == null) {
+                        break;
+                    }
+                    nextNew = nextNew.mapNext;
+                    nextOld = nextOld.mapNext;
+                }
+            }
+            /**
+             * Redo this, add a global "path" JumpPoint variable and modify it as a linear graph from current location to current path end.
+             */
+            if (nextNew != null && nextNew.equals(pathNext)) {
+                // Path already traversed is also part of the new path.
+                pathNext = nextNew;
+                pathStart = path;
+            } else if (nextNew != null) {
+                nextNew = nextNew.mapLast;
+            }
+            pathStart = path;
+            pathNext = path.mapNext;
+            
+        } else if (!planner.reachedGoal) {
+            pathStart = getPath(nextPt,goal);
+            if (pathStart == null) {
+                return false;
+            }
+            pathNext = pathStart.mapNext;
+        }
+        
+        if (pathStart != null && pathNext != null) {
+            if (pathNext.equals(nextPt)) {
+                pathNext = pathNext.mapNext;
+            }
+            
+            if (pathNext == null) {
+                moved = false;
+            } else if (pathNext.waypoint.length > 0) {
+                nextPt = move(nextPt, directionTo(nextPt, pathNext.location[0], pathNext.location[1]));
+                if (nextPt[0] == pathNext.waypoint[0] && nextPt[1] == pathNext.waypoint[1]) {
+                    pathNext.waypoint = new int[]{};
+                }
+                moved = true;
+            } else {
+                nextPt = move(nextPt, directionTo(nextPt, pathNext.location[0], pathNext.location[1]));
+                moved = true;
+            }
+        } else {
+           moved = false;
+        }
+        
+        return moved;
+    }
+    
+    /**
+     * Take one step along the flow field of a goal.
+     *
+     * @param goal coordinates of the goal.
+     * @return true iff a step was taken; false at the goal or if it cannot be
+     * reached.
+     */
+    static boolean flowMove(int[] goal) {
+        FlowField field = flowFields.get(map, goal[1] << 8 | goal[0]);
+        int direction = field.direction(nextPt[0], nextPt[1]);
+        if (direction == FlowField.NONE) {
+            return false;
+        }
+        nextPt = move(nextPt, direction);
+        return true;
+    }
+
+    /**
+     * Take one step along the D* Lite plan of a goal, repairing it first for
+     * any changes to the map.
+     *
+     * @param goal coordinates of the goal.
+     * @return true iff a step was taken; false at the goal or if it cannot be
+     * reached.
+     */
+    static boolean incrementalMove(int[] goal) {
+        int here = nextPt[1] << 8 | nextPt[0];
+        int target = goal[1] << 8 | goal[0];
+        if (replanner == null || replanner.getMap() != map) {
+            replanner = new DStarLite(map);
+        }
+        if (replanner.goal() != target) {
+            replanner.start(here, target);
+        } else {
+            replanner.replan(here);
+        }
+        int direction = replanner.next(here);
+        if (direction == DStarLite.NONE) {
+            return false;
+        }
+        nextPt = move(nextPt, direction);
+        return true;
+    }
+    
+    public static int directionTo(int[] location, int x, int y) {
+        int nextDirection;
+        x = location[0] - x;
+        y = location[1] - y;
+        boolean dx = x <= 0;
+        boolean dy = y <= 0;
+        if(dx && dy) {
+            if (x == 0) {
+                if (y == 0) {
+                    nextDirection = -1;
+                } else {
+                    nextDirection = 2;
+                }
+            } else if (y == 0) {
+                nextDirection = 4;
+            } else {
+                nextDirection = 3;
+            }
+        } else if (dx) {
+            if (x == 0) {
+                nextDirection = 0;
+            } else {
+                nextDirection = 1;
+            }
+        } else if (dy) {
+            if (y == 0) {
+                nextDirection = 6;
+            } else {
+                nextDirection = 5;
+            }
+        } else {
+            nextDirection = 7;
+        }
+        return nextDirection;
+    }
+    
+    public static int[] move(int[] location, int direction) {
+        switch(direction) {
+            case 0:
+                location[1]--;
+                break;
+            case 1:
+                location[0]++;
+                location[1]--;
+                break;
+            case 2:
+                location[0]++;
+                break;
+            case 3:
+                location[0]++;
+                location[1]++;
+                break;
+            case 4:
+                location[1]++;
+                break;
+            case 5:
+                location[0]--;
+                location[1]++;
+                break;
+            case 6:
+                location[0]--;
+                break;
+            case 7:
+                location[0]--;
+                location[1]--;
+                break;
+        }
+        return location;
+    }
+    
+    /**
+     * Resume the previous search.
+     *
+     * @return
+     */
+    public static JumpPoint resume() {
+        return getPath(null, null);
+    }
+
+    /**
+     * Search for a path from point a to point b.
+     *
+     * @param a start of the path, or null to resume the last search.
+     * @param b end of the path.
+     * @return the JumpPoint object at the start of this path, or null if there
+     * is no path.
+     * @see PathPlanner#getPath(int[], int[])
+     */
+    public static JumpPoint getPath(int[] a, int[] b) {
+        if (a != null) {
+            pathStart = null;
+            pathNext = null;
+            returnTo = null;
+            backToStart = null;
+        }
+        return planner.getPath(a, b);
+    }
+}
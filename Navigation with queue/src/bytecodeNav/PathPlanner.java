@@ -0,0 +1,1019 @@
+package bytecodeNav;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import navigation.Components;
+import navigation.CostModel;
+import navigation.Map;
+import navigation.OpenList;
+import navigation.ScanEngine;
+import navigation.SearchContext;
+
+/**
+ * Jump point search over a Map, with all of the search state in the instance.
+ *
+ * A PathPlanner only reads its Map, so any number of planners can search the
+ * same Map from different threads as long as nothing writes to the Map while
+ * they do. A single PathPlanner must only be used by one thread at a time.
+ *
+ * getPaths runs a batch of searches on a ForkJoinPool, with one planner per
+ * worker thread.
+ *
+ * @author David
+ */
+public class PathPlanner {
+
+    static final int bytecodeLimit = Navigation.bytecodeLimit;
+    static final int BATCH_GRAIN = 4;   // Searches per task in getPaths.
+    public static final int DEFAULT_JUMP_CAP = 10;
+    static final Budget BYTECODES = Budget.counter(PathPlanner::bytecodesLeft, bytecodeLimit);
+
+    final Map map;              // Map searched by this planner, read only.
+    final SearchContext context;// Visited locations, reused by every search.
+    OpenList open;              // Structure of the heap for the next search.
+    CostModel cost;             // Distances and heuristic for the next search.
+    ScanEngine scan;            // Implementation of the bit scans used by getPath.
+    Heap heap;                  // Priority heap for the current search.
+    Components components;      // Reachability of goals, built on the first search.
+    Budget budget;              // Work left in the current slice of the search.
+    int jumpCap = DEFAULT_JUMP_CAP; // Diagonal steps per expansion before a continuation.
+    boolean adaptiveJumps = true; // true iff diagonals heading for the goal are not capped.
+    boolean searching;          // true iff the last search stopped early.
+    boolean reachedGoal;        // true iff the last search found the goal.
+    int expanded;               // JumpPoints removed from the heap by the last search.
+    int continued;              // Continuations queued by the last search.
+    JumpPoint end;              // Last JumpPoint of the path returned by the last call.
+
+    /**
+     * Constructor. The open list is OpenList.DEFAULT.
+     * @param map map to search.
+     */
+    public PathPlanner(Map map) {
+        this(map, OpenList.DEFAULT, new SearchContext());
+    }
+
+    /**
+     * Constructor.
+     * @param map map to search.
+     * @param open structure of the heap.
+     * @param context record of visited locations, used by this planner alone.
+     */
+    public PathPlanner(Map map, OpenList open, SearchContext context) {
+        this.map = map;
+        this.open = open;
+        this.context = context;
+        this.cost = CostModel.DEFAULT;
+        this.scan = ScanEngine.DEFAULT;
+    }
+
+    /**
+     * Bytecodes left in the current turn. Outside of Battlecode there is no
+     * per-turn limit, so a search always runs to completion.
+     *
+     * @return bytecodes available before the search has to yield.
+     */
+    static int bytecodesLeft() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Choose the priority structure used by the next search.
+     *
+     * @param list ORDERED for the binary Heap, BUCKET for BucketHeap, INDEXED
+     * for IndexedHeap.
+     */
+    public void setOpenList(OpenList list) {
+        if (list != open) {
+            open = list;
+            heap = null;
+        }
+    }
+
+    /**
+     * Choose the cost model used by the next search.
+     *
+     * @param model CHEBYSHEV, OCTILE or MANHATTAN.
+     */
+    public void setCostModel(CostModel model) {
+        if (model != cost) {
+            cost = model;
+            heap = null;
+        }
+    }
+
+    /**
+     * Choose the implementation of the bit scans used by the next search.
+     *
+     * @param engine TABLES or COMPACT; both give the same paths.
+     */
+    public void setScanEngine(ScanEngine engine) {
+        scan = engine;
+    }
+
+    /**
+     * Choose how far a diagonal is followed in one expansion. A diagonal that
+     * is still walkable after cap steps is queued again as a continuation
+     * JumpPoint, so that cheaper JumpPoints can be expanded first. The
+     * default is DEFAULT_JUMP_CAP steps, adaptive.
+     *
+     * @param cap diagonal steps per expansion, at least 1; Integer.MAX_VALUE
+     * follows every diagonal to its end, stopping only for the budget.
+     * @param adaptive true to follow a diagonal past the cap while the goal
+     * lies ahead of it on both axes. Each such step lowers the heuristic by
+     * as much as it adds to the distance, so the continuation would have the
+     * same score as the JumpPoint being expanded, and queueing it would only
+     * cost a push and a pop.
+     */
+    public void setJumpCap(int cap, boolean adaptive) {
+        if (cap < 1) {
+            throw new IllegalArgumentException("jump cap " + cap);
+        }
+        jumpCap = cap;
+        adaptiveJumps = adaptive;
+    }
+
+    /**
+     * @return the Map searched by this planner.
+     */
+    public Map getMap() {
+        return map;
+    }
+
+    /**
+     * @return number of JumpPoints expanded by the most recent search.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return number of continuation JumpPoints queued by the most recent
+     * search, for diagonals cut off by the jump cap or the budget.
+     */
+    public int getContinued() {
+        return continued;
+    }
+
+    /**
+     * @return true iff adaptive jumps are on and the goal lies ahead of
+     * location along both axes of the diagonal (stepX, stepY).
+     */
+    private boolean uncapped(int[] location, int stepX, int stepY) {
+        return adaptiveJumps
+                && (heap.goal[0] - location[0]) * stepX > 0
+                && (heap.goal[1] - location[1]) * stepY > 0;
+    }
+
+    /**
+     * Search for many paths at once on the common ForkJoinPool.
+     *
+     * @param map map to search; must not change until this returns.
+     * @param starts start of each path.
+     * @param goals end of each path.
+     * @return the JumpPoint at the start of each path, or null where there is
+     * no path.
+     */
+    public static JumpPoint[] getPaths(Map map, int[][] starts, int[][] goals) {
+        return getPaths(ForkJoinPool.commonPool(), map, OpenList.DEFAULT, starts, goals);
+    }
+
+    /**
+     * Search for many paths at once. The pairs are split into tasks of
+     * BATCH_GRAIN searches. Each task borrows a planner, and with it a heap
+     * and a SearchContext, that no other task is using.
+     *
+     * @param pool pool to run the searches on.
+     * @param map map to search; must not change until this returns.
+     * @param open structure of the heap.
+     * @param starts start of each path.
+     * @param goals end of each path, as many as starts.
+     * @return the JumpPoint at the start of each path, or null where there is
+     * no path.
+     */
+    public static JumpPoint[] getPaths(ForkJoinPool pool, Map map, OpenList open,
+            int[][] starts, int[][] goals) {
+        if (starts.length != goals.length) {
+            throw new IllegalArgumentException(starts.length + " starts but "
+                    + goals.length + " goals");
+        }
+        JumpPoint[] paths = new JumpPoint[starts.length];
+        ConcurrentLinkedQueue<PathPlanner> idle = new ConcurrentLinkedQueue<>();
+        try {
+            pool.invoke(new Batch(map, open, starts, goals, paths, idle, 0, starts.length));
+        } finally {
+            for (PathPlanner planner : idle) {
+                planner.context.release();
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Searches for the pairs from index from up to index to.
+     */
+    private static class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+
+        final Map map;
+        final OpenList open;
+        final int[][] starts, goals;
+        final JumpPoint[] paths;
+        final ConcurrentLinkedQueue<PathPlanner> idle;   // Planners not in use.
+        final int from, to;
+
+        Batch(Map map, OpenList open, int[][] starts, int[][] goals, JumpPoint[] paths,
+                ConcurrentLinkedQueue<PathPlanner> idle, int from, int to) {
+            this.map = map;
+            this.open = open;
+            this.starts = starts;
+            this.goals = goals;
+            this.paths = paths;
+            this.idle = idle;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Batch(map, open, starts, goals, paths, idle, from, middle),
+                        new Batch(map, open, starts, goals, paths, idle, middle, to));
+                return;
+            }
+            PathPlanner planner = idle.poll();
+            if (planner == null) {
+                planner = new PathPlanner(map, open, SearchContext.acquire());
+            }
+            try {
+                for (int i = from; i < to; i++) {
+                    paths[i] = planner.getPath(starts[i], goals[i]);
+                }
+            } finally {
+                idle.offer(planner);
+            }
+        }
+    }
+
+    /**
+     * Search for a path from point a to point b.
+     *
+     * A search stops early, leaving searching set, when bytecodesLeft() falls
+     * to the limit. Passing null for a resumes it. A goal that Components
+     * puts in another component than a is rejected without searching.
+     *
+     * @param a start of the path, or null to resume.
+     * @param b end of the path.
+     * @return the JumpPoint object at the start of this path, or null if there
+     * is no path.
+     */
+    public JumpPoint getPath(int[] a, int[] b) {
+        return getPath(a, b, BYTECODES);
+    }
+
+    /**
+     * Search for a path from point a to point b, or resume the last search,
+     * until the budget is exhausted.
+     *
+     * @param a start of the path, or null to resume.
+     * @param b end of the path.
+     * @param budget work this call may do.
+     * @return the JumpPoint object at the start of this path, the start of
+     * the path to the JumpPoint expanded last if the search stopped early,
+     * or null if there is no path.
+     * @see SearchSession
+     */
+    public JumpPoint getPath(int[] a, int[] b, Budget budget) {
+        this.budget = budget;
+        searching = true;
+        if (a != null) {
+            if (components == null) {
+                components = new Components(map);
+            }
+            if (!components.connected(a, b)) {
+                // The goal is walled off: no need to drain the heap.
+                searching = false;
+                reachedGoal = false;
+                expanded = 0;
+                continued = 0;
+                return null;
+            }
+            if (heap == null) {
+                switch (open) {
+                    case BUCKET:
+                        heap = new BucketHeap(a, b, context, cost);
+                        break;
+                    case INDEXED:
+                        heap = new IndexedHeap(a, b, context, cost);
+                        break;
+                    default:
+                        heap = new Heap(a, b, context, cost);
+                        break;
+                }
+            } else {
+                heap.reset(a, b);
+            }
+            expanded = 0;
+            continued = 0;
+            reachedGoal = false;
+        }
+
+        JumpPoint last = null;      // JumpPoint expanded last in this call.
+        while (heap.size != 0) {
+            if (last != null && budget.exhausted()) {
+                // Stop before taking anything off the heap, so nothing is lost.
+                return heap.retrace(end = last);
+            }
+            JumpPoint next = heap.remove();
+            last = next;
+            expanded++;
+            // current position on the diagonal of the next Node
+            int[] location = new int[]{next.location[0], next.location[1]};
+
+            // distances from location to next void (x = step[0], y = step[1])
+            int[] step = new int[2];
+
+            // previous distances (x-1 = lastStep[0], y-1 = lastStep[1])
+            int[] lastStep;
+
+            int diagonalDistance = 0;
+
+            switch (next.direction) {    // determine the direction of movement
+
+                case 1: // direction = NE
+
+                    // initialize as the distance from this node to x and y voids
+                    lastStep = new int[]{
+                        scan.distanceRight(location[0], location[1], map.mapX),
+                        scan.distanceLeft(location[1], location[0], map.mapY)
+                    };
+
+                    while (lastStep[0] != 0 && (diagonalDistance == 0 || !budget.exhausted()) && (diagonalDistance < jumpCap || uncapped(location, 1, -1))) { // while the current location is walkable
+                        // check if the goal is directly reachable from this location
+                        if (heap.goal[0] == location[0]) {
+                            if (heap.goal[1] <= location[1] && heap.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[1] >= location[1] && heap.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        } else if (heap.goal[1] == location[1]) {
+                            if (heap.goal[0] <= location[0] && heap.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[0] >= location[0] && heap.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        }
+
+                        if (location[0] == 255 || location[1] == 0) {
+                            lastStep[0] = 0;   // The diagonal runs off the map.
+                            break;
+                        }
+                        // step = distances to x and y voids & properly increment/decrement location
+                        step[0] = scan.distanceRight(++location[0], --location[1], map.mapX);
+                        step[1] = scan.distanceLeft(location[1], location[0], map.mapY);
+
+                        // difference between last and current distances
+                        int dX = step[0] - lastStep[0]; // should be -1
+
+                        if (dX >= 0) { // if x difference is greater than -1
+
+                            // check the number of consecutive voids at previous location + distanceRight of X
+                            int wall = location[0] + lastStep[0] - 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[1] + 1, map.mapX);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dX - voids >= -1) {
+                                int distance = voids + lastStep[0] - 2;
+                                // new direction is SE
+                                heap.insert(new int[]{
+                                    location[0] + distance,
+                                    location[1]
+                                },
+                                        3,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dX < -1) { // if x difference is less than -1
+
+                            // check the number of consecutive voids at current location + distanceRight of X
+                            int wall = location[0] + step[0];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[1], map.mapX);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dX + voids < 0) {
+                                // new direction is NE
+                                int distance = voids + step[0] - 1;
+                                heap.insert(new int[]{
+                                    location[0] + distance,
+                                    location[1] + 1
+                                },
+                                        1,
+                                        new int[]{
+                                            location[0] - 1,
+                                            location[1] + 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        int dY = step[1] - lastStep[1]; // should be -1
+
+                        if (dY >= 0) { // if y difference is greater than -1
+
+                            // check the number of consecutive voids at previous location - distanceLeft of Y
+                            int wall = location[1] - lastStep[1] + 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[0] - 1, map.mapY);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dY - voids >= -1) {
+                                // new direction is SE, need two waypoints
+                                int distance = voids + lastStep[1] - 2;
+                                heap.insert(new int[]{
+                                    location[0],
+                                    location[1] - distance //-voids-lastStep[1]+2
+                                },
+                                        7,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dY < -1) { // if y difference is less than -1
+
+                            // check the number of consecutive voids at current location - distanceLeft of Y
+                            int wall = location[1] - step[1];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[0], map.mapY);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dY + voids < 0) {
+                                // new direction is NW, need two waypoints
+                                int distance = voids + step[1] - 1;
+                                heap.insert(new int[]{
+                                    location[0] - 1,
+                                    location[1] - distance //-voids-step[1]+1
+                                },
+                                        1,
+                                        new int[]{
+                                            location[0] - 1,
+                                            location[1] + 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        lastStep[0] = step[0];
+                        lastStep[1] = step[1];
+                        diagonalDistance++;
+                    }
+                    break;
+
+                case 3: // direction = SE
+                    // initialize as the distance from this node to x and y voids
+                    lastStep = new int[]{
+                        scan.distanceRight(location[0], location[1], map.mapX),
+                        scan.distanceRight(location[1], location[0], map.mapY)
+                    };
+
+                    while (lastStep[0] != 0 && (diagonalDistance == 0 || !budget.exhausted()) && (diagonalDistance < jumpCap || uncapped(location, 1, 1))) { // while the current location is walkable
+
+                        // check if the goal is directly reachable from this location
+                        if (heap.goal[0] == location[0]) {
+                            if (heap.goal[1] <= location[1] && heap.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[1] >= location[1] && heap.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        } else if (heap.goal[1] == location[1]) {
+                            if (heap.goal[0] <= location[0] && heap.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[0] >= location[0] && heap.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        }
+
+                        if (location[0] == 255 || location[1] == 255) {
+                            lastStep[0] = 0;   // The diagonal runs off the map.
+                            break;
+                        }
+                        // step = distances to x and y voids & properly increment/decrement location
+                        step[0] = scan.distanceRight(++location[0], ++location[1], map.mapX);
+                        step[1] = scan.distanceRight(location[1], location[0], map.mapY);
+
+                        // difference between last and current distances
+                        int dX = step[0] - lastStep[0]; // should be -1
+
+                        if (dX >= 0) { // if x difference is greater than -1
+
+                            // check the number of consecutive voids at previous location + distanceRight of X
+                            int wall = location[0] + lastStep[0] - 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[1] - 1, map.mapX);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dX - voids >= -1) {
+                                // new direction is SE
+                                int distance = voids + lastStep[0] - 2;
+                                heap.insert(new int[]{
+                                    location[0] + distance,
+                                    location[1]
+                                },
+                                        1,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dX < -1) { // if x difference is less than -1
+
+                            // check the number of consecutive voids at current location + distanceRight of X
+                            int wall = location[0] + step[0];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[1], map.mapX);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dX + voids < 0) {
+                                // new direction is NE
+                                int distance = voids + step[0] - 1;
+                                heap.insert(new int[]{
+                                    location[0] + distance,
+                                    location[1] - 1
+                                },
+                                        3,
+                                        new int[]{
+                                            location[0] - 1,
+                                            location[1] - 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        int dY = step[1] - lastStep[1]; // should be -1
+
+                        if (dY >= 0) { // if y difference is greater than -1
+
+                            // check the number of consecutive voids at previous location + distanceRight of Y
+                            int wall = location[1] + lastStep[1] - 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[0] - 1, map.mapY);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dY - voids >= -1) {
+                                // new direction is SE
+                                int distance = voids + lastStep[1] - 2;
+                                heap.insert(new int[]{
+                                    location[0],
+                                    location[1] + distance
+                                },
+                                        5,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dY < -1) { // if y difference is less than -1
+
+                            // check the number of consecutive voids at current location + distanceRight of Y
+                            int wall = location[1] + step[1];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[0], map.mapY);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dY + voids < 0) {
+                                // new direction is NW
+                                int distance = voids + step[1] - 1;
+                                heap.insert(new int[]{
+                                    location[0] - 1,
+                                    location[1] + distance
+                                },
+                                        3,
+                                        new int[]{
+                                            location[0] - 1,
+                                            location[1] - 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        lastStep[0] = step[0];
+                        lastStep[1] = step[1];
+                        diagonalDistance++;
+                    }
+                    break;
+
+                case 5: // direction = SW
+                    // initialize as the distance from this node to x and y voids
+                    lastStep = new int[]{
+                        scan.distanceLeft(location[0], location[1], map.mapX),
+                        scan.distanceRight(location[1], location[0], map.mapY)
+                    };
+
+                    while (lastStep[0] != 0 && (diagonalDistance == 0 || !budget.exhausted()) && (diagonalDistance < jumpCap || uncapped(location, -1, 1))) { // while the current location is walkable
+
+                        // check if the goal is directly reachable from this location
+                        if (heap.goal[0] == location[0]) {
+                            if (heap.goal[1] <= location[1] && heap.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[1] >= location[1] && heap.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        } else if (heap.goal[1] == location[1]) {
+                            if (heap.goal[0] <= location[0] && heap.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[0] >= location[0] && heap.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        }
+
+                        if (location[0] == 0 || location[1] == 255) {
+                            lastStep[0] = 0;   // The diagonal runs off the map.
+                            break;
+                        }
+                        // step = distances to x and y voids & properly increment/decrement location
+                        step[0] = scan.distanceLeft(--location[0], ++location[1], map.mapX);
+                        step[1] = scan.distanceRight(location[1], location[0], map.mapY);
+
+                        // difference between last and current distances
+                        int dX = step[0] - lastStep[0]; // should be -1
+
+                        if (dX >= 0) { // if x difference is greater than -1
+
+                            // check the number of consecutive voids at previous location - distanceLeft of X
+                            int wall = location[0] - lastStep[0] + 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[1] - 1, map.mapX);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dX - voids >= -1) {
+                                // new direction is NW
+                                int distance = voids + lastStep[0] - 2;
+                                heap.insert(new int[]{
+                                    location[0] - distance,//-voids-lastStep[0]+2,
+                                    location[1]
+                                },
+                                        7,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dX < -1) { // if x difference is less than -1
+
+                            // check the number of consecutive voids at current location - distanceLeft of X
+                            int wall = location[0] - step[0];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[1], map.mapX);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dX + voids < 0) {
+                                // new direction is NE
+                                int distance = voids + step[0] - 1;
+                                heap.insert(new int[]{
+                                    location[0] - distance,//-voids-step[0]+1,
+                                    location[1] - 1
+                                },
+                                        5,
+                                        new int[]{
+                                            location[0] + 1,
+                                            location[1] - 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        int dY = step[1] - lastStep[1]; // should be -1
+
+                        if (dY >= 0) { // if y difference is greater than -1
+
+                            // check the number of consecutive voids at previous location + distanceRight of Y
+                            int wall = location[1] + lastStep[1] - 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[0] + 1, map.mapY);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dY - voids >= -1) {
+                                // new direction is SE, need two waypoints
+                                int distance = voids + lastStep[1] - 2;
+                                heap.insert(new int[]{
+                                    location[0],
+                                    location[1] + distance
+                                },
+                                        3,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dY < -1) { // if y difference is less than -1
+
+                            // check the number of consecutive voids at current location + distanceRight of Y
+                            int wall = location[1] + step[1];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidRight(wall, location[0], map.mapY);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dY + voids < 0) {
+                                // new direction is NW, need two waypoints
+                                int distance = voids + step[1] - 1;
+                                heap.insert(new int[]{
+                                    location[0] + 1,
+                                    location[1] + distance
+                                },
+                                        5,
+                                        new int[]{
+                                            location[0] + 1,
+                                            location[1] - 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        lastStep[0] = step[0];
+                        lastStep[1] = step[1];
+                        diagonalDistance++;
+                    }
+                    break;
+
+                default: // direction = NW
+                    // initialize as the distance from this node to x and y voids
+                    lastStep = new int[]{
+                        scan.distanceLeft(location[0], location[1], map.mapX),
+                        scan.distanceLeft(location[1], location[0], map.mapY)
+                    };
+                    while (lastStep[0] != 0 && (diagonalDistance == 0 || !budget.exhausted()) && (diagonalDistance < jumpCap || uncapped(location, -1, -1))) { // while the current location is walkable
+
+                        // check if the goal is directly reachable from this location
+                        if (heap.goal[0] == location[0]) {
+                            if (heap.goal[1] <= location[1] && heap.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[1] >= location[1] && heap.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        } else if (heap.goal[1] == location[1]) {
+                            if (heap.goal[0] <= location[0] && heap.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            } else if (heap.goal[0] >= location[0] && heap.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
+                                next.mapNext = new JumpPoint(heap.goal, location, next, 0, 0, 0);
+                                next.mapNext.mapLast = next;
+                                searching = false;
+                                reachedGoal = true;
+                                return heap.retrace(end = next);
+                            }
+                        }
+
+                        if (location[0] == 0 || location[1] == 0) {
+                            lastStep[0] = 0;   // The diagonal runs off the map.
+                            break;
+                        }
+                        // step = distances to x and y voids & properly increment/decrement location
+                        step[0] = scan.distanceLeft(--location[0], --location[1], map.mapX);
+                        step[1] = scan.distanceLeft(location[1], location[0], map.mapY);
+
+                        // difference between last and current distances
+                        int dX = step[0] - lastStep[0]; // should be -1
+
+                        if (dX >= 0) { // if x difference is greater than -1
+
+                            // check the number of consecutive voids at previous location - distanceLeft of X
+                            int wall = location[0] - lastStep[0] + 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[1] + 1, map.mapX);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dX - voids >= -1) {
+                                // new direction is NW
+                                int distance = voids + lastStep[0] - 2;
+                                heap.insert(new int[]{
+                                    location[0] - distance,//-voids-lastStep[0]+2,
+                                    location[1]
+                                },
+                                        5,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dX < -1) { // if x difference is less than -1
+
+                            // check the number of consecutive voids at current location - distanceLeft of X
+                            int wall = location[0] - step[0];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[1], map.mapX);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dX + voids < 0) {
+                                // new direction is NE
+                                int distance = voids + step[0] - 1;
+                                heap.insert(new int[]{
+                                    location[0] - distance,//-voids-step[0]+1,
+                                    location[1] + 1
+                                },
+                                        7,
+                                        new int[]{
+                                            location[0] + 1,
+                                            location[1] + 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        int dY = step[1] - lastStep[1]; // should be -1
+
+                        if (dY >= 0) { // if y difference is greater than -1
+
+                            // check the number of consecutive voids at previous location - distanceLeft of Y
+                            int wall = location[1] - lastStep[1] + 1;
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[0] + 1, map.mapY);
+
+                            // if the new difference is -1 or greater, add a new Node to the queue
+                            if (dY - voids >= -1) {
+                                // new direction is SE
+                                int distance = voids + lastStep[1] - 2;
+                                heap.insert(new int[]{
+                                    location[0],
+                                    location[1] - distance//-voids-lastStep[1]+2
+                                },
+                                        1,
+                                        new int[]{
+                                            location[0],
+                                            location[1]
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+
+                        } else if (dY < -1) { // if y difference is less than -1
+
+                            // check the number of consecutive voids at current location - distanceLeft of Y
+                            int wall = location[1] - step[1];
+                            if ((wall & ~0xFF) != 0) {
+                                break;  // The wall runs to the edge of the map.
+                            }
+                            int voids = scan.distanceVoidLeft(wall, location[0], map.mapY);
+
+                            // if the new difference is less than 0, add a new Node to the queue
+                            if (dY + voids < 0) {
+                                // new direction is NW
+                                int distance = voids + step[1] - 1;
+                                heap.insert(new int[]{
+                                    location[0] + 1,
+                                    location[1] - distance//-voids-step[1]+1
+                                },
+                                        7,
+                                        new int[]{
+                                            location[0] + 1,
+                                            location[1] + 1
+                                        },
+                                        next,
+                                        distance + diagonalDistance);
+                            }
+                        }
+
+                        lastStep[0] = step[0];
+                        lastStep[1] = step[1];
+                        diagonalDistance++;
+                    }
+                    break;
+            }
+            
+                    
+            budget.charge();
+            if (lastStep[0] != 0) {
+                continued++;
+                int distance = heap.travel(next, new int[]{}, location, diagonalDistance);
+                heap.insert(new JumpPoint(new int[] {location[0],location[1]}, new int[]{}, next, next.direction, distance,
+                    heap.heuristic(location)+distance));
+            }
+            
+        }
+        searching = false;
+        end = null;
+        return null;
+    }
+}
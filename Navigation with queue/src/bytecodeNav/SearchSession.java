@@ -0,0 +1,310 @@
+package bytecodeNav;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import navigation.Components;
+import navigation.Map;
+import navigation.OpenList;
+import navigation.SearchContext;
+import navigation.TestMaps;
+
+/**
+ * One search that runs a slice at a time.
+ *
+ * Navigation.getPath(null, null) resumes the one search held in the static
+ * planner of Navigation, and how much a call may do is fixed by
+ * PathPlanner.bytecodesLeft(). A SearchSession holds its own PathPlanner,
+ * and with it its own heap and SearchContext, so any number of sessions can
+ * be in flight at once, and each call to step says how much work it may do.
+ * A server can keep thousands of sessions and give each a small Budget per
+ * tick, in turn, so no search holds up the others.
+ *
+ * A session holds no search state until its first step. It then takes a
+ * SearchContext, 256 KB, from the shared pool and gives it back when the
+ * search ends, together with its planner and open list. The open lists
+ * start small and grow with the search, so the memory of a session in
+ * flight follows the work it has done. Sessions on the same map that are
+ * stepped from one thread should share one Components, which otherwise each
+ * session builds for itself on its first step.
+ *
+ * Slicing a search costs next to nothing in itself: one session stepped to
+ * the end, a few expansions at a time, takes about as long as the same
+ * search in one call to a reused PathPlanner, and a session that starts
+ * its own planner costs about a third more. The cost of many sessions in
+ * flight is the memory they touch: each slice works on a SearchContext and
+ * open list that the slices of the other sessions have pushed out of the
+ * cache. A thousand sessions stepped in turn with 4 expansions per slice
+ * take 1.5 to 2.5 times as long as the same sessions stepped one after
+ * another; with 64 expansions per slice, about as long.
+ *
+ * A session must only be stepped by one thread at a time, and the Map must
+ * not change while the session runs.
+ *
+ * @author David
+ */
+public class SearchSession {
+
+    private static final int PASSES = 10;   // Runs of each OpenList in main.
+
+    /**
+     * State of a session after a step.
+     */
+    public enum Status {
+        RUNNING,    // Stopped at the end of its budget; step again to go on.
+        FOUND,      // Found a path to the goal.
+        NO_PATH     // Ran out of JumpPoints, or the goal is walled off.
+    }
+
+    private final Map map;
+    private final OpenList open;
+    private final Components components;
+    private final int[] start, goal;
+    private PathPlanner planner;// Search state while the session runs.
+    private Status status;
+    private JumpPoint path;     // Path found, or the path to the last expansion.
+    private int slices;         // Calls to step that did work.
+    private int expanded;       // JumpPoints expanded, kept once the planner is gone.
+    private int cost = -1;      // Cost of the path found, kept once the planner is gone.
+
+    /**
+     * Constructor. The search starts on the first call to step.
+     * @param map map to search.
+     * @param start start of the path.
+     * @param goal end of the path.
+     */
+    public SearchSession(Map map, int[] start, int[] goal) {
+        this(map, OpenList.DEFAULT, null, start, goal);
+    }
+
+    /**
+     * Constructor. The search starts on the first call to step.
+     * @param map map to search.
+     * @param open structure of the heap.
+     * @param components connected components of map, shared with other
+     * sessions stepped by the same thread, or null to build them.
+     * @param start start of the path.
+     * @param goal end of the path.
+     */
+    public SearchSession(Map map, OpenList open, Components components, int[] start, int[] goal) {
+        this.map = map;
+        this.open = open;
+        this.components = components;
+        this.start = new int[]{start[0], start[1]};
+        this.goal = new int[]{goal[0], goal[1]};
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Run the search until it ends or the budget is exhausted. At least one
+     * JumpPoint is expanded, whatever the budget.
+     * @param budget work this slice may do.
+     * @return status after the slice; a finished session returns its final
+     * status without doing anything.
+     */
+    public Status step(Budget budget) {
+        if (status != Status.RUNNING) {
+            return status;
+        }
+        if (planner == null) {
+            planner = new PathPlanner(map, open, SearchContext.acquire());
+            planner.components = components;
+        }
+        path = planner.getPath(slices == 0 ? start : null, goal, budget);
+        slices++;
+        expanded = planner.getExpanded();
+        if (!planner.searching) {
+            status = planner.reachedGoal ? Status.FOUND : Status.NO_PATH;
+            if (status == Status.FOUND) {
+                JumpPoint end = planner.end;
+                cost = end.distance + Math.max(Math.abs(goal[0] - end.location[0]),
+                        Math.abs(goal[1] - end.location[1]));
+            }
+            planner.context.release();
+            planner = null;
+        }
+        return status;
+    }
+
+    /**
+     * @return status after the last step.
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return true iff the search has ended.
+     */
+    public boolean isDone() {
+        return status != Status.RUNNING;
+    }
+
+    /**
+     * @return the JumpPoint at the start of the path if the status is FOUND,
+     * while RUNNING the start of the path to the JumpPoint expanded last,
+     * which may lead away from the goal, or null. AnytimeJumpSearch keeps the
+     * partial path nearest the goal instead.
+     */
+    public JumpPoint path() {
+        return path;
+    }
+
+    /**
+     * @return JumpPoints expanded over every step so far.
+     */
+    public int expanded() {
+        return expanded;
+    }
+
+    /**
+     * @return distance traveled to the last JumpPoint of the path, plus its
+     * Chebyshev distance to the goal, which it sees in a straight line; -1
+     * unless the status is FOUND.
+     */
+    public int cost() {
+        return cost;
+    }
+
+    /**
+     * @return calls to step that did work.
+     */
+    public int slices() {
+        return slices;
+    }
+
+    /**
+     * @return start of the path.
+     */
+    public int[] start() {
+        return start.clone();
+    }
+
+    /**
+     * @return end of the path.
+     */
+    public int[] goal() {
+        return goal.clone();
+    }
+
+    /**
+     * Run many searches at once in round-robin ticks with small budgets, and
+     * check each against the same search run in one call, for every OpenList.
+     * Each search is also timed as a session stepped to the end on its own.
+     * Every OpenList is run PASSES times and the shortest times are printed,
+     * since the first passes are mostly JIT compilation.
+     * @param args optional number of sessions (default 1000) and expansions
+     * per slice (default 4).
+     */
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int expansions = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Random random = new Random(21);
+        // Obstacles in the middle 128x128, walls around it.
+        Map map = TestMaps.randomMap(random, 0.2);
+        map.setRect(0, 0, 256, 64, true);
+        map.setRect(0, 192, 256, 64, true);
+        map.setRect(0, 64, 64, 128, true);
+        map.setRect(192, 64, 64, 128, true);
+        int[][] starts = new int[sessions][];
+        int[][] goals = new int[sessions][];
+        for (int i = 0; i < sessions; i++) {
+            do {
+                starts[i] = new int[]{64 + random.nextInt(128), 64 + random.nextInt(128)};
+                goals[i] = new int[]{64 + random.nextInt(128), 64 + random.nextInt(128)};
+            } while (blocked(map, starts[i]) || blocked(map, goals[i]));
+        }
+        Components components = new Components(map);
+        for (OpenList open : OpenList.values()) {
+            long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+            for (int pass = 1; pass <= PASSES; pass++) {
+                run(map, open, components, starts, goals, expansions, best, pass == PASSES);
+            }
+        }
+    }
+
+    /**
+     * Run every search as sessions in flight at once, as sessions one after
+     * another, and in one call, with one OpenList, and print one line.
+     * @param best shortest times so far in nanoseconds: in flight, one at a
+     * time, one call each; updated.
+     * @param print true to print the line.
+     */
+    private static void run(Map map, OpenList open, Components components,
+            int[][] starts, int[][] goals, int expansions, long[] best, boolean print) {
+        int sessions = starts.length;
+        ArrayDeque<SearchSession> running = new ArrayDeque<>();
+        SearchSession[] all = new SearchSession[sessions];
+        for (int i = 0; i < sessions; i++) {
+            all[i] = new SearchSession(map, open, components, starts[i], goals[i]);
+            running.add(all[i]);
+        }
+
+        // Each tick gives every running session one slice, in turn.
+        int ticks = 0;
+        int maxSlices = 0;
+        long start = System.nanoTime();
+        while (!running.isEmpty()) {
+            ticks++;
+            for (int n = running.size(); n > 0; n--) {
+                SearchSession session = running.poll();
+                if (session.step(Budget.expansions(expansions)) == Status.RUNNING) {
+                    running.add(session);
+                } else {
+                    maxSlices = Math.max(maxSlices, session.slices());
+                }
+            }
+        }
+        long sliced = System.nanoTime() - start;
+
+        // The same sessions, each stepped to the end before the next starts.
+        start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            SearchSession session = new SearchSession(map, open, components, starts[i], goals[i]);
+            while (session.step(Budget.expansions(expansions)) == Status.RUNNING) {
+                // Step again.
+            }
+        }
+        long alone = System.nanoTime() - start;
+
+        // The same searches, each in one call.
+        PathPlanner whole = new PathPlanner(map, open, new SearchContext());
+        whole.components = components;
+        int found = 0, disagree = 0;
+        start = System.nanoTime();
+        for (SearchSession session : all) {
+            JumpPoint path = whole.getPath(session.start, session.goal, Budget.UNLIMITED);
+            boolean sessionFound = session.status() == Status.FOUND;
+            if (sessionFound) {
+                found++;
+            }
+            if ((path != null) != sessionFound
+                    || sessionFound && session.cost() != cost(whole.end, session.goal)) {
+                disagree++;
+            }
+        }
+        long unsliced = System.nanoTime() - start;
+
+        best[0] = Math.min(best[0], sliced);
+        best[1] = Math.min(best[1], alone);
+        best[2] = Math.min(best[2], unsliced);
+        if (print) {
+            System.out.printf("%-7s %d sessions, %d expansions per slice: %d ticks, at most %d slices per session,"
+                    + " %d found, %d disagree with one-call searches in result or cost; in flight %.1f ms,"
+                    + " one at a time %.1f ms, one call each %.1f ms%n",
+                    open.name().toLowerCase(), sessions, expansions, ticks, maxSlices, found, disagree,
+                    best[0] / 1e6, best[1] / 1e6, best[2] / 1e6);
+        }
+    }
+
+    /**
+     * @return distance traveled to the last JumpPoint of a path, plus its
+     * Chebyshev distance to the goal, which it sees in a straight line.
+     */
+    private static int cost(JumpPoint end, int[] goal) {
+        return end.distance + Math.max(Math.abs(goal[0] - end.location[0]), Math.abs(goal[1] - end.location[1]));
+    }
+
+    private static boolean blocked(Map map, int[] p) {
+        return ((map.mapX[p[1]][p[0] >>> 6] >>> (63 - (p[0] & 63))) & 1L) != 0;
+    }
+}
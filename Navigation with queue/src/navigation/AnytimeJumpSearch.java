@@ -0,0 +1,355 @@
+package navigation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Anytime OctileJumpSearch in the manner of ARA*: a path quickly, then
+ * better ones.
+ *
+ * A search that runs out of budget in PathPlanner returns the trail to the
+ * jump point it expanded last, which may lead away from the goal. This
+ * search instead always holds the best path it knows of, and can be asked
+ * for it after any call to improve:
+ *
+ * - Before any path to the goal is found, the best path is the one to the
+ *   jump point nearest the goal by the heuristic, so a unit can start
+ *   moving the right way at once.
+ * - The first path to the goal comes from a weighted search, with f = g +
+ *   w * h and w > 1. It expands far fewer jump points than an optimal
+ *   search, and costs at most w times the optimal path.
+ * - Each later round lowers w by the decrement and searches again, reusing
+ *   the costs already found: as in ARA*, jump points whose cost improved
+ *   after their cell was closed are kept aside and go back on the open list
+ *   when the round ends, and nothing else is searched twice. A round only
+ *   replaces the path with a cheaper one.
+ * - The round with w = 1 is an ordinary A*; when it ends the path is
+ *   optimal and the search is done.
+ *
+ * Weights are in tenths, so a weight of 25 is w = 2.5. Moves follow the
+ * rules of OctileJumpSearch: eight directions, no corner cutting.
+ *
+ * @author David
+ */
+public class AnytimeJumpSearch extends OctileJumpSearch {
+
+    private final int initialWeight;    // Weight of the first round, in tenths.
+    private final int decrement;        // Decrease of the weight per round, in tenths.
+
+    private final int[] cellPoint;      // Jump point holding the best cost at each cell.
+    private final int[] cellStamp;      // Search that wrote each cellPoint entry.
+    private final int[] closedStamp;    // Round that closed each cell.
+    private int generation;             // Number of the current search.
+    private int round;                  // Number of the current round, over all searches.
+
+    private int[] incons = new int[256];// Jump points improved after their cell was closed.
+    private int inconsCount;
+
+    private int weight;                 // Weight of the current round, in tenths.
+    private int rounds;                 // Rounds finished in the current search.
+    private int solution;               // Jump point at the goal with the cheapest path, or -1.
+    private int nearest;                // Jump point nearest the goal by h, ties to lower g.
+    int last;                           // Jump point expanded last.
+    private boolean done;               // true once the path is optimal or there is none.
+
+    /**
+     * Constructor with a first weight of 3.0, lowered by 0.5 per round.
+     * @param map map to search.
+     */
+    public AnytimeJumpSearch(Map map) {
+        this(map, 30, 5);
+    }
+
+    /**
+     * Constructor.
+     * @param map map to search.
+     * @param weight weight of the first round in tenths, at least 10.
+     * @param decrement decrease of the weight per round in tenths, at least 1.
+     */
+    public AnytimeJumpSearch(Map map, int weight, int decrement) {
+        super(map);
+        if (weight < 10 || decrement < 1) {
+            throw new IllegalArgumentException("weight " + weight + ", decrement " + decrement);
+        }
+        initialWeight = weight;
+        this.decrement = decrement;
+        cellPoint = new int[65536];
+        cellStamp = new int[65536];
+        closedStamp = new int[65536];
+    }
+
+    /**
+     * Search for a shortest path in one call: every round, to the optimal path.
+     * @return index of the jump point at the goal, or -1 if there is no path.
+     */
+    @Override
+    public int search(int start, int goal) {
+        start(start, goal);
+        improve(Integer.MAX_VALUE);
+        return solution;
+    }
+
+    /**
+     * Begin a search. No jump point is expanded until improve is called.
+     * @param start packed start point, y << 8 | x.
+     * @param goal packed goal point, y << 8 | x.
+     */
+    public void start(int start, int goal) {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(cellStamp, 0);
+            generation = 1;
+        }
+        nextRound();
+        count = 0;
+        size = 0;
+        expanded = 0;
+        inconsCount = 0;
+        weight = initialWeight;
+        rounds = 0;
+        solution = -1;
+        done = false;
+        goalX = goal & 0xFF;
+        goalY = goal >>> 8;
+
+        int sx = start & 0xFF;
+        int sy = start >>> 8;
+        int first = create(sx, sy, 0, weighted(0, heuristic(sx, sy)), -1, -1, -1);
+        cellStamp[start] = generation;
+        cellPoint[start] = first;
+        nearest = first;
+        last = first;
+        if (start == goal) {
+            solution = first;
+        }
+        push(first);
+    }
+
+    /**
+     * Continue the search.
+     * @param expansions greatest number of jump points to expand in this call.
+     * @return true iff the search is done: the best path is optimal, or
+     * there is no path.
+     */
+    public boolean improve(int expansions) {
+        while (!done && expansions > 0) {
+            if (size == 0 || (solution != -1 && !before(heap[0], solution))) {
+                endRound();     // Nothing left on the open list can beat the path.
+                continue;
+            }
+            int next = pop();
+            int px = x[next];
+            int py = y[next];
+            int index = py << 8 | px;
+            if (cellPoint[index] != next || closedStamp[index] == round) {
+                continue;   // A cheaper route to this cell was found later.
+            }
+            closedStamp[index] = round;
+            expanded++;
+            expansions--;
+            last = next;
+            successors(next);
+        }
+        return done;
+    }
+
+    /**
+     * Finish the current round. If it was the round with weight 1, or no
+     * path exists, the search is done. Otherwise lower the weight, put the
+     * jump points kept aside back on the open list, and order every open
+     * jump point by the new weight.
+     */
+    private void endRound() {
+        rounds++;
+        if (weight == 10 || solution == -1) {
+            done = true;
+            return;
+        }
+        weight = Math.max(10, weight - decrement);
+        nextRound();
+
+        int open = 0;
+        for (int i = 0; i < size; i++) {
+            if (current(heap[i])) {
+                heap[open++] = heap[i];
+            }
+        }
+        for (int i = 0; i < inconsCount; i++) {
+            if (current(incons[i])) {
+                heap[open++] = incons[i];
+            }
+        }
+        inconsCount = 0;
+        size = 0;
+        int[] points = Arrays.copyOf(heap, open);
+        for (int jp : points) {
+            f[jp] = weighted(g[jp], heuristic(x[jp], y[jp]));
+            push(jp);
+        }
+    }
+
+    private void nextRound() {
+        if (++round == Integer.MAX_VALUE) {
+            Arrays.fill(closedStamp, 0);
+            round = 1;
+        }
+    }
+
+    /**
+     * @return true if jump point jp still holds the best cost of its cell.
+     */
+    private boolean current(int jp) {
+        return cellPoint[y[jp] << 8 | x[jp]] == jp;
+    }
+
+    /**
+     * Create a jump point unless its cell already has a route at least as
+     * cheap. A jump point at the goal becomes the solution at once. A cell
+     * closed in this round gets the jump point kept aside for the next round
+     * instead of put on the open list.
+     */
+    @Override
+    void insert(int nx, int ny, int from, int d, int cost) {
+        int index = ny << 8 | nx;
+        int gNew = g[from] + cost;
+        if (cellStamp[index] == generation && g[cellPoint[index]] <= gNew) {
+            return;
+        }
+        int h = heuristic(nx, ny);
+        int jp = create(nx, ny, gNew, weighted(gNew, h), d, from, -1);
+        cellStamp[index] = generation;
+        cellPoint[index] = jp;
+        int hNearest = heuristic(x[nearest], y[nearest]);
+        if (h < hNearest || (h == hNearest && gNew < g[nearest])) {
+            nearest = jp;
+        }
+        if (nx == goalX && ny == goalY) {
+            solution = jp;  // Cheaper than any path to the goal before it.
+        } else if (closedStamp[index] == round) {
+            if (inconsCount == incons.length) {
+                incons = Arrays.copyOf(incons, inconsCount * 2);
+            }
+            incons[inconsCount++] = jp;
+        } else {
+            push(jp);
+        }
+    }
+
+    private int weighted(int gValue, int h) {
+        return gValue + (int) ((long) h * weight / 10);
+    }
+
+    /**
+     * @return jump point at the end of the best path known: the cheapest
+     * path to the goal if one has been found, otherwise the path to the jump
+     * point nearest the goal.
+     */
+    public int best() {
+        return solution != -1 ? solution : nearest;
+    }
+
+    /**
+     * @return true iff best() ends at the goal.
+     */
+    public boolean complete() {
+        return solution != -1;
+    }
+
+    /**
+     * @return true iff the search is done.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return weight of the current round, in tenths.
+     */
+    public int weight() {
+        return weight;
+    }
+
+    /**
+     * @return rounds finished so far in this search.
+     */
+    public int rounds() {
+        return rounds;
+    }
+
+    /**
+     * @return cost of the best path to the goal, or -1 if none is known.
+     */
+    public int cost() {
+        return solution == -1 ? -1 : g[solution];
+    }
+
+    /**
+     * Compare the anytime search with OctileJumpSearch on random maps: the
+     * first path against the optimal one in cost and expansions, the final
+     * path in cost, and the best partial path after a few expansions
+     * against the trail to the last expanded jump point.
+     * @param args optional number of queries (default 2000).
+     */
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random random = new Random(22);
+        int solved = 0, wrong = 0, worse = 0, partials = 0, nearer = 0;
+        long firstExpanded = 0, optimalExpanded = 0, totalExpanded = 0;
+        double firstRatio = 0, worstRatio = 1;
+        for (int q = 0; q < queries; q++) {
+            if (q % 100 == 0) {
+                random.setSeed(q);
+            }
+            Map map = TestMaps.randomMap(random, (q / 100) % 4 * 0.1);
+            int start = TestMaps.randomOpen(random, map.mapX);
+            int goal = TestMaps.randomOpen(random, map.mapX);
+
+            OctileJumpSearch optimal = new OctileJumpSearch(map);
+            int end = optimal.search(start, goal);
+            if (end == -1) {
+                continue;
+            }
+            int best = optimal.g[end];
+            optimalExpanded += optimal.getExpanded();
+
+            AnytimeJumpSearch anytime = new AnytimeJumpSearch(map);
+            anytime.start(start, goal);
+            anytime.improve(8);
+            if (!anytime.complete()) {
+                // The partial path after 8 expansions against the trail to
+                // the last jump point expanded, which getPath would return.
+                partials++;
+                int last = anytime.last;
+                int b = anytime.best();
+                if (anytime.heuristic(anytime.x[b], anytime.y[b])
+                        < anytime.heuristic(anytime.x[last], anytime.y[last])) {
+                    nearer++;
+                }
+            }
+            while (!anytime.complete() && !anytime.improve(1)) {
+            }
+            solved++;
+            firstExpanded += anytime.getExpanded();
+            double ratio = anytime.cost() / (double) best;
+            firstRatio += ratio;
+            worstRatio = Math.max(worstRatio, ratio);
+            int cost = anytime.cost();
+            while (!anytime.improve(16)) {
+                if (anytime.cost() > cost) {
+                    worse++;
+                }
+                cost = anytime.cost();
+            }
+            totalExpanded += anytime.getExpanded();
+            if (anytime.cost() != best) {
+                wrong++;
+            }
+        }
+        System.out.printf("%d solved: first path %.3f x optimal (worst %.3f) after %.1f expansions,"
+                + " optimal A* %.1f, all rounds %.1f; final cost differs from optimal %d,"
+                + " cost rose between rounds %d; partial path nearer the goal than the last"
+                + " expanded jump point %d of %d%n",
+                solved, firstRatio / solved, worstRatio, firstExpanded / (double) solved,
+                optimalExpanded / (double) solved, totalExpanded / (double) solved,
+                wrong, worse, nearer, partials);
+    }
+}
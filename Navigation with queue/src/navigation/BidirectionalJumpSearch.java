@@ -0,0 +1,377 @@
+package navigation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * OctileJumpSearch run from both ends at once.
+ *
+ * A forward search from the start and a backward search from the goal take
+ * turns, the one with the shorter open list expanding next. Each treats the
+ * other's start as its goal. Moves are symmetric under the rules of
+ * OctileJumpSearch, so the backward search finds paths from the goal that
+ * are valid in reverse.
+ *
+ * The frontiers meet on cells, not only on jump points, since the jump
+ * points of the two searches rarely fall on the same cell. Every jump
+ * either search inserts marks each cell it crosses with the cost of getting
+ * there, and a cell marked by both sides gives a path whose cost is the sum
+ * of the two marks. The cheapest such cost mu is kept. Jump points whose f
+ * is at least mu are not inserted, and the search ends once the smallest f
+ * on either open list reaches mu. Each open list holds a jump point on an
+ * optimal path with f at most the optimal cost, so the path through the
+ * meeting cell is then optimal.
+ *
+ * The result is one chain of jump points in the arrays of this search: the
+ * forward chain to the meeting cell, then the backward chain reversed, each
+ * turn a jump point. search returns its last index like
+ * OctileJumpSearch.search, and path and getPath work on it unchanged.
+ * getExpanded counts the jump points expanded by both sides.
+ *
+ * A jump point the other side has already closed is not expanded. Its cell
+ * was marked by both sides when it was inserted, so mu already covers every
+ * path through it, and expanding it would only push the frontier past the
+ * meeting point.
+ *
+ * This stopping rule keeps paths optimal but cannot stop before one side
+ * has done most of the work of a whole OctileJumpSearch, so on queries with
+ * an open route it expands somewhat more jump points than OctileJumpSearch
+ * (5 to 17% more on the random maps in main, though about a fifth fewer on
+ * the Moving AI rooms scenarios in ScenarioBenchmark). The gain is where one end
+ * is walled into a small region: its side runs out of jump points at once,
+ * and the search reports no path after a dozen expansions instead of
+ * flooding the map from the other end. Use it where goals are often
+ * unreachable, such as targets behind doors or inside buildings.
+ *
+ * @author David
+ */
+public class BidirectionalJumpSearch extends OctileJumpSearch {
+
+    private final Frontier forward, backward;
+    private int stamp;          // Number of the current search, shared by both sides.
+
+    private int best;           // mu: cost of the cheapest path through a meeting cell.
+    private int meeting;        // Packed meeting cell of that path, or -1.
+
+    public BidirectionalJumpSearch(Map map) {
+        this(map, ScanEngine.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     * @param map map to search; its bit arrays may be replaced between searches.
+     * @param scan implementation of the bit scans.
+     */
+    public BidirectionalJumpSearch(Map map, ScanEngine scan) {
+        super(map, scan);
+        forward = new Frontier(map, scan);
+        backward = new Frontier(map, scan);
+        forward.other = backward;
+        backward.other = forward;
+    }
+
+    /**
+     * Search for a shortest path from both ends.
+     * @param start packed start point, y << 8 | x.
+     * @param goal packed goal point, y << 8 | x.
+     * @return index of the jump point at the goal, or -1 if there is no path
+     * or either end is blocked.
+     */
+    @Override
+    public int search(int start, int goal) {
+        count = 0;
+        size = 0;
+        expanded = 0;
+        goalX = goal & 0xFF;
+        goalY = goal >>> 8;
+        if (blocked(start & 0xFF, start >>> 8) || blocked(goalX, goalY)) {
+            return -1;
+        }
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(forward.markStamp, 0);
+            Arrays.fill(backward.markStamp, 0);
+            stamp = 1;
+        }
+        best = Integer.MAX_VALUE;
+        meeting = -1;
+        forward.mark(start, 0, forward.begin(start, goal));
+        backward.mark(goal, 0, backward.begin(goal, start));
+
+        while (forward.size != 0 && backward.size != 0) {
+            if (Math.max(forward.f[forward.heap[0]], backward.f[backward.heap[0]]) >= best) {
+                break;  // Neither side can find anything cheaper than mu.
+            }
+            Frontier side = forward.size <= backward.size ? forward : backward;
+            int next = side.pop();
+            // Nodes the other side has closed are already counted in mu.
+            if (side.close(next) && side.other.visited.get(side.y[next] << 8 | side.x[next]) != -1) {
+                side.successors(next);
+            }
+        }
+        expanded = forward.expanded + backward.expanded;
+        return meeting == -1 ? -1 : stitch();
+    }
+
+    /**
+     * Build the path in this search's arrays: the forward chain to the
+     * meeting cell, then the backward chain from it in reverse.
+     * @return index of the jump point at the goal.
+     */
+    private int stitch() {
+        int[] chain = new int[64];
+        int n = 0;
+        for (int jp = forward.markFrom[meeting]; jp != -1; jp = forward.parent[jp]) {
+            if (n == chain.length) {
+                chain = Arrays.copyOf(chain, 2 * n);
+            }
+            chain[n++] = forward.y[jp] << 8 | forward.x[jp];
+        }
+        int last = -1;
+        int lastCell = -1;
+        while (n > 0) {
+            last = link(chain[--n], last, lastCell);
+            lastCell = chain[n];
+        }
+        for (int jp = backward.markFrom[meeting], cell = meeting; ; jp = backward.parent[jp]) {
+            if (cell != lastCell) {
+                last = link(cell, last, lastCell);
+                lastCell = cell;
+            }
+            if (jp == -1) {
+                return last;
+            }
+            cell = backward.y[jp] << 8 | backward.x[jp];
+        }
+    }
+
+    /**
+     * Append a jump point at a cell to the stitched chain, one straight or
+     * diagonal line on from the previous one.
+     */
+    private int link(int cell, int from, int fromCell) {
+        int cx = cell & 0xFF;
+        int cy = cell >>> 8;
+        int gNew = from == -1 ? 0 : g[from] + stepCost(fromCell, cell);
+        int d = from == -1 ? -1 : compass(Integer.signum(cx - (fromCell & 0xFF)), Integer.signum(cy - (fromCell >>> 8)));
+        return create(cx, cy, gNew, gNew + heuristic(cx, cy), d, from, -1);
+    }
+
+    /**
+     * @return cost of the straight or diagonal line between two cells.
+     */
+    static int stepCost(int a, int b) {
+        int dx = Math.abs((a & 0xFF) - (b & 0xFF));
+        int dy = Math.abs((a >>> 8) - (b >>> 8));
+        return dx != 0 && dy != 0 ? DIAGONAL * dx : STRAIGHT * (dx + dy);
+    }
+
+    /**
+     * @return cost of the path found by the last search, or -1 if none.
+     */
+    public int cost() {
+        return meeting == -1 ? -1 : best;
+    }
+
+    /**
+     * One side of the search. Each jump it inserts marks the cells crossed
+     * with their cost from this side's start and the jump point they were
+     * reached from, and meets the other side on any cell it has marked.
+     */
+    private final class Frontier extends OctileJumpSearch {
+
+        Frontier other;
+        final int[] mark = new int[65536];      // Cheapest cost of each marked cell.
+        final int[] markFrom = new int[65536];  // Jump point whose jump marked it.
+        final int[] markStamp = new int[65536]; // Search that wrote each mark.
+
+        Frontier(Map map, ScanEngine scan) {
+            super(map, scan);
+        }
+
+        @Override
+        void insert(int nx, int ny, int from, int d, int cost) {
+            int dx = DX[d];
+            int dy = DY[d];
+            int step = dx != 0 && dy != 0 ? DIAGONAL : STRAIGHT;
+            int cx = x[from];
+            int cy = y[from];
+            int gCell = g[from];
+            do {
+                cx += dx;
+                cy += dy;
+                gCell += step;
+                mark(cy << 8 | cx, gCell, from);
+            } while (cx != nx || cy != ny);
+            if (gCell + heuristic(nx, ny) < best) {
+                super.insert(nx, ny, from, d, cost);
+            }
+        }
+
+        /**
+         * Mark a cell reached from a jump point, and meet the other side there.
+         */
+        void mark(int cell, int cost, int from) {
+            if (markStamp[cell] != stamp || cost < mark[cell]) {
+                markStamp[cell] = stamp;
+                mark[cell] = cost;
+                markFrom[cell] = from;
+            }
+            if (other.markStamp[cell] == stamp && cost + other.mark[cell] < best) {
+                best = cost + other.mark[cell];
+                meeting = cell;
+            }
+        }
+    }
+
+    /**
+     * Compare with OctileJumpSearch on 128x128 maps inside a 256x256 array:
+     * path costs, jump points expanded, and time. Each query crosses the map
+     * between opposite corners. In the open case both ends are walkable; in
+     * the pocket case the goal is walled into a 7x7 room, so there is no
+     * path.
+     * @param args optional number of queries per row (default 500).
+     */
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        System.out.printf("%-6s %7s %8s %10s %10s %9s %9s%n",
+                "case", "density", "mismatch", "uni exp", "bi exp", "uni us", "bi us");
+        for (int density = 0; density <= 30; density += 10) {
+            Random random = new Random(25 + density);
+            Map map = new Map(128, 128);
+            for (int y = 0; y < 256; y++) {
+                for (int x = 0; x < 256; x++) {
+                    if (x < 64 || x >= 192 || y < 64 || y >= 192 || random.nextInt(100) < density) {
+                        map.mapX[y][x >>> 6] |= 1L << (63 - (x & 63));
+                    }
+                }
+            }
+            map.syncColumns();
+            int[][] ends = ends(map, queries, random);
+            compare("open", density, map, ends, false);
+            compare("pocket", density, map, ends, true);
+        }
+    }
+
+    /**
+     * Walkable starts near one corner and goals near the opposite one.
+     * @return starts, then goals.
+     */
+    private static int[][] ends(Map map, int queries, Random random) {
+        int[][] ends = new int[2][queries];
+        for (int i = 0; i < queries; i++) {
+            do {
+                int sx = 64 + random.nextInt(24);
+                int gx = 168 + random.nextInt(24);
+                if (random.nextBoolean()) {
+                    sx = 255 - sx;
+                    gx = 255 - gx;
+                }
+                ends[0][i] = (64 + random.nextInt(24)) << 8 | sx;
+                ends[1][i] = (168 + random.nextInt(24)) << 8 | gx;
+            } while (Map.isSet(ends[0][i] & 0xFF, ends[0][i] >>> 8, map.mapX)
+                    || Map.isSet(ends[1][i] & 0xFF, ends[1][i] >>> 8, map.mapX));
+        }
+        return ends;
+    }
+
+    /**
+     * Run every query with both searches and print one row.
+     * @param pocket true to wall in the goal of each query while it runs.
+     */
+    private static void compare(String name, int density, Map map, int[][] ends, boolean pocket) {
+        OctileJumpSearch uni = new OctileJumpSearch(map);
+        BidirectionalJumpSearch bi = new BidirectionalJumpSearch(map);
+        int[] buffer = new int[65536];
+        int[] walls = new int[32];
+        int queries = ends[0].length;
+        int mismatch = 0;
+        long uniExpanded = 0, biExpanded = 0, uniTime = 0, biTime = 0;
+        for (int pass = 0; pass < 2; pass++) {     // The first pass warms up.
+            mismatch = 0;
+            uniExpanded = biExpanded = uniTime = biTime = 0;
+            for (int i = 0; i < queries; i++) {
+                int start = ends[0][i];
+                int goal = ends[1][i];
+                int walled = pocket ? ring(map, goal, walls) : 0;
+                long t0 = System.nanoTime();
+                int a = uni.search(start, goal);
+                long t1 = System.nanoTime();
+                int b = bi.search(start, goal);
+                long t2 = System.nanoTime();
+                uniTime += t1 - t0;
+                biTime += t2 - t1;
+                uniExpanded += uni.getExpanded();
+                biExpanded += bi.getExpanded();
+                if ((a == -1 ? -1 : uni.g[a]) != bi.cost() || (a == -1) != (b == -1)
+                        || b != -1 && !valid(bi, b, start, goal, buffer)) {
+                    mismatch++;
+                }
+                for (int k = 0; k < walled; k++) {
+                    flip(map, walls[k] & 0xFF, walls[k] >>> 8);
+                }
+            }
+        }
+        System.out.printf("%-6s %6d%% %8d %10.1f %10.1f %9.1f %9.1f%n", name, density, mismatch,
+                uniExpanded / (double) queries, biExpanded / (double) queries,
+                uniTime / 1e3 / queries, biTime / 1e3 / queries);
+    }
+
+    /**
+     * Block the open cells four steps from a goal, walling it into a 7x7 room.
+     * @param changed buffer for the packed cells blocked.
+     * @return number of cells blocked.
+     */
+    private static int ring(Map map, int goal, int[] changed) {
+        int n = 0;
+        for (int i = -4; i <= 4; i++) {
+            for (int[] c : new int[][] { {i, -4}, {i, 4}, {-4, i}, {4, i} }) {
+                int x = (goal & 0xFF) + c[0];
+                int y = (goal >>> 8) + c[1];
+                if (!Map.isSet(x, y, map.mapX)) {
+                    flip(map, x, y);
+                    changed[n++] = y << 8 | x;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Toggle one cell in both bit arrays.
+     */
+    private static void flip(Map map, int x, int y) {
+        map.mapX[y][x >>> 6] ^= 1L << (63 - (x & 63));
+        map.mapY[x][y >>> 6] ^= 1L << (63 - (y & 63));
+    }
+
+    /**
+     * @return true iff the stitched chain runs from start to goal along
+     * straight and diagonal lines of walkable cells that cut no corners, and
+     * its g at the goal is mu.
+     */
+    private static boolean valid(BidirectionalJumpSearch search, int end, int start, int goal, int[] buffer) {
+        int n = search.path(end, buffer);
+        if (buffer[0] != start || buffer[n - 1] != goal || search.g[end] != search.cost()) {
+            return false;
+        }
+        for (int i = 1; i < n; i++) {
+            int cx = buffer[i - 1] & 0xFF;
+            int cy = buffer[i - 1] >>> 8;
+            int tx = buffer[i] & 0xFF;
+            int ty = buffer[i] >>> 8;
+            int dx = Integer.signum(tx - cx);
+            int dy = Integer.signum(ty - cy);
+            if (dx != 0 && dy != 0 && Math.abs(tx - cx) != Math.abs(ty - cy)) {
+                return false;
+            }
+            while (cx != tx || cy != ty) {
+                if (search.blocked(cx + dx, cy + dy) || search.blocked(cx + dx, cy) || search.blocked(cx, cy + dy)) {
+                    return false;
+                }
+                cx += dx;
+                cy += dy;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package navigation;
+
+import java.util.Arrays;
+
+/**
+ * Set of occupied buckets for a bucket queue over small non-negative integer
+ * keys, stored as one bit per key.
+ *
+ * Adding or removing a key sets or clears one bit. The lowest occupied key is
+ * found by scanning forward from the lowest word that may hold a set bit,
+ * using Long.numberOfTrailingZeros inside the first non-zero word. A search
+ * with a consistent heuristic pops keys in non-decreasing order, so the scan
+ * only ever moves forward and finding the minimum is constant time amortized
+ * over the search. Keys lower than the current minimum are still allowed; the
+ * scan simply restarts from them.
+ *
+ * @author David
+ */
+public class BucketIndex {
+
+    private long[] occupied;    // Bit k is set iff bucket k is non-empty.
+    private int cursor;         // No word below this one has a set bit.
+    private int limit;          // No word at or above this one has a set bit.
+
+    /**
+     * Constructor
+     * @param capacity number of keys to allocate room for; grows on demand.
+     */
+    public BucketIndex(int capacity) {
+        occupied = new long[Math.max(1, (capacity + 63) >>> 6)];
+        cursor = Integer.MAX_VALUE;
+        limit = 0;
+    }
+
+    /**
+     * @return number of keys the index can hold without growing.
+     */
+    public int capacity() {
+        return occupied.length << 6;
+    }
+
+    /**
+     * Make room for a key, at least doubling the capacity if it has to grow.
+     * @param key the largest key that will be added.
+     * @return the new capacity.
+     */
+    public int ensureCapacity(int key) {
+        if (key >= capacity()) {
+            int words = Math.max(occupied.length * 2, (key >>> 6) + 1);
+            occupied = Arrays.copyOf(occupied, words);
+        }
+        return capacity();
+    }
+
+    /**
+     * Mark a bucket as non-empty.
+     * @param key bucket number, less than capacity().
+     */
+    public void add(int key) {
+        int word = key >>> 6;
+        occupied[word] |= 1L << key;
+        if (word < cursor) {
+            cursor = word;
+        }
+        if (word >= limit) {
+            limit = word + 1;
+        }
+    }
+
+    /**
+     * Mark a bucket as empty.
+     * @param key bucket number, less than capacity().
+     */
+    public void remove(int key) {
+        occupied[key >>> 6] &= ~(1L << key);
+    }
+
+    /**
+     * @return the lowest non-empty bucket, or -1 if every bucket is empty.
+     */
+    public int first() {
+        for (; cursor < limit; cursor++) {
+            long word = occupied[cursor];
+            if (word != 0) {
+                return cursor << 6 | Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mark every bucket as empty. Only the words that may hold a set bit are
+     * touched.
+     */
+    public void clear() {
+        for (int i = Math.min(cursor, limit); i < limit; i++) {
+            occupied[i] = 0;
+        }
+        cursor = Integer.MAX_VALUE;
+        limit = 0;
+    }
+}
@@ -0,0 +1,122 @@
+package navigation;
+
+import java.util.Arrays;
+
+/**
+ * Queue for Jump Point Search that keeps its Nodes in one bucket per score.
+ *
+ * Scores are distances to the goal under a CostModel, so they are small
+ * non-negative integers and each score can index its own bucket. Offering a
+ * Node is constant time, instead of the linear walk through the sorted list
+ * in Queue.add, and popping one is a bit scan in a BucketIndex.
+ *
+ * The Nodes come out in the same order as from Queue, so both expand the same
+ * Nodes. Each bucket is a stack, as Queue puts a Node in front of those with
+ * the same score. The front field holds the Node popped next, taken from the
+ * buckets when the one before it is popped; like the front of a Queue, it is
+ * not displaced by a Node offered after that with a lower score.
+ *
+ * @author David
+ */
+public class BucketQueue extends Queue {
+
+    private final BucketIndex occupied; // Buckets holding at least one Node.
+    private Node[] heads;               // Node offered last to each bucket.
+
+    /**
+     * Constructor
+     * @param start start coordinates.
+     * @param goal end coordinates.
+     */
+    public BucketQueue(int[] start, int[] goal) {
+        this(start, goal, new SearchContext());
+    }
+
+    /**
+     * Constructor reusing the visited cells of an earlier search.
+     * @param start start coordinates.
+     * @param goal end coordinates.
+     * @param context record of visited cells; a new generation is started.
+     */
+    public BucketQueue(int[] start, int[] goal, SearchContext context) {
+        this(start, goal, context, CostModel.CHEBYSHEV);
+    }
+
+    /**
+     * Constructor with a choice of cost model for the heuristic.
+     * @param start start coordinates.
+     * @param goal end coordinates.
+     * @param context record of visited cells; a new generation is started.
+     * @param cost model behind the heuristic.
+     */
+    public BucketQueue(int[] start, int[] goal, SearchContext context, CostModel cost) {
+        super(start, goal, context, cost);
+        occupied = new BucketIndex(256);
+        heads = new Node[occupied.capacity()];
+
+        // Move the start Nodes behind the front, already in order, into their
+        // buckets, last first so that they keep their order.
+        Node[] rest = new Node[3];
+        int count = 0;
+        for (Node node = front.queueNext; node != null; node = node.queueNext) {
+            rest[count++] = node;
+        }
+        front.queueNext = null;
+        while (count > 0) {
+            Node node = rest[--count];
+            node.queueNext = null;
+            add(node);
+        }
+    }
+
+    /**
+     * Remove the front Node, and take the newest Node in the lowest non-empty
+     * bucket as the next front.
+     * @return the front Node, or null if the queue is empty.
+     */
+    @Override
+    public Node pop() {
+        Node top = front;
+        if (top == null) {
+            return null;
+        }
+        int score = occupied.first();
+        if (score == -1) {
+            front = null;
+        } else {
+            front = heads[score];
+            heads[score] = front.queueNext;
+            if (front.queueNext == null) {
+                occupied.remove(score);
+            }
+            front.queueNext = null;
+        }
+        if (top.mapLast == null) {
+            firstDiagonal = false;
+        }
+        return top;
+    }
+
+    /**
+     * Make a Node the front of an empty queue, or push it onto the bucket for
+     * its score.
+     * @param node Node to insert.
+     */
+    @Override
+    protected void add(Node node) {
+        if (front == null) {
+            front = node;
+            return;
+        }
+        int score = node.score;
+        if (score >= heads.length) {
+            int capacity = occupied.ensureCapacity(score);
+            heads = Arrays.copyOf(heads, capacity);
+        }
+        if (heads[score] == null) {
+            occupied.add(score);
+        }
+        node.queueNext = heads[score];
+        heads[score] = node;
+    }
+}
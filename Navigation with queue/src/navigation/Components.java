@@ -0,0 +1,532 @@
+package navigation;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Connected components of the walkable cells of a map, to tell at once
+ * whether a goal can be reached at all.
+ *
+ * Cells are connected through any of their 8 neighbours, diagonals included,
+ * as in Navigation.getPath. Every search in this package moves under these
+ * rules or stricter ones, so two cells in different components are never
+ * joined by a path any of them can find.
+ *
+ * Labels are built from runs of walkable cells rather than single cells.
+ * The runs of a row are read from the words of ~mapX with leading-zero
+ * counts, each run becomes a union-find node, and it is joined with every
+ * run of the previous row it touches, diagonally included. Each cell then
+ * stores the node of its run.
+ *
+ * Changes to the map are applied cell by cell:
+ *
+ * - A cell that becomes walkable gets a node of its own, joined with its
+ *   walkable neighbours. This is exact.
+ * - A cell that becomes blocked may split its component. If its walkable
+ *   neighbours still touch each other around it, nothing can split and the
+ *   labels stay valid. Otherwise they are rebuilt on the next query.
+ *
+ * The labels keep a copy of the mapX they reflect and the Map version it
+ * was taken at. A query at the same version and on the same mapX array does
+ * no work. Otherwise it compares the copy with the words Map.changedSince
+ * reports, or with all 1024 words if mapX was replaced or Map.changed() was
+ * called, and applies the cells that differ. Changes made with
+ * Map.setBlocked, clear, setRect or applyBatch are therefore picked up;
+ * code that writes mapX directly must call Map.changed() afterwards, or the
+ * change is not seen. A query rebuilds instead if more than MAX_WORDS words
+ * differ. update applies one cell at once, so the next query finds nothing
+ * to do for it. Only mapX is read; a write to mapY alone is not seen.
+ *
+ * Every cell that becomes walkable takes a new union-find node, so a long
+ * run of changes without a rebuild would grow the node arrays without
+ * bound. Once MAX_NODES nodes are in use, the next such cell makes the
+ * labels stale instead, and the rebuild starts again from one node per run.
+ * A Components must only be used by one thread at a time.
+ *
+ * @author David
+ */
+public class Components {
+
+    public static final int BLOCKED = 0;    // Label of a blocked cell.
+    public static final int MAX_WORDS = 32; // Changed words applied without a rebuild.
+    public static final int MAX_NODES = 65536;  // Nodes in use before a rebuild; a build needs at most 32769.
+
+    private final Map map;
+    private final int[] label;      // Union-find node of each cell, y << 8 | x.
+    private int[] parent;           // Union-find parent of each node; node 0 is unused.
+    private int nodes;              // Nodes in use, including node 0.
+    private final long[][] known = new long[256][4]; // Copy of the mapX the labels reflect.
+    private long[][] knownSource;   // The mapX array the copy was taken from.
+    private int knownVersion;       // Map version the copy was taken at.
+    private final int[] words = new int[MAX_WORDS];  // Words found changed by a query.
+    private boolean stale;          // true iff a split may have been missed.
+    private int builds;             // Number of full builds.
+
+    /**
+     * Constructor. Labels are built on the first query.
+     * @param map map to label.
+     */
+    public Components(Map map) {
+        this.map = map;
+        label = new int[65536];
+        parent = new int[4096];
+        stale = true;
+    }
+
+    /**
+     * Start from labels read from elsewhere, for example a cache file, instead
+     * of building them.
+     * @param map map to label; its mapX must be the one the labels were
+     * built for.
+     * @param labels 65536 labels in the layout returned by labels().
+     */
+    public Components(Map map, IntBuffer labels) {
+        if (labels.remaining() != 65536) {
+            throw new IllegalArgumentException("expected 65536 labels, got " + labels.remaining());
+        }
+        this.map = map;
+        label = new int[65536];
+        labels.duplicate().get(label);
+        int max = 0;
+        for (int l : label) {
+            max = Math.max(max, l);
+        }
+        if (max >= MAX_NODES) {
+            throw new IllegalArgumentException("label " + max + " out of range");
+        }
+        nodes = max + 1;
+        parent = new int[Math.max(4096, nodes)];
+        for (int i = 0; i < nodes; i++) {
+            parent[i] = i;
+        }
+        for (int y = 0; y < 256; y++) {
+            System.arraycopy(map.mapX[y], 0, known[y], 0, 4);
+        }
+        knownSource = map.mapX;
+        knownVersion = map.version;
+    }
+
+    /**
+     * @param a packed point, y << 8 | x.
+     * @param b packed point, y << 8 | x.
+     * @return false iff both points are walkable and no path joins them.
+     */
+    public boolean connected(int a, int b) {
+        refresh();
+        int la = label[a];
+        int lb = label[b];
+        return la == BLOCKED || lb == BLOCKED || la == lb || find(la) == find(lb);
+    }
+
+    /**
+     * @param a start coordinates.
+     * @param b end coordinates.
+     * @return false iff both points are walkable and no path joins them.
+     */
+    public boolean connected(int[] a, int[] b) {
+        return connected(a[1] << 8 | a[0], b[1] << 8 | b[0]);
+    }
+
+    /**
+     * @param x x-coordinate of a cell.
+     * @param y y-coordinate of a cell.
+     * @return a label shared by exactly the cells of one component, or
+     * BLOCKED. Labels change when the map does.
+     */
+    public int label(int x, int y) {
+        refresh();
+        int l = label[y << 8 | x];
+        return l == BLOCKED ? BLOCKED : find(l);
+    }
+
+    /**
+     * @return the label of every cell, y << 8 | x, as label(x, y) returns
+     * it, in a new read-only buffer.
+     */
+    public IntBuffer labels() {
+        refresh();
+        int[] roots = new int[65536];
+        for (int i = 0; i < 65536; i++) {
+            roots[i] = label[i] == BLOCKED ? BLOCKED : find(label[i]);
+        }
+        return IntBuffer.wrap(roots).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return number of full builds so far.
+     */
+    public int builds() {
+        return builds;
+    }
+
+    /**
+     * Apply a change of one cell. Call it after writing the cell to the map,
+     * once for every cell written, and after Map.changed().
+     * @param x x-coordinate of the cell.
+     * @param y y-coordinate of the cell.
+     */
+    public void update(int x, int y) {
+        if (stale) {
+            return;     // Rebuilt from scratch on the next query anyway.
+        }
+        apply(x, y);
+    }
+
+    /**
+     * Bring the label of one cell in line with the map.
+     */
+    private void apply(int x, int y) {
+        int index = y << 8 | x;
+        boolean blocked = Map.isSet(x, y, map.mapX);
+        long bit = 1L << (63 - (x & 63));
+        known[y][x >>> 6] = blocked ? known[y][x >>> 6] | bit : known[y][x >>> 6] & ~bit;
+        if (blocked == (label[index] == BLOCKED)) {
+            return;
+        }
+        if (!blocked) {
+            if (nodes == MAX_NODES) {
+                stale = true;   // The rebuild compacts the nodes.
+                return;
+            }
+            int node = node();
+            label[index] = node;
+            for (int i = 0; i < 8; i++) {
+                int n = neighbour(x, y, i);
+                if (n != -1 && label[n] != BLOCKED) {
+                    union(node, label[n]);  // Neighbours still to be applied join later.
+                }
+            }
+            return;
+        }
+        label[index] = BLOCKED;
+        if (!joinedAround(x, y)) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Bring the labels in line with the map, rebuilding them if needed.
+     */
+    private void refresh() {
+        if (!stale) {
+            if (map.mapX == knownSource && map.version == knownVersion) {
+                return;
+            }
+            catchUp();
+        }
+        if (stale) {
+            build();
+        }
+    }
+
+    /**
+     * Apply the cells of every word of mapX changed since the copy was taken
+     * that differs from it, or mark the labels stale if there are too many.
+     */
+    private void catchUp() {
+        long[][] mapX = map.mapX;
+        boolean all = mapX != knownSource || map.allChangedSince(knownVersion);
+        int count = 0;
+        for (int i = 0; i < 1024; i++) {
+            int y = i >>> 2;
+            int w = i & 3;
+            if ((all || map.changedSince(knownVersion, y, w)) && mapX[y][w] != known[y][w]) {
+                if (count == MAX_WORDS) {
+                    stale = true;
+                    return;
+                }
+                words[count++] = i;
+            }
+        }
+        for (int k = 0; k < count && !stale; k++) {
+            int y = words[k] >>> 2;
+            int w = words[k] & 3;
+            long diff = known[y][w] ^ mapX[y][w];
+            while (diff != 0) {
+                int b = Long.numberOfLeadingZeros(diff);
+                diff &= ~(1L << (63 - b));
+                apply(w << 6 | b, y);
+            }
+        }
+        knownSource = mapX;
+        knownVersion = map.version;
+    }
+
+    /**
+     * Label every cell from the runs of each row.
+     */
+    private void build() {
+        long[][] mapX = map.mapX;
+        for (int y = 0; y < 256; y++) {
+            System.arraycopy(mapX[y], 0, known[y], 0, 4);
+        }
+        knownSource = mapX;
+        knownVersion = map.version;
+        stale = false;
+        builds++;
+        nodes = 1;
+        int[] previous = new int[258];  // Runs of the last row: start, end, node.
+        int[] current = new int[258];
+        int previousCount = 0;
+        for (int y = 0; y < 256; y++) {
+            long[] row = mapX[y];
+            int count = 0;
+            int x = 0;
+            while (x < 256) {
+                int start = skip(row, x, true);     // First walkable cell.
+                if (start == 256) {
+                    break;
+                }
+                int end = skip(row, start, false);  // First blocked cell after it.
+                int node = node();
+                current[count++] = start;
+                current[count++] = end - 1;
+                current[count++] = node;
+                Arrays.fill(label, (y << 8) + start, (y << 8) + end, node);
+                x = end;
+            }
+            // Join runs of the two rows that touch, diagonals included.
+            for (int i = 0, j = 0; i < count && j < previousCount; ) {
+                int start = current[i], end = current[i + 1];
+                int prevStart = previous[j], prevEnd = previous[j + 1];
+                if (prevStart <= end + 1 && prevEnd >= start - 1) {
+                    union(current[i + 2], previous[j + 2]);
+                }
+                if (prevEnd < end) {
+                    j += 3;
+                } else {
+                    i += 3;
+                }
+            }
+            clearGaps(y, current, count);
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+            previousCount = count;
+        }
+        for (int i = 0; i < 65536; i++) {
+            if (label[i] != BLOCKED) {
+                label[i] = find(label[i]);
+            }
+        }
+    }
+
+    /**
+     * Mark the cells of a row between its runs as blocked.
+     */
+    private void clearGaps(int y, int[] runs, int count) {
+        int x = 0;
+        for (int i = 0; i < count; i += 3) {
+            Arrays.fill(label, (y << 8) + x, (y << 8) + runs[i], BLOCKED);
+            x = runs[i + 1] + 1;
+        }
+        Arrays.fill(label, (y << 8) + x, (y + 1) << 8, BLOCKED);
+    }
+
+    /**
+     * @return the first x from x onward whose cell is walkable (if walkable)
+     * or blocked (if not), or 256.
+     */
+    private static int skip(long[] row, int x, boolean walkable) {
+        while (x < 256) {
+            int w = x >>> 6;
+            long bits = walkable ? ~row[w] : row[w];
+            bits &= -1L >>> (x & 63);               // Cells at and after x.
+            if (bits != 0) {
+                return (w << 6) + Long.numberOfLeadingZeros(bits);
+            }
+            x = (w + 1) << 6;
+        }
+        return 256;
+    }
+
+    /**
+     * True if the walkable neighbours of a cell are connected to each other
+     * without passing through it, so blocking it splits nothing.
+     */
+    private boolean joinedAround(int x, int y) {
+        // Neighbours in compass order; consecutive ones touch, and so do two
+        // straight neighbours a quarter turn apart.
+        boolean[] open = new boolean[8];
+        int count = 0;
+        for (int i = 0; i < 8; i++) {
+            open[i] = neighbour(x, y, i) != -1;
+            if (open[i]) {
+                count++;
+            }
+        }
+        if (count <= 1) {
+            return true;
+        }
+        int groups = 0;
+        boolean[] seen = new boolean[8];
+        for (int i = 0; i < 8; i++) {
+            if (open[i] && !seen[i]) {
+                groups++;
+                mark(open, seen, i);
+            }
+        }
+        return groups == 1;
+    }
+
+    private static void mark(boolean[] open, boolean[] seen, int i) {
+        seen[i] = true;
+        int[] touching = (i & 1) == 0
+                ? new int[] { (i + 1) & 7, (i + 7) & 7, (i + 2) & 7, (i + 6) & 7 }
+                : new int[] { (i + 1) & 7, (i + 7) & 7 };
+        for (int j : touching) {
+            if (open[j] && !seen[j]) {
+                mark(open, seen, j);
+            }
+        }
+    }
+
+    /**
+     * @return index of the walkable neighbour of (x, y) in compass direction
+     * i, or -1 if it is blocked or off the map.
+     */
+    private int neighbour(int x, int y, int i) {
+        int nx = x + OctileJumpSearch.DX[i];
+        int ny = y + OctileJumpSearch.DY[i];
+        if (((nx | ny) & ~0xFF) != 0 || Map.isSet(nx, ny, map.mapX)) {
+            return -1;
+        }
+        return ny << 8 | nx;
+    }
+
+    private int node() {
+        if (nodes == parent.length) {
+            parent = Arrays.copyOf(parent, nodes * 2);
+        }
+        parent[nodes] = nodes;
+        return nodes++;
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];    // Path halving.
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a != b) {
+            parent[Math.max(a, b)] = Math.min(a, b);
+        }
+    }
+
+    /**
+     * Check labels against a flood fill on random maps, with cells blocked
+     * and cleared between checks, and time the builds.
+     * @param args optional number of maps, 30 by default.
+     */
+    public static void main(String[] args) {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        Random random = new Random(9);
+        int mismatches = 0, updates = 0;
+        long buildNanos = 0;
+        int rebuilds = 0;
+
+        for (int m = 0; m < maps; m++) {
+            Map map = TestMaps.randomMap(random, 0.2 + (m % 5) / 20.0);
+            Components components = new Components(map);
+            long start = System.nanoTime();
+            components.label(0, 0);
+            buildNanos += System.nanoTime() - start;
+
+            for (int round = 0; round < 20; round++) {
+                int before = components.builds();
+                for (int k = 0; k < 10; k++) {
+                    int x = random.nextInt(256);
+                    int y = random.nextInt(256);
+                    if (round % 3 == 0) {
+                        // Direct writes, each followed by an update.
+                        map.mapX[y][x/64] ^= 1L << (63-(x % 64));
+                        map.mapY[x][y/64] ^= 1L << (63-(y % 64));
+                        map.changed();
+                        components.update(x, y);
+                    } else if (round % 3 == 1) {
+                        // Direct writes and changed(), without update.
+                        map.mapX[y][x/64] ^= 1L << (63-(x % 64));
+                        map.mapY[x][y/64] ^= 1L << (63-(y % 64));
+                        map.changed();
+                    } else if (Map.isSet(x, y, map.mapX)) {
+                        map.clear(x, y);    // Picked up on the next query.
+                    } else {
+                        map.setBlocked(x, y);
+                    }
+                    updates++;
+                }
+                if (!matches(components, map)) {
+                    mismatches++;
+                }
+                rebuilds += components.builds() - before;
+            }
+        }
+        System.out.printf("%d maps, %d mismatches, %d updates, %d rebuilds: %.3f ms per build%n",
+                maps, mismatches, updates, rebuilds, buildNanos / 1e6 / maps);
+
+        // Reopening a cell that splits nothing takes a node each time; the
+        // node count must stop at MAX_NODES with one rebuild.
+        Map open = new Map(128, 128);
+        Components components = new Components(open);
+        components.label(0, 0);
+        for (int i = 0; i < MAX_NODES; i++) {
+            open.setBlocked(128, 128);
+            components.label(0, 0);
+            open.clear(128, 128);
+            components.label(0, 0);
+        }
+        System.out.printf("open map: %d reopenings, %d builds, %d nodes, labels %s%n", MAX_NODES,
+                components.builds(), components.nodes, matches(components, open) ? "match" : "differ");
+    }
+
+    /**
+     * @return true iff two cells share a label exactly when a flood fill
+     * joins them.
+     */
+    private static boolean matches(Components components, Map map) {
+        int[] fill = new int[65536];
+        int[] queue = new int[65536];
+        int next = 0;
+        int[] labelOf = new int[65536 + 1];     // Flood fill number -> label.
+        for (int s = 0; s < 65536; s++) {
+            if (fill[s] != 0 || Map.isSet(s & 0xFF, s >>> 8, map.mapX)) {
+                continue;
+            }
+            int id = ++next;
+            int head = 0, tail = 0;
+            fill[s] = id;
+            queue[tail++] = s;
+            labelOf[id] = components.label(s & 0xFF, s >>> 8);
+            while (head < tail) {
+                int c = queue[head++];
+                if (components.label(c & 0xFF, c >>> 8) != labelOf[id]) {
+                    return false;
+                }
+                for (int i = 0; i < 8; i++) {
+                    int nx = (c & 0xFF) + OctileJumpSearch.DX[i];
+                    int ny = (c >>> 8) + OctileJumpSearch.DY[i];
+                    if (((nx | ny) & ~0xFF) == 0 && !Map.isSet(nx, ny, map.mapX)
+                            && fill[ny << 8 | nx] == 0) {
+                        fill[ny << 8 | nx] = id;
+                        queue[tail++] = ny << 8 | nx;
+                    }
+                }
+            }
+        }
+        // Distinct fills must have distinct labels.
+        HashSet<Integer> labels = new HashSet<>();
+        for (int id = 1; id <= next; id++) {
+            if (!labels.add(labelOf[id])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
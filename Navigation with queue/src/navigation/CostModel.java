@@ -0,0 +1,83 @@
+package navigation;
+
+/**
+ * Cost of moving across the grid, and the matching heuristic.
+ *
+ * A route between two jump points is a run of straight steps and a run of
+ * diagonal steps. cost(dx, dy) is the cost of the cheapest such route
+ * covering dx columns and dy rows. Every search scores jump points with
+ * g(n) built from cost() and h(n) = cost() to the goal, which is admissible
+ * and consistent because it is exactly the cost of the route with no
+ * obstacles in the way.
+ *
+ * - CHEBYSHEV: every step costs 1. The model the searches were written for.
+ * - OCTILE:    straight steps cost STRAIGHT and diagonal steps DIAGONAL, an
+ *              integer approximation of STRAIGHT * sqrt(2) that is slightly
+ *              too large, so the heuristic stays admissible and consistent.
+ *              OctileJumpSearch, TiledJumpSearch and DStarLite use the same
+ *              two costs.
+ * - MANHATTAN: a diagonal step costs as much as the two straight steps it
+ *              replaces, so paths avoid diagonals unless they save distance.
+ *
+ * The default is read from the system property "navigation.cost"
+ * ("chebyshev", "octile" or "manhattan") and falls back to CHEBYSHEV.
+ *
+ * @author David
+ */
+public enum CostModel {
+
+    CHEBYSHEV {
+        @Override
+        public int cost(int dx, int dy) {
+            return Math.max(Math.abs(dx), Math.abs(dy));
+        }
+    },
+
+    OCTILE {
+        @Override
+        public int cost(int dx, int dy) {
+            dx = Math.abs(dx);
+            dy = Math.abs(dy);
+            return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT) * Math.min(dx, dy);
+        }
+    },
+
+    MANHATTAN {
+        @Override
+        public int cost(int dx, int dy) {
+            return Math.abs(dx) + Math.abs(dy);
+        }
+    };
+
+    public static final int STRAIGHT = 70;  // OCTILE cost of a straight step.
+    public static final int DIAGONAL = 99;  // OCTILE cost of a diagonal step, 70 * 1.41428.
+
+    /**
+     * Model used by a search that is not given one explicitly.
+     */
+    public static final CostModel DEFAULT = fromProperty(System.getProperty("navigation.cost"));
+
+    private static CostModel fromProperty(String value) {
+        for (CostModel model : values()) {
+            if (model.name().equalsIgnoreCase(value)) {
+                return model;
+            }
+        }
+        return CHEBYSHEV;
+    }
+
+    /**
+     * Cost of the cheapest unobstructed route across dx columns and dy rows.
+     * @param dx difference in x, either sign.
+     * @param dy difference in y, either sign.
+     * @return the cost, also the heuristic for a goal that far away.
+     */
+    public abstract int cost(int dx, int dy);
+
+    /**
+     * @return cost(b - a) for two points given as {x, y}.
+     */
+    public int between(int[] a, int[] b) {
+        return cost(b[0] - a[0], b[1] - a[1]);
+    }
+}
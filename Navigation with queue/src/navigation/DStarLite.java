@@ -0,0 +1,501 @@
+package navigation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Incremental shortest paths to one goal for a unit that moves while the
+ * map changes: D* Lite (Koenig and Likhachev) over the cells of a Map.
+ *
+ * The search runs backward from the goal, so g of a cell is its cost to the
+ * goal, and rhs is the one-step lookahead of g from its neighbours. Both are
+ * kept between calls. When the unit moves, only the key modifier km grows;
+ * when cells change, only the cells whose edges changed are put back on the
+ * queue. replan then repairs g around the changes until the unit's own cell
+ * is consistent again, so its cost follows the size of the change and not
+ * the length of the path.
+ *
+ * Changes are read from the Map itself, not passed in: the planner keeps a
+ * copy of the rows it last planned on, and replan compares it with every
+ * word that Map.changedSince reports. setBlocked, clear, setRect and
+ * applyBatch are therefore all picked up. Writes straight into mapX are
+ * picked up after Map.changed().
+ *
+ * Moves and costs are those of OctileJumpSearch: eight directions, STRAIGHT
+ * and DIAGONAL step costs, and no diagonal step past a blocked cell, so g of
+ * the unit's cell equals the cost of the path OctileJumpSearch finds.
+ * Directions use the compass of Navigation.move: north = 0, clockwise.
+ *
+ * @author David
+ */
+public class DStarLite {
+
+    public static final int NONE = -1;          // No step: at the goal, or no path.
+    static final int INFINITY = Integer.MAX_VALUE / 4;
+
+    private final Map map;
+    private final long[][] known = new long[256][4];    // Rows the values were computed on.
+    private long[][] knownSource;   // Map.mapX array that known copies.
+    private int knownVersion;       // Map version that known copies.
+
+    private final int[] g = new int[65536];
+    private final int[] rhs = new int[65536];
+    private final long[] key = new long[65536];     // Queue key of each queued cell.
+    private final int[] position = new int[65536];  // Index of each cell in the queue, or -1.
+    private final int[] queue = new int[65536];     // Binary heap of cells by key.
+    private int size;
+
+    private int start;              // Cell of the unit, y << 8 | x.
+    private int goal = -1;          // Cell of the goal, or -1 before the first search.
+    private int last;               // Cell of the unit when km was last raised.
+    private int km;                 // Sum of the heuristic distances the unit has moved.
+    private int expanded;           // Cells removed from the queue by the last repair.
+    private int changed;            // Cells found changed by the last replan.
+
+    /**
+     * Constructor.
+     * @param map map to plan on.
+     */
+    public DStarLite(Map map) {
+        this.map = map;
+    }
+
+    /**
+     * @return the Map this planner reads.
+     */
+    public Map getMap() {
+        return map;
+    }
+
+    /**
+     * Plan from scratch.
+     * @param start packed cell of the unit, y << 8 | x.
+     * @param goal packed goal cell, y << 8 | x.
+     * @return true iff there is a path.
+     */
+    public boolean start(int start, int goal) {
+        this.start = start;
+        this.goal = goal;
+        last = start;
+        km = 0;
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        Arrays.fill(position, -1);
+        size = 0;
+        snapshot();
+        changed = 0;
+        rhs[goal] = 0;
+        push(goal, keyOf(goal));
+        repair();
+        return g[start] < INFINITY;
+    }
+
+    /**
+     * Move the unit and repair the plan for every change to the map since
+     * the last call.
+     * @param position packed cell the unit is now on.
+     * @return true iff there is a path from it.
+     */
+    public boolean replan(int position) {
+        if (goal == -1) {
+            throw new IllegalStateException("replan before start");
+        }
+        if (position != start) {
+            km += heuristic(last, position);
+            last = position;
+            start = position;
+        }
+        changed = 0;
+        if (map.mapX != knownSource || map.allChangedSince(knownVersion)) {
+            for (int i = 0; i < 1024; i++) {
+                sync(i >>> 2, i & 3);
+            }
+        } else {
+            for (int i = 0; i < 1024; i++) {
+                if (map.changedSince(knownVersion, i >>> 2, i & 3)) {
+                    sync(i >>> 2, i & 3);
+                }
+            }
+        }
+        knownSource = map.mapX;
+        knownVersion = map.version;
+        repair();
+        return g[start] < INFINITY;
+    }
+
+    /**
+     * Copy the map and forget any earlier copy.
+     */
+    private void snapshot() {
+        for (int y = 0; y < 256; y++) {
+            System.arraycopy(map.mapX[y], 0, known[y], 0, 4);
+        }
+        knownSource = map.mapX;
+        knownVersion = map.version;
+    }
+
+    /**
+     * Bring one word of the copy up to date. Each cell that changed alters
+     * the edges to its neighbours and the diagonal edges past its corners;
+     * all of them end at the cell or one of its neighbours, whose rhs are
+     * recomputed.
+     */
+    private void sync(int y, int word) {
+        long diff = known[y][word] ^ map.mapX[y][word];
+        if (diff == 0) {
+            return;
+        }
+        known[y][word] = map.mapX[y][word];
+        while (diff != 0) {
+            int x = word << 6 | Long.numberOfLeadingZeros(diff);
+            diff &= ~(1L << (63 - (x & 63)));
+            changed++;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if (((nx | ny) & ~0xFF) == 0) {
+                        update(ny << 8 | nx);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * ComputeShortestPath: expand cells until the unit's cell is consistent
+     * and no queued key is below its own.
+     */
+    private void repair() {
+        expanded = 0;
+        while (size != 0 && (key[queue[0]] < keyOf(start) || rhs[start] != g[start])) {
+            int u = queue[0];
+            long old = key[u];
+            long now = keyOf(u);
+            expanded++;
+            if (old < now) {
+                move(u, now);
+            } else if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                remove(u);
+                updateNeighbours(u);
+            } else {
+                g[u] = INFINITY;
+                update(u);
+                updateNeighbours(u);
+            }
+        }
+    }
+
+    private void updateNeighbours(int u) {
+        int x = u & 0xFF;
+        int y = u >>> 8;
+        for (int d = 0; d < 8; d++) {
+            int nx = x + OctileJumpSearch.DX[d];
+            int ny = y + OctileJumpSearch.DY[d];
+            if (((nx | ny) & ~0xFF) == 0) {
+                update(ny << 8 | nx);
+            }
+        }
+    }
+
+    /**
+     * UpdateVertex: recompute rhs of a cell from its neighbours and queue
+     * the cell if it is inconsistent.
+     */
+    private void update(int u) {
+        if (u != goal) {
+            int best = INFINITY;
+            int x = u & 0xFF;
+            int y = u >>> 8;
+            for (int d = 0; d < 8; d++) {
+                int c = cost(x, y, d);
+                if (c < INFINITY) {
+                    int v = (y + OctileJumpSearch.DY[d]) << 8 | (x + OctileJumpSearch.DX[d]);
+                    best = Math.min(best, c + g[v]);
+                }
+            }
+            rhs[u] = Math.min(best, INFINITY);
+        }
+        if (g[u] != rhs[u]) {
+            if (position[u] == -1) {
+                push(u, keyOf(u));
+            } else {
+                move(u, keyOf(u));
+            }
+        } else if (position[u] != -1) {
+            remove(u);
+        }
+    }
+
+    /**
+     * @return cost of one step from (x, y) in direction d, or INFINITY if
+     * either cell is blocked or off the map, or the step cuts a corner.
+     */
+    private int cost(int x, int y, int d) {
+        int dx = OctileJumpSearch.DX[d];
+        int dy = OctileJumpSearch.DY[d];
+        if (blocked(x, y) || blocked(x + dx, y + dy)) {
+            return INFINITY;
+        }
+        if (dx != 0 && dy != 0) {
+            return blocked(x + dx, y) || blocked(x, y + dy) ? INFINITY : OctileJumpSearch.DIAGONAL;
+        }
+        return OctileJumpSearch.STRAIGHT;
+    }
+
+    private boolean blocked(int x, int y) {
+        return ((x | y) & ~0xFF) != 0 || ((known[y][x >>> 6] >>> (63 - (x & 63))) & 1L) != 0;
+    }
+
+    /**
+     * @return the two-part key of a cell packed into a long, first part high.
+     */
+    private long keyOf(int u) {
+        int m = Math.min(g[u], rhs[u]);
+        long first = m >= INFINITY ? INFINITY : m + heuristic(start, u) + km;
+        return first << 32 | m;
+    }
+
+    /**
+     * Octile distance between two cells in units of STRAIGHT.
+     */
+    static int heuristic(int a, int b) {
+        int dx = Math.abs((a & 0xFF) - (b & 0xFF));
+        int dy = Math.abs((a >>> 8) - (b >>> 8));
+        return OctileJumpSearch.STRAIGHT * Math.max(dx, dy)
+                + (OctileJumpSearch.DIAGONAL - OctileJumpSearch.STRAIGHT) * Math.min(dx, dy);
+    }
+
+    /**
+     * Direction of the cheapest step from a cell toward the goal.
+     * @param cell packed cell, y << 8 | x.
+     * @return compass direction, or NONE at the goal or where there is no path.
+     */
+    public int next(int cell) {
+        if (cell == goal || g[cell] >= INFINITY && rhs[cell] >= INFINITY) {
+            return NONE;
+        }
+        int x = cell & 0xFF;
+        int y = cell >>> 8;
+        int best = INFINITY;
+        int direction = NONE;
+        for (int d = 0; d < 8; d++) {
+            int c = cost(x, y, d);
+            if (c < INFINITY) {
+                int v = (y + OctileJumpSearch.DY[d]) << 8 | (x + OctileJumpSearch.DX[d]);
+                if (c + g[v] < best) {
+                    best = c + g[v];
+                    direction = d;
+                }
+            }
+        }
+        return direction;
+    }
+
+    /**
+     * Write the current path from the unit to the goal.
+     * @param out buffer for packed cells, start first.
+     * @return number of cells written, or -1 if there is no path.
+     */
+    public int path(int[] out) {
+        if (g[start] >= INFINITY) {
+            return -1;
+        }
+        int n = 0;
+        int cell = start;
+        out[n++] = cell;
+        while (cell != goal && n < out.length) {
+            int d = next(cell);
+            if (d == NONE) {
+                return -1;
+            }
+            cell = ((cell >>> 8) + OctileJumpSearch.DY[d]) << 8 | ((cell & 0xFF) + OctileJumpSearch.DX[d]);
+            out[n++] = cell;
+        }
+        return n;
+    }
+
+    /**
+     * @return cost of the path from the unit to the goal, in STRAIGHT units
+     * per step, or -1 if there is no path.
+     */
+    public int cost() {
+        return g[start] >= INFINITY ? -1 : g[start];
+    }
+
+    /**
+     * @return packed goal cell, or -1 before the first search.
+     */
+    public int goal() {
+        return goal;
+    }
+
+    /**
+     * @return cells removed from the queue by the last start or replan.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return cells found changed by the last replan.
+     */
+    public int getChanged() {
+        return changed;
+    }
+
+    private void push(int u, long k) {
+        key[u] = k;
+        position[u] = size;
+        queue[size++] = u;
+        up(position[u]);
+    }
+
+    private void move(int u, long k) {
+        long old = key[u];
+        key[u] = k;
+        if (k < old) {
+            up(position[u]);
+        } else {
+            down(position[u]);
+        }
+    }
+
+    private void remove(int u) {
+        int i = position[u];
+        position[u] = -1;
+        int tail = queue[--size];
+        if (i == size) {
+            return;
+        }
+        queue[i] = tail;
+        position[tail] = i;
+        up(i);
+        down(position[tail]);
+    }
+
+    private void up(int i) {
+        int u = queue[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = queue[parent];
+            if (key[p] <= key[u]) {
+                break;
+            }
+            queue[i] = p;
+            position[p] = i;
+            i = parent;
+        }
+        queue[i] = u;
+        position[u] = i;
+    }
+
+    private void down(int i) {
+        int u = queue[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && key[queue[child + 1]] < key[queue[child]]) {
+                child++;
+            }
+            int c = queue[child];
+            if (key[u] <= key[c]) {
+                break;
+            }
+            queue[i] = c;
+            position[c] = i;
+            i = child;
+        }
+        queue[i] = u;
+        position[u] = i;
+    }
+
+    /**
+     * Walk a unit to its goal on a map it only learns as it goes: it sees
+     * the obstacles within a few cells of itself, writes them into its Map,
+     * and replans before every step. Each replan is checked against an
+     * OctileJumpSearch on the same Map, and its work is compared with
+     * planning from scratch.
+     * @param args optional number of walks (default 20).
+     */
+    public static void main(String[] args) {
+        int walks = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int sight = 3;
+        Random random = new Random(24);
+        long replans = 0, repaired = 0, scratch = 0, changes = 0, steps = 0;
+        int wrong = 0, arrived = 0;
+        long repairTime = 0, scratchTime = 0;
+        int[] buffer = new int[65536];
+        for (int w = 0; w < walks; w++) {
+            long[][] truth = TestMaps.random(random, 0.25);
+            int start, goal;
+            do {
+                start = TestMaps.randomOpen(random, truth);
+                goal = TestMaps.randomOpen(random, truth);
+            } while (heuristic(start, goal) < 70 * 100);
+
+            Map seen = new Map(128, 128);       // What the unit knows.
+            DStarLite planner = new DStarLite(seen);
+            DStarLite fresh = new DStarLite(seen);
+            OctileJumpSearch check = new OctileJumpSearch(seen);
+            reveal(seen, truth, start, sight);
+            planner.start(start, goal);
+            int here = start;
+            for (int s = 0; s < 4096 && here != goal; s++) {
+                reveal(seen, truth, here, sight);
+                long t0 = System.nanoTime();
+                boolean path = planner.replan(here);
+                long t1 = System.nanoTime();
+                fresh.start(here, goal);
+                long t2 = System.nanoTime();
+                repairTime += t1 - t0;
+                scratchTime += t2 - t1;
+                replans++;
+                repaired += planner.getExpanded();
+                scratch += fresh.getExpanded();
+                changes += planner.getChanged();
+                int end = check.search(here, goal);
+                if ((end == -1 ? -1 : check.g[end]) != planner.cost()) {
+                    wrong++;
+                }
+                if (!path) {
+                    break;
+                }
+                int d = planner.next(here);
+                here = ((here >>> 8) + OctileJumpSearch.DY[d]) << 8 | ((here & 0xFF) + OctileJumpSearch.DX[d]);
+                steps++;
+            }
+            if (here == goal) {
+                arrived++;
+            }
+            planner.path(buffer);
+        }
+        System.out.printf("%d walks, %d arrived, %d steps, %d replans, %d cost mismatches against"
+                + " OctileJumpSearch; per replan: %.1f cells changed, %.1f cells expanded (%.3f ms)"
+                + " against %.1f (%.3f ms) from scratch%n",
+                walks, arrived, steps, replans, wrong, changes / (double) replans,
+                repaired / (double) replans, repairTime / 1e6 / replans,
+                scratch / (double) replans, scratchTime / 1e6 / replans);
+    }
+
+    /**
+     * Copy the cells of truth within sight of a cell into a Map.
+     */
+    private static void reveal(Map map, long[][] truth, int cell, int sight) {
+        int cx = cell & 0xFF;
+        int cy = cell >>> 8;
+        for (int y = Math.max(0, cy - sight); y <= Math.min(255, cy + sight); y++) {
+            for (int x = Math.max(0, cx - sight); x <= Math.min(255, cx + sight); x++) {
+                boolean blocked = Map.isSet(x, y, truth);
+                if (blocked != Map.isSet(x, y, map.mapX)) {
+                    if (blocked) {
+                        map.setBlocked(x, y);
+                    } else {
+                        map.clear(x, y);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package navigation;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Step distances from one or more sources to every cell of a map, found by a
+ * breadth-first wavefront over the bit arrays.
+ *
+ * A step moves to any of the 8 neighbouring cells, as in the diagonal
+ * searches, so the distance is the number of Chebyshev steps around
+ * obstacles. Diagonal steps may pass between two blocked cells, as they may
+ * in Navigation.getPath.
+ *
+ * The wavefront is kept as a bit array like mapX. Each wave spreads it one
+ * cell along its rows with two shifts per word, then one row up and down by
+ * OR-ing neighbouring rows, and masks the result with the walkable cells not
+ * reached yet. Only the rows the wavefront spans are touched, so a wave costs
+ * at most about 16 word operations per row, whatever the number of cells in
+ * it. No priority queue or per-cell queue is needed; cells are only visited
+ * one by one to record their distance.
+ *
+ * @author David
+ */
+public class DistanceField {
+
+    public static final int UNREACHABLE = -1;
+
+    private final short[] distance;     // Steps from the nearest source, y << 8 | x.
+    private final int radius;           // Largest distance of a reachable cell.
+
+    /**
+     * Build the distance field of one source.
+     * @param map map to measure.
+     * @param source packed source point, y << 8 | x.
+     */
+    public DistanceField(Map map, int source) {
+        this(map, new int[] { source });
+    }
+
+    /**
+     * Build the distance field of several sources; each cell gets its
+     * distance to the nearest one. Blocked sources are ignored.
+     * @param map map to measure.
+     * @param sources packed source points, y << 8 | x.
+     */
+    public DistanceField(Map map, int[] sources) {
+        distance = new short[65536];
+        Arrays.fill(distance, (short) UNREACHABLE);
+        radius = spread(map.mapX, sources, Integer.MAX_VALUE, distance, new long[1024]);
+    }
+
+    /**
+     * Copy distances read from elsewhere, for example a cache file.
+     * @param distances 65536 distances in the layout returned by distances().
+     */
+    public DistanceField(ShortBuffer distances) {
+        if (distances.remaining() != 65536) {
+            throw new IllegalArgumentException("expected 65536 distances, got " + distances.remaining());
+        }
+        distance = new short[65536];
+        distances.duplicate().get(distance);
+        int max = UNREACHABLE;
+        for (short d : distance) {
+            max = Math.max(max, d);
+        }
+        radius = max;
+    }
+
+    /**
+     * @param x x-coordinate of a cell.
+     * @param y y-coordinate of a cell.
+     * @return steps from the nearest source, or UNREACHABLE.
+     */
+    public int distance(int x, int y) {
+        return distance[y << 8 | x];
+    }
+
+    /**
+     * @param x x-coordinate of a cell.
+     * @param y y-coordinate of a cell.
+     * @param steps number of steps.
+     * @return true iff the cell can be reached from a source in at most steps.
+     */
+    public boolean within(int x, int y, int steps) {
+        int d = distance[y << 8 | x];
+        return d != UNREACHABLE && d <= steps;
+    }
+
+    /**
+     * @return a read-only view of the distances, y << 8 | x.
+     */
+    public ShortBuffer distances() {
+        return ShortBuffer.wrap(distance).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the largest distance of a reachable cell, 0 if only the sources
+     * are reachable, or UNREACHABLE if every source is blocked.
+     */
+    public int radius() {
+        return radius;
+    }
+
+    /**
+     * Cells reachable within a number of steps, without recording distances.
+     * @param map map to measure.
+     * @param sources packed source points, y << 8 | x.
+     * @param steps number of steps.
+     * @return row-major bit array, as in Map.mapX, of the cells reachable
+     * from a source in at most steps.
+     */
+    public static long[][] reachable(Map map, int[] sources, int steps) {
+        long[] reached = new long[1024];
+        spread(map.mapX, sources, steps, null, reached);
+        long[][] rows = new long[256][4];
+        for (int y = 0; y < 256; y++) {
+            System.arraycopy(reached, y << 2, rows[y], 0, 4);
+        }
+        return rows;
+    }
+
+    /**
+     * Advance a wavefront from the sources until it stops or has taken the
+     * given number of steps.
+     * @param mapX row-major bit array of blocked cells.
+     * @param sources packed source points, y << 8 | x.
+     * @param steps largest number of steps to take.
+     * @param distance distances to record, or null.
+     * @param reached receives the reached cells, 4 words per row.
+     * @return the number of the last wave that reached a cell, or UNREACHABLE
+     * if no source is walkable.
+     */
+    private static int spread(long[][] mapX, int[] sources, int steps, short[] distance, long[] reached) {
+        long[] frontier = new long[1024];
+        long[] next = new long[1024];
+        long[] wide = new long[1024];   // Frontier spread along its rows.
+        int lo = 256;                   // Rows spanned by the frontier.
+        int hi = -1;
+
+        for (int source : sources) {
+            int x = source & 0xFF;
+            int y = source >>> 8;
+            long bit = Long.MIN_VALUE >>> (x & 63);
+            int word = y << 2 | x >>> 6;
+            if ((mapX[y][x >>> 6] & bit) != 0) {
+                continue;
+            }
+            frontier[word] |= bit;
+            reached[word] |= bit;
+            if (distance != null) {
+                distance[source] = 0;
+            }
+            lo = Math.min(lo, y);
+            hi = Math.max(hi, y);
+        }
+        if (hi == -1) {
+            return UNREACHABLE;
+        }
+
+        int wave = 0;
+        while (wave < steps) {
+            for (int i = lo << 2; i < (hi + 1) << 2; i += 4) {
+                long w0 = frontier[i], w1 = frontier[i + 1], w2 = frontier[i + 2], w3 = frontier[i + 3];
+                // Bit 63 of word 0 is x = 0: >>> 1 steps to x + 1, << 1 to x - 1.
+                wide[i] = w0 | w0 >>> 1 | w0 << 1 | w1 >>> 63;
+                wide[i + 1] = w1 | w1 >>> 1 | w0 << 63 | w1 << 1 | w2 >>> 63;
+                wide[i + 2] = w2 | w2 >>> 1 | w1 << 63 | w2 << 1 | w3 >>> 63;
+                wide[i + 3] = w3 | w3 >>> 1 | w2 << 63 | w3 << 1;
+            }
+
+            int nextLo = 256;
+            int nextHi = -1;
+            int first = Math.max(lo - 1, 0);
+            int last = Math.min(hi + 1, 255);
+            for (int y = first; y <= last; y++) {
+                long[] blocked = mapX[y];
+                boolean any = false;
+                for (int w = 0; w < 4; w++) {
+                    int i = y << 2 | w;
+                    long v = 0;
+                    if (y >= lo && y <= hi) {
+                        v = wide[i];
+                    }
+                    if (y - 1 >= lo && y - 1 <= hi) {
+                        v |= wide[i - 4];
+                    }
+                    if (y + 1 >= lo && y + 1 <= hi) {
+                        v |= wide[i + 4];
+                    }
+                    v &= ~(blocked[w] | reached[i]);
+                    next[i] = v;
+                    if (v != 0) {
+                        any = true;
+                        reached[i] |= v;
+                        if (distance != null) {
+                            record(distance, y << 8 | w << 6, v, wave + 1);
+                        }
+                    }
+                }
+                if (any) {
+                    nextLo = Math.min(nextLo, y);
+                    nextHi = y;
+                }
+            }
+            if (nextHi == -1) {
+                break;
+            }
+            wave++;
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+            lo = nextLo;
+            hi = nextHi;
+        }
+        return wave;
+    }
+
+    /**
+     * Write a distance for every set bit of one word.
+     */
+    private static void record(short[] distance, int base, long bits, int d) {
+        while (bits != 0) {
+            int b = Long.numberOfLeadingZeros(bits);
+            distance[base + b] = (short) d;
+            bits &= ~(Long.MIN_VALUE >>> b);
+        }
+    }
+
+    /**
+     * Compare the wavefront with a breadth-first search over a cell queue on
+     * random maps, and time both.
+     * @param args optional number of maps, 50 by default.
+     */
+    public static void main(String[] args) {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        Random random = new Random(5);
+        int mismatches = 0;
+        long waveNanos = 0, queueNanos = 0;
+
+        for (int m = 0; m < maps; m++) {
+            Map map = TestMaps.randomMap(random, (m % 5) / 10.0);
+            int[] sources = new int[1 + m % 3];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = random.nextInt(65536);
+            }
+
+            long start = System.nanoTime();
+            DistanceField field = new DistanceField(map, sources);
+            waveNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            short[] expected = breadthFirst(map, sources);
+            queueNanos += System.nanoTime() - start;
+
+            if (!Arrays.equals(field.distance, expected)) {
+                mismatches++;
+            }
+            long[][] within = reachable(map, sources, 20);
+            for (int i = 0; i < 65536; i++) {
+                boolean set = (within[i >>> 8][(i & 0xFF) >>> 6] & (Long.MIN_VALUE >>> (i & 63))) != 0;
+                if (set != field.within(i & 0xFF, i >>> 8, 20)) {
+                    mismatches++;
+                    break;
+                }
+            }
+        }
+        System.out.printf("%d maps, %d mismatches: wavefront %.3f ms, cell queue %.3f ms%n",
+                maps, mismatches, waveNanos / 1e6 / maps, queueNanos / 1e6 / maps);
+    }
+
+    private static short[] breadthFirst(Map map, int[] sources) {
+        short[] dist = new short[65536];
+        Arrays.fill(dist, (short) UNREACHABLE);
+        int[] queue = new int[65536];
+        int head = 0, tail = 0;
+        for (int s : sources) {
+            if (!Map.isSet(s & 0xFF, s >>> 8, map.mapX) && dist[s] != 0) {
+                dist[s] = 0;
+                queue[tail++] = s;
+            }
+        }
+        while (head < tail) {
+            int c = queue[head++];
+            int cx = c & 0xFF, cy = c >>> 8;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = cx + dx, ny = cy + dy;
+                    if (((nx | ny) & ~0xFF) != 0 || Map.isSet(nx, ny, map.mapX)) {
+                        continue;
+                    }
+                    int n = ny << 8 | nx;
+                    if (dist[n] == UNREACHABLE) {
+                        dist[n] = (short) (dist[c] + 1);
+                        queue[tail++] = n;
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+}
@@ -0,0 +1,78 @@
+package navigation;
+
+/**
+ * Next step toward one goal from every cell of a map.
+ *
+ * Many units heading for the same goal can share one flow field instead of
+ * each searching for its own path: a unit looks up the direction of its
+ * cell, moves one step, and repeats. Every lookup is a single array read.
+ *
+ * The field is built from the DistanceField of the goal. Each cell points
+ * to a neighbour one step closer to the goal; among several such neighbours
+ * it takes the one nearest the goal in a straight line, so units move
+ * along the line to the goal where they can instead of zigzagging.
+ * Following the directions therefore takes the fewest possible steps.
+ *
+ * Directions use the compass of Navigation.move: north = 0, clockwise.
+ *
+ * @author David
+ */
+public class FlowField {
+
+    public static final int NONE = -1;  // At the goal, blocked, or unreachable.
+
+    private final byte[] direction;     // Next step from each cell, y << 8 | x.
+    private final int goal;             // Packed goal point, y << 8 | x.
+
+    /**
+     * Build the flow field of a goal.
+     * @param map map to move on.
+     * @param goal packed goal point, y << 8 | x.
+     */
+    public FlowField(Map map, int goal) {
+        this.goal = goal;
+        direction = new byte[65536];
+        DistanceField field = map.distanceField(goal);
+        int gx = goal & 0xFF;
+        int gy = goal >>> 8;
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                int d = field.distance(x, y);
+                int best = NONE;
+                if (d > 0) {
+                    long nearest = Long.MAX_VALUE;
+                    for (int i = 0; i < 8; i++) {
+                        int nx = x + OctileJumpSearch.DX[i];
+                        int ny = y + OctileJumpSearch.DY[i];
+                        if (((nx | ny) & ~0xFF) != 0 || field.distance(nx, ny) != d - 1) {
+                            continue;
+                        }
+                        long ex = nx - gx;
+                        long ey = ny - gy;
+                        if (ex * ex + ey * ey < nearest) {
+                            nearest = ex * ex + ey * ey;
+                            best = i;
+                        }
+                    }
+                }
+                direction[y << 8 | x] = (byte) best;
+            }
+        }
+    }
+
+    /**
+     * @param x x-coordinate of a cell.
+     * @param y y-coordinate of a cell.
+     * @return direction of the next step toward the goal, or NONE.
+     */
+    public int direction(int x, int y) {
+        return direction[y << 8 | x];
+    }
+
+    /**
+     * @return packed goal point, y << 8 | x.
+     */
+    public int goal() {
+        return goal;
+    }
+}
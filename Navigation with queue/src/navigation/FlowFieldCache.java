@@ -0,0 +1,145 @@
+package navigation;
+
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * Least recently used cache of flow fields, keyed by goal and map version.
+ *
+ * A field is reused while its Map holds the same bit arrays at the same
+ * version; replacing mapX or calling Map.changed() makes the next lookup
+ * build a new one. Fields of older versions are not removed at once, they
+ * age out of the cache like any other.
+ *
+ * A cache may be shared by several threads; get is synchronized, and a field
+ * is built while holding the lock so it is never built twice.
+ *
+ * @author David
+ */
+public class FlowFieldCache {
+
+    private final LinkedHashMap<Key, FlowField> fields;
+
+    /**
+     * @param capacity number of flow fields kept; each takes 64 KB.
+     */
+    public FlowFieldCache(final int capacity) {
+        fields = new LinkedHashMap<Key, FlowField>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Key, FlowField> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Flow field of a goal on the current contents of a map.
+     * @param map map to move on.
+     * @param goal packed goal point, y << 8 | x.
+     * @return the cached field, or a new one.
+     */
+    public synchronized FlowField get(Map map, int goal) {
+        Key key = new Key(map.mapX, map.version, goal);
+        FlowField field = fields.get(key);
+        if (field == null) {
+            field = new FlowField(map, goal);
+            fields.put(key, field);
+        }
+        return field;
+    }
+
+    /**
+     * @return number of fields in the cache.
+     */
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    /**
+     * Remove every field.
+     */
+    public synchronized void clear() {
+        fields.clear();
+    }
+
+    private static final class Key {
+
+        final long[][] mapX;    // Compared by identity.
+        final int version;
+        final int goal;
+
+        Key(long[][] mapX, int version, int goal) {
+            this.mapX = mapX;
+            this.version = version;
+            this.goal = goal;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return k.mapX == mapX && k.version == version && k.goal == goal;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(mapX) * 31 + version) * 65599 + goal;
+        }
+    }
+
+    /**
+     * Send units from random cells to one goal, following a shared flow field,
+     * and check that each arrives in as many steps as its distance.
+     * @param args optional number of units, 50 by default.
+     */
+    public static void main(String[] args) {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        Random random = new Random(3);
+        Map map = TestMaps.randomMap(random, 0.25);
+        int goal = 128 << 8 | 128;
+        map.mapX[128][2] &= ~(1L << 63);
+        map.mapY[128][2] &= ~(1L << 63);
+        FlowFieldCache cache = new FlowFieldCache(4);
+        DistanceField distance = map.distanceField(goal);
+
+        long start = System.nanoTime();
+        FlowField first = cache.get(map, goal);
+        long build = System.nanoTime() - start;
+
+        int arrived = 0, wrong = 0, moving = 0;
+        long steps = 0;
+        start = System.nanoTime();
+        for (int u = 0; u < units; u++) {
+            int x = random.nextInt(256);
+            int y = random.nextInt(256);
+            int expected = distance.distance(x, y);
+            if (expected <= 0) {
+                continue;
+            }
+            moving++;
+            int n = 0;
+            for (int d = cache.get(map, goal).direction(x, y); d != FlowField.NONE;
+                    d = cache.get(map, goal).direction(x, y)) {
+                x += OctileJumpSearch.DX[d];
+                y += OctileJumpSearch.DY[d];
+                n++;
+            }
+            steps += n;
+            if ((y << 8 | x) == goal) {
+                arrived++;
+            }
+            if (n != expected) {
+                wrong++;
+            }
+        }
+        long walk = System.nanoTime() - start;
+
+        map.changed();
+        boolean rebuilt = cache.get(map, goal) != first;
+        System.out.printf("%d units moving, %d arrived, %d not in the fewest steps: build %.3f ms,"
+                + " %d lookups %.3f ms, rebuilt after change %b%n",
+                moving, arrived, wrong, build / 1e6, steps, walk / 1e6, rebuilt);
+    }
+}
@@ -0,0 +1,399 @@
+package navigation;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free Jump Point Search over a Map.
+ *
+ * This runs the same diagonal search as getPath in Navigation, scored like
+ * the heap-based search (f(n) = g(n) + h(n), Chebyshev distances unless
+ * another CostModel is chosen), but keeps
+ * every jump point in parallel int arrays instead of Node or JumpPoint
+ * objects:
+ *
+ * - x, y       coordinates of the jump point.
+ * - g, f       distance traveled and g + h.
+ * - direction  diagonal of search from the jump point (1, 3, 5 or 7).
+ * - parent     index of the previous jump point, -1 at the start.
+ * - waypoint   packed point between the parent and this jump point, or -1.
+ *
+ * Points are packed as y << 8 | x. The open list is a binary heap of indices
+ * into those arrays. Once the arrays have grown to fit the largest search, a
+ * search allocates nothing: path(int, int[]) copies the result into a buffer
+ * owned by the caller, and only getPath builds Node objects for callers that
+ * want the linked form.
+ *
+ * A JumpSearch is not thread-safe; use one per thread.
+ *
+ * @author David
+ */
+public class JumpSearch {
+
+    Map map;            // Map to search.
+    ScanEngine scan;    // Implementation of the bit scans.
+    CostModel cost;     // Distances traveled and the heuristic.
+
+    // Jump points, one entry per index.
+    int[] x, y, g, f, direction, parent, waypoint;
+    int count;          // Number of jump points created by this search.
+
+    int[] heap;         // Open list, indices into the jump point arrays.
+    int size;           // Number of indices in the open list.
+
+    SearchContext visited;  // Direction each cell was reached from, -1 if closed.
+
+    int goalX, goalY;   // Goal of the current search.
+    int expanded;       // Jump points removed from the open list.
+
+    public JumpSearch(Map map) {
+        this(map, ScanEngine.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     * @param map map to search; its bit arrays may be replaced between searches.
+     * @param scan implementation of the bit scans.
+     */
+    public JumpSearch(Map map, ScanEngine scan) {
+        this(map, scan, new SearchContext());
+    }
+
+    /**
+     * Constructor sharing a record of visited cells, for example one taken
+     * from SearchContext.acquire().
+     * @param map map to search; its bit arrays may be replaced between searches.
+     * @param scan implementation of the bit scans.
+     * @param context record of visited cells.
+     */
+    public JumpSearch(Map map, ScanEngine scan, SearchContext context) {
+        this.map = map;
+        this.scan = scan;
+        x = new int[1024];
+        y = new int[1024];
+        g = new int[1024];
+        f = new int[1024];
+        direction = new int[1024];
+        parent = new int[1024];
+        waypoint = new int[1024];
+        heap = new int[1024];
+        visited = context;
+        cost = CostModel.DEFAULT;
+    }
+
+    /**
+     * Choose the cost model used by later searches. OctileJumpSearch keeps
+     * its own octile costs.
+     * @param model CHEBYSHEV, OCTILE or MANHATTAN.
+     */
+    public void setCostModel(CostModel model) {
+        cost = model;
+    }
+
+    /**
+     * Search for a path.
+     * @param start packed start point, y << 8 | x.
+     * @param goal packed goal point, y << 8 | x.
+     * @return index of the jump point at the goal, or -1 if there is no path.
+     */
+    public int search(int start, int goal) {
+        visited.begin();
+        count = 0;
+        size = 0;
+        expanded = 0;
+        goalX = goal & 0xFF;
+        goalY = goal >>> 8;
+
+        int sx = start & 0xFF;
+        int sy = start >>> 8;
+        visited.set(start, -1);
+
+        // Order the four diagonals like Heap: toward the goal first, then the
+        // two that share the goal's dominant axis and finally the opposite.
+        int dx = goalX - sx >= 0 ? 1 : -1;
+        int dy = goalY - sy > 0 ? 1 : -1;
+        boolean vertical = Math.abs(goalY - sy) >= Math.abs(goalX - sx);
+        int h = heuristic(sx, sy);
+        push(create(sx, sy, 0, h, diagonal(dx, dy), -1, -1));
+        push(create(sx, sy, 0, h + 1, vertical ? diagonal(-dx, dy) : diagonal(dx, -dy), -1, -1));
+        push(create(sx, sy, 0, h + 2, vertical ? diagonal(dx, -dy) : diagonal(-dx, dy), -1, -1));
+        push(create(sx, sy, 0, h + 3, diagonal(-dx, -dy), -1, -1));
+
+        long[][] mapX = map.mapX;
+        long[][] mapY = map.mapY;
+
+        while (size != 0) {
+            int next = pop();
+            expanded++;
+
+            int d = direction[next];
+            int stepX = d == 1 || d == 3 ? 1 : -1;
+            int stepY = d == 3 || d == 5 ? 1 : -1;
+            int lx = x[next];   // Current position on the diagonal.
+            int ly = y[next];
+
+            // Distances from the current position to the next void along x and y.
+            int lastX = forwardX(lx, ly, stepX, mapX);
+            int lastY = forwardY(lx, ly, stepY, mapY);
+
+            while (lastX != 0) {    // While the current position is walkable.
+
+                // Check if the goal is directly reachable from this position.
+                if (goalX == lx) {
+                    if ((goalY <= ly && goalY >= ly - scan.distanceLeft(ly, lx, mapY))
+                            || (goalY >= ly && goalY <= ly + scan.distanceRight(ly, lx, mapY))) {
+                        return reach(next, lx, ly);
+                    }
+                } else if (goalY == ly) {
+                    if ((goalX <= lx && goalX >= lx - scan.distanceLeft(lx, ly, mapX))
+                            || (goalX >= lx && goalX <= lx + scan.distanceRight(lx, ly, mapX))) {
+                        return reach(next, lx, ly);
+                    }
+                }
+
+                lx += stepX;
+                ly += stepY;
+                if ((lx | ly) >>> 8 != 0) {
+                    break;  // Stepped off the map.
+                }
+                int steps = Math.abs(lx - x[next]);     // Diagonal steps from the jump point.
+
+                int stepDistX = forwardX(lx, ly, stepX, mapX);
+                int stepDistY = forwardY(lx, ly, stepY, mapY);
+
+                int dX = stepDistX - lastX; // should be -1
+                if (dX >= 0) {
+                    // The wall along x in the last row ended; turn toward it.
+                    int voids = voidX(lx + stepX * (lastX - 1), ly - stepY, stepX, mapX);
+                    if (dX - voids >= -1) {
+                        int distance = voids + lastX - 2;
+                        insert(lx + stepX * distance, ly, diagonal(stepX, -stepY),
+                                lx, ly, next, steps + Math.abs(distance));
+                    }
+                } else if (dX < -1) {
+                    // A wall along x starts in this row; follow its far side.
+                    int voids = voidX(lx + stepX * stepDistX, ly, stepX, mapX);
+                    if (dX + voids < 0) {
+                        int distance = voids + stepDistX - 1;
+                        insert(lx + stepX * distance, ly - stepY, d,
+                                lx - stepX, ly - stepY, next, steps + distance);
+                    }
+                }
+
+                int dY = stepDistY - lastY; // should be -1
+                if (dY >= 0) {
+                    int voids = voidY(ly + stepY * (lastY - 1), lx - stepX, stepY, mapY);
+                    if (dY - voids >= -1) {
+                        int distance = voids + lastY - 2;
+                        insert(lx, ly + stepY * distance, diagonal(-stepX, stepY),
+                                lx, ly, next, steps + Math.abs(distance));
+                    }
+                } else if (dY < -1) {
+                    int voids = voidY(ly + stepY * stepDistY, lx, stepY, mapY);
+                    if (dY + voids < 0) {
+                        int distance = voids + stepDistY - 1;
+                        insert(lx - stepX, ly + stepY * distance, d,
+                                lx - stepX, ly - stepY, next, steps + distance);
+                    }
+                }
+
+                lastX = stepDistX;
+                lastY = stepDistY;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Number of points in the path ending at the given jump point, counting
+     * the start, every waypoint and every jump point.
+     * @param end index returned by search.
+     */
+    public int pathLength(int end) {
+        int length = 0;
+        for (int i = end; i != -1; i = parent[i]) {
+            length += waypoint[i] == -1 ? 1 : 2;
+        }
+        return length;
+    }
+
+    /**
+     * Copy the path ending at the given jump point into a buffer.
+     * @param end index returned by search.
+     * @param out buffer of at least pathLength(end) ints.
+     * @return number of packed points written, start first.
+     */
+    public int path(int end, int[] out) {
+        int length = pathLength(end);
+        int i = length;
+        for (int jp = end; jp != -1; jp = parent[jp]) {
+            out[--i] = y[jp] << 8 | x[jp];
+            if (waypoint[jp] != -1) {
+                out[--i] = waypoint[jp];
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Search for a path and link it as Nodes, like Navigation.getPath.
+     * @param a start of the path.
+     * @param b end of the path.
+     * @return the Node at the start of the path, or null if there is no path.
+     */
+    public Node getPath(int[] a, int[] b) {
+        int end = search(a[1] << 8 | a[0], b[1] << 8 | b[0]);
+        if (end == -1) {
+            return null;
+        }
+        Node next = null;
+        for (int jp = end; jp != -1; jp = parent[jp]) {
+            int[] way = waypoint[jp] == -1
+                    ? new int[0]
+                    : new int[] { waypoint[jp] & 0xFF, waypoint[jp] >>> 8 };
+            Node node = new Node(new int[] { x[jp], y[jp] }, way, f[jp]);
+            node.direction = jp == end ? 0 : direction[jp];
+            node.mapNext = next;
+            if (next != null) {
+                next.mapLast = node;
+            }
+            next = node;
+        }
+        return next;
+    }
+
+    /**
+     * @return number of jump points expanded by the last search.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Link the goal to the current jump point through the given position.
+     * @return index of the jump point at the goal.
+     */
+    int reach(int from, int wx, int wy) {
+        int gGoal = g[from] + cost.cost(wx - x[from], wy - y[from]) + cost.cost(goalX - wx, goalY - wy);
+        int way = wx == goalX && wy == goalY ? -1 : wy << 8 | wx;
+        return create(goalX, goalY, gGoal, gGoal, 0, from, way);
+    }
+
+    /**
+     * Create a jump point and add it to the open list unless its cell has
+     * already been searched in this direction, following the rules of
+     * Heap.insert.
+     */
+    void insert(int nx, int ny, int d, int wx, int wy, int from, int distance) {
+        if ((nx | ny) >>> 8 != 0) {
+            return;
+        }
+        int index = ny << 8 | nx;
+        int visitedDirection = visited.get(index);
+        if (visitedDirection == 0) {
+            visited.set(index, d);
+        } else if (visitedDirection != d && visitedDirection > 0) {
+            visited.set(index, -1);
+        } else {
+            return;
+        }
+        int gNew = g[from] + (cost == CostModel.CHEBYSHEV ? distance
+                : cost.cost(wx - x[from], wy - y[from]) + cost.cost(nx - wx, ny - wy));
+        push(create(nx, ny, gNew, gNew + heuristic(nx, ny), d, from, wy << 8 | wx));
+    }
+
+    int create(int nx, int ny, int gNew, int fNew, int d, int from, int way) {
+        if (count == x.length) {
+            grow();
+        }
+        int i = count++;
+        x[i] = nx;
+        y[i] = ny;
+        g[i] = gNew;
+        f[i] = fNew;
+        direction[i] = d;
+        parent[i] = from;
+        waypoint[i] = way;
+        return i;
+    }
+
+    void grow() {
+        int length = x.length * 2;
+        x = Arrays.copyOf(x, length);
+        y = Arrays.copyOf(y, length);
+        g = Arrays.copyOf(g, length);
+        f = Arrays.copyOf(f, length);
+        direction = Arrays.copyOf(direction, length);
+        parent = Arrays.copyOf(parent, length);
+        waypoint = Arrays.copyOf(waypoint, length);
+        heap = Arrays.copyOf(heap, length);
+    }
+
+    /**
+     * True if jump point a should leave the open list before b: lower f
+     * first, ties broken toward the lower h (the higher g).
+     */
+    boolean before(int a, int b) {
+        return f[a] < f[b] || (f[a] == f[b] && g[a] > g[b]);
+    }
+
+    void push(int jp) {
+        int i = size++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (!before(jp, heap[up])) {
+                break;
+            }
+            heap[i] = heap[up];
+            i = up;
+        }
+        heap[i] = jp;
+    }
+
+    int pop() {
+        int top = heap[0];
+        int last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    int heuristic(int px, int py) {
+        return cost.cost(goalX - px, goalY - py);
+    }
+
+    /**
+     * @return direction number of the diagonal (stepX, stepY): NE = 1,
+     * SE = 3, SW = 5, NW = 7.
+     */
+    static int diagonal(int stepX, int stepY) {
+        return stepX > 0 ? (stepY > 0 ? 3 : 1) : (stepY > 0 ? 5 : 7);
+    }
+
+    int forwardX(int px, int py, int stepX, long[][] mapX) {
+        return stepX > 0 ? scan.distanceRight(px, py, mapX) : scan.distanceLeft(px, py, mapX);
+    }
+
+    int forwardY(int px, int py, int stepY, long[][] mapY) {
+        return stepY > 0 ? scan.distanceRight(py, px, mapY) : scan.distanceLeft(py, px, mapY);
+    }
+
+    int voidX(int px, int py, int stepX, long[][] mapX) {
+        return stepX > 0 ? scan.distanceVoidRight(px, py, mapX) : scan.distanceVoidLeft(px, py, mapX);
+    }
+
+    int voidY(int py, int px, int stepY, long[][] mapY) {
+        return stepY > 0 ? scan.distanceVoidRight(py, px, mapY) : scan.distanceVoidLeft(py, px, mapY);
+    }
+}
@@ -0,0 +1,213 @@
+package navigation;
+
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+/**
+ * Precomputed jumps of OctileJumpSearch for every cell and direction (JPS+).
+ *
+ * For each walkable cell and each of the 8 compass directions the table holds
+ * the jump that OctileJumpSearch would make from that cell if the goal were
+ * elsewhere:
+ *
+ * - a positive value d: the jump ends at a jump point d steps away.
+ * - zero or a negative value -d: there is no jump point before a wall, and
+ *   d steps can be taken before it.
+ *
+ * Entries are stored at index (y << 8 | x) << 3 | direction, 1 MB for a
+ * 256x256 map. Blocked cells hold zeros. A table built here keeps them in a
+ * short[]; a table loaded by PrecomputeCache reads them from a mapped file.
+ *
+ * Each row, column and diagonal is swept once from its far end, so building
+ * a table costs a few operations per entry. Straight entries follow from the
+ * entry of the next cell, the walls beside it and the walls beside the cell
+ * after it. Diagonal entries follow from the next cell's straight entries
+ * and its own diagonal entry. The table depends only on mapX; it has to be
+ * rebuilt whenever the map changes.
+ *
+ * @author David
+ */
+public class JumpTable {
+
+    public static final int ENTRIES = 65536 * 8;
+
+    final ShortBuffer jumps;    // 8 entries per cell, see class comment.
+
+    /**
+     * Build the table for a map.
+     * @param map the map; only mapX is read.
+     */
+    public JumpTable(Map map) {
+        this(map.mapX);
+    }
+
+    /**
+     * Build the table for a row-major bit array.
+     * @param mapX row-major bit array, as in Map.mapX.
+     */
+    public JumpTable(long[][] mapX) {
+        short[] entries = new short[ENTRIES];
+        for (int d = 0; d < 8; d += 2) {
+            straight(mapX, d, entries);
+        }
+        for (int d = 1; d < 8; d += 2) {
+            diagonal(mapX, d, entries);
+        }
+        jumps = ShortBuffer.wrap(entries);
+    }
+
+    /**
+     * Wrap entries read from elsewhere, for example a cache file.
+     * @param jumps ENTRIES entries in the layout described above.
+     */
+    public JumpTable(ShortBuffer jumps) {
+        if (jumps.remaining() != ENTRIES) {
+            throw new IllegalArgumentException("expected " + ENTRIES + " entries, got " + jumps.remaining());
+        }
+        this.jumps = jumps.slice();
+    }
+
+    /**
+     * @param x x-coordinate of a cell.
+     * @param y y-coordinate of a cell.
+     * @param direction compass direction, north = 0, clockwise.
+     * @return the jump from the cell in that direction, see class comment.
+     */
+    public int get(int x, int y, int direction) {
+        return jumps.get((y << 8 | x) << 3 | direction);
+    }
+
+    /**
+     * @return a read-only view of the entries, in the layout described in
+     * the class comment.
+     */
+    public ShortBuffer entries() {
+        return jumps.asReadOnlyBuffer();
+    }
+
+    /**
+     * Fill the entries of one straight direction, sweeping every line from
+     * the end the direction points at.
+     */
+    private static void straight(long[][] mapX, int d, short[] jumps) {
+        int dx = OctileJumpSearch.DX[d];
+        int dy = OctileJumpSearch.DY[d];
+        for (int line = 0; line < 256; line++) {
+            for (int i = 255; i >= 0; i--) {
+                // Position i counted from the far end of the line.
+                int px = dy == 0 ? (dx > 0 ? i : 255 - i) : line;
+                int py = dx == 0 ? (dy > 0 ? i : 255 - i) : line;
+                if (blocked(mapX, px, py)) {
+                    continue;
+                }
+                int nx = px + dx;
+                int ny = py + dy;
+                int jump;
+                if (blocked(mapX, nx, ny)) {
+                    jump = 0;
+                } else if (forced(mapX, nx, ny, dx, dy)) {
+                    jump = 1;
+                } else {
+                    int next = jumps[(ny << 8 | nx) << 3 | d];
+                    jump = next > 0 ? next + 1 : next - 1;
+                }
+                jumps[(py << 8 | px) << 3 | d] = (short) jump;
+            }
+        }
+    }
+
+    /**
+     * True if a straight jump arriving at (x, y) along (dx, dy) stops there
+     * because a wall beside the previous cell ends beside this one.
+     */
+    private static boolean forced(long[][] mapX, int x, int y, int dx, int dy) {
+        int sx = dy;    // One side of the line: (dy, dx) is perpendicular to (dx, dy).
+        int sy = dx;
+        return (!blocked(mapX, x + sx, y + sy) && blocked(mapX, x + sx - dx, y + sy - dy))
+                || (!blocked(mapX, x - sx, y - sy) && blocked(mapX, x - sx - dx, y - sy - dy));
+    }
+
+    /**
+     * Fill the entries of one diagonal direction, sweeping rows from the end
+     * the direction points at. The straight entries must be filled first.
+     */
+    private static void diagonal(long[][] mapX, int d, short[] jumps) {
+        int dx = OctileJumpSearch.DX[d];
+        int dy = OctileJumpSearch.DY[d];
+        int alongX = dx > 0 ? 2 : 6;    // Straight directions making up d.
+        int alongY = dy > 0 ? 4 : 0;
+        for (int i = 255; i >= 0; i--) {
+            int py = dy > 0 ? i : 255 - i;
+            for (int px = 0; px < 256; px++) {
+                if (blocked(mapX, px, py)) {
+                    continue;
+                }
+                int nx = px + dx;
+                int ny = py + dy;
+                int jump;
+                if (blocked(mapX, nx, ny) || blocked(mapX, nx, py) || blocked(mapX, px, ny)) {
+                    jump = 0;   // Wall ahead, or the step would cut a corner.
+                } else {
+                    int next = (ny << 8 | nx) << 3;
+                    if (jumps[next | alongX] > 0 || jumps[next | alongY] > 0) {
+                        jump = 1;
+                    } else {
+                        int ahead = jumps[next | d];
+                        jump = ahead > 0 ? ahead + 1 : ahead - 1;
+                    }
+                }
+                jumps[(py << 8 | px) << 3 | d] = (short) jump;
+            }
+        }
+    }
+
+    /**
+     * @return true if the cell is blocked or off the map.
+     */
+    static boolean blocked(long[][] mapX, int x, int y) {
+        return ((x | y) & ~0xFF) != 0 || ((mapX[y][x >>> 6] >>> (63 - (x & 63))) & 1L) != 0;
+    }
+
+    /**
+     * Check JumpPlusSearch against OctileJumpSearch: both must find paths of
+     * the same cost between random cells of random maps.
+     * @param args optional number of maps, 100 by default.
+     */
+    public static void main(String[] args) {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Random random = new Random(71);
+        int mismatches = 0, queries = 0;
+        long buildNanos = 0;
+
+        for (int m = 0; m < maps; m++) {
+            double density = (m % 10) / 20.0;   // 0% to 45% obstacles.
+            Map map = TestMaps.randomMap(random, density);
+
+            long start = System.nanoTime();
+            JumpTable table = new JumpTable(map);
+            buildNanos += System.nanoTime() - start;
+
+            OctileJumpSearch scan = new OctileJumpSearch(map);
+            JumpPlusSearch plus = new JumpPlusSearch(map, table);
+            for (int q = 0; q < 20; q++) {
+                int a = random.nextInt(65536);
+                int b = random.nextInt(65536);
+                if (blocked(map.mapX, a & 0xFF, a >>> 8) || blocked(map.mapX, b & 0xFF, b >>> 8)) {
+                    continue;
+                }
+                int endScan = scan.search(a, b);
+                int endPlus = plus.search(a, b);
+                int costScan = endScan == -1 ? -1 : scan.g[endScan];
+                int costPlus = endPlus == -1 ? -1 : plus.g[endPlus];
+                queries++;
+                if (costScan != costPlus) {
+                    mismatches++;
+                    System.out.println("map " + m + ": " + (a & 0xFF) + "," + (a >>> 8) + " -> "
+                            + (b & 0xFF) + "," + (b >>> 8) + ": scan " + costScan + ", table " + costPlus);
+                }
+            }
+        }
+        System.out.printf("%d maps, %d queries, %d mismatches, %.2f ms per table%n",
+                maps, queries, mismatches, buildNanos / 1e6 / maps);
+    }
+}
@@ -23,6 +23,12 @@ package navigation;
  *    Origin rowMajor index - [128][4]
  *    Origin colMajor index - [4][128]
  * 
+ * - setBlocked, clear, setRect and applyBatch write both arrays at once and
+ *   stamp each mapX word they write with the new version, so a cache built
+ *   at an older version can find the words that changed since with
+ *   changedSince instead of rebuilding. Code that writes the arrays directly
+ *   must call changed() afterwards; that marks every word as changed.
+ * 
  * @author David Bell
  */
 public class Map {
@@ -30,6 +36,9 @@ public class Map {
     public long[][] mapY;   // Column-major storage of the map.
     public long[][] mapX;   // Row-major storage of the map.
     public final int[] origin;  // Origin in real coordinates.
+    public int version;         // Incremented by every change; keys cached data.
+    private final int[] stamps; // Version of the last write to each mapX word, [y*4+w].
+    private int allChanged;     // Version of the last call to changed().
     
     /**
      * Constructor.
@@ -40,6 +49,205 @@ public class Map {
         origin = new int[] { originX, originY };
         mapX = new long[256][4];
         mapY = new long[256][4];
+        stamps = new int[1024];
+    }
+    
+    /**
+     * Record that mapX or mapY has been written directly, so data cached for
+     * the old contents, such as flow fields, is no longer used.
+     */
+    public void changed() {
+        allChanged = ++version;
+    }
+    
+    /**
+     * Rebuild mapY from mapX, after mapX has been filled in directly.
+     */
+    public void syncColumns() {
+        transpose(mapX, mapY);
+        changed();
+    }
+    
+    /**
+     * Column-major copy of a row-major bit array, or the other way around.
+     * @param rows bit array in the layout of mapX.
+     * @return a new bit array in the layout of mapY.
+     */
+    public static long[][] transpose(long[][] rows) {
+        long[][] columns = new long[256][4];
+        transpose(rows, columns);
+        return columns;
+    }
+    
+    /**
+     * Write the transpose of a 256x256 bit array into another, one 64x64
+     * block at a time. Each block is transposed in place with the six-step
+     * butterfly: step j swaps the upper-right and lower-left j-by-j
+     * sub-blocks of every 2j-by-2j block with one shift, XOR and mask per
+     * pair of words, for 6 * 32 word pairs in all.
+     * @param from bit array to read, [line][word].
+     * @param to bit array to write, [line][word]; must not be from.
+     */
+    public static void transpose(long[][] from, long[][] to) {
+        long[] block = new long[64];
+        for (int bx = 0; bx < 4; bx++) {
+            for (int by = 0; by < 4; by++) {
+                for (int r = 0; r < 64; r++) {
+                    block[r] = from[by << 6 | r][bx];
+                }
+                transpose64(block);
+                for (int c = 0; c < 64; c++) {
+                    to[bx << 6 | c][by] = block[c];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Transpose a 64x64 bit matrix in place. Element (r, c) is bit 63 - c of
+     * a[r], as in mapX.
+     */
+    static void transpose64(long[] a) {
+        long m = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>>= 1, m ^= m << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = (a[k] ^ (a[k | j] >>> j)) & m;
+                a[k] ^= t;
+                a[k | j] ^= t << j;
+            }
+        }
+    }
+    
+    /**
+     * Test one bit of a bit array in the layout of mapX or mapY.
+     * @param pos position along the line: x in mapX, y in mapY, 0 to 255.
+     * @param line the row (mapX) or column (mapY), 0 to 255.
+     * @param bits the bit array.
+     * @return true if the bit is set, that is the cell is non-walkable.
+     */
+    public static boolean isSet(int pos, int line, long[][] bits) {
+        return ((bits[line][pos >>> 6] >>> (63 - (pos & 63))) & 1L) != 0;
+    }
+    
+    /**
+     * Mark one cell as non-walkable.
+     * @param x map x-coordinate, 0 to 255.
+     * @param y map y-coordinate, 0 to 255.
+     */
+    public void setBlocked(int x, int y) {
+        version++;
+        write(x, y, true);
+    }
+    
+    /**
+     * Mark one cell as walkable.
+     * @param x map x-coordinate, 0 to 255.
+     * @param y map y-coordinate, 0 to 255.
+     */
+    public void clear(int x, int y) {
+        version++;
+        write(x, y, false);
+    }
+    
+    /**
+     * Mark a rectangle of cells as non-walkable or walkable. Each row and
+     * column of the rectangle is written a word at a time.
+     * @param x map x-coordinate of the left column.
+     * @param y map y-coordinate of the top row.
+     * @param width number of columns.
+     * @param height number of rows.
+     * @param blocked true for non-walkable, false for walkable.
+     */
+    public void setRect(int x, int y, int width, int height, boolean blocked) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        version++;
+        for (int row = y; row < y + height; row++) {
+            writeRun(mapX[row], x, x + width - 1, blocked);
+            for (int w = x >>> 6; w <= (x + width - 1) >>> 6; w++) {
+                stamps[row << 2 | w] = version;
+            }
+        }
+        for (int column = x; column < x + width; column++) {
+            writeRun(mapY[column], y, y + height - 1, blocked);
+        }
+    }
+    
+    /**
+     * Apply several changes as one: the version is incremented once.
+     * @param blocked packed points (y << 8 | x) to mark as non-walkable.
+     * @param cleared packed points (y << 8 | x) to mark as walkable; applied
+     * after blocked.
+     */
+    public void applyBatch(int[] blocked, int[] cleared) {
+        version++;
+        for (int p : blocked) {
+            write(p & 0xFF, p >>> 8, true);
+        }
+        for (int p : cleared) {
+            write(p & 0xFF, p >>> 8, false);
+        }
+    }
+    
+    /**
+     * @param since a version of this map.
+     * @param y map y-coordinate of a row.
+     * @param word index of a word of the row in mapX, 0 to 3.
+     * @return true if the word may have changed after version since.
+     */
+    public boolean changedSince(int since, int y, int word) {
+        return stamps[y << 2 | word] - since > 0 || allChanged - since > 0;
+    }
+    
+    /**
+     * @param since a version of this map.
+     * @return true if changed() has been called after version since, so
+     * every word must be treated as changed.
+     */
+    public boolean allChangedSince(int since) {
+        return allChanged - since > 0;
+    }
+    
+    /**
+     * Write one cell to both arrays, with the current version.
+     */
+    private void write(int x, int y, boolean blocked) {
+        long bitX = 1L << (63 - (x & 63));
+        long bitY = 1L << (63 - (y & 63));
+        if (blocked) {
+            mapX[y][x >>> 6] |= bitX;
+            mapY[x][y >>> 6] |= bitY;
+        } else {
+            mapX[y][x >>> 6] &= ~bitX;
+            mapY[x][y >>> 6] &= ~bitY;
+        }
+        stamps[y << 2 | x >>> 6] = version;
+    }
+    
+    /**
+     * Set or clear bits from to last, inclusive, of a line of four words.
+     */
+    private static void writeRun(long[] line, int from, int last, boolean blocked) {
+        for (int w = from >>> 6; w <= last >>> 6; w++) {
+            int lo = Math.max(from, w << 6) & 63;
+            int hi = Math.min(last, (w << 6) + 63) & 63;
+            long mask = (-1L >>> lo) & (-1L << (63 - hi));
+            if (blocked) {
+                line[w] |= mask;
+            } else {
+                line[w] &= ~mask;
+            }
+        }
+    }
+    
+    /**
+     * Build the distance field of this map from one or more sources.
+     * @param sources packed source points in map coords, y << 8 | x.
+     * @return step distances from the nearest source to every cell.
+     */
+    public DistanceField distanceField(int... sources) {
+        return new DistanceField(this, sources);
     }
     
     
@@ -0,0 +1,210 @@
+package navigation;
+
+import java.util.Random;
+
+/**
+ * Compact counterpart to NavTools. The four distance methods return exactly
+ * what the lookup-table versions in NavTools return, but they are written with
+ * Long.numberOfTrailingZeros and Long.numberOfLeadingZeros so that each method
+ * stays far below HotSpot's HugeMethodLimit and is compiled by the JIT. The
+ * table versions are several thousand lines each and never leave the
+ * interpreter on a stock JVM.
+ *
+ * Like NavTools, a scan looks at no more than three longs: the long holding
+ * the current position and the next two in the direction of the scan. The
+ * edges of the map are treated as set bits.
+ *
+ * @author David
+ */
+public final class NavToolsCompact {
+
+    private NavToolsCompact() {
+    }
+
+    /**
+     * Find the number of trailing zeroes in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next set bit.
+     */
+    public static int distanceLeft(int x, int y, long[][] map) {
+        long[] row = map[y];
+        int shift = 63 - (x & 63);  // Amount to shift the first long's bits.
+        x >>>= 6;                   // X-index of the first long in the array.
+
+        long i = row[x] >>> shift;
+        if (i != 0) {
+            return Long.numberOfTrailingZeros(i);
+        }
+        if (x == 0) {
+            return 64 - shift;
+        }
+        i = row[x-1];
+        if (i != 0) {
+            return 64 - shift + Long.numberOfTrailingZeros(i);
+        }
+        if (x == 1) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfTrailingZeros(row[x-2]);
+    }
+
+    /**
+     * Find the number of leading zeroes in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next set bit.
+     */
+    public static int distanceRight(int x, int y, long[][] map) {
+        long[] row = map[y];
+        int shift = x & 63;
+        x >>>= 6;
+
+        long i = row[x] << shift;
+        if (i != 0) {
+            return Long.numberOfLeadingZeros(i);
+        }
+        if (x == 3) {
+            return 64 - shift;
+        }
+        i = row[x+1];
+        if (i != 0) {
+            return 64 - shift + Long.numberOfLeadingZeros(i);
+        }
+        if (x == 2) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfLeadingZeros(row[x+2]);
+    }
+
+    /**
+     * Find the number of trailing ones in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next unset bit.
+     */
+    public static int distanceVoidLeft(int x, int y, long[][] map) {
+        long[] row = map[y];
+        int shift = 63 - (x & 63);
+        x >>>= 6;
+
+        long i = ~row[x] >>> shift;
+        if (i != 0) {
+            return Long.numberOfTrailingZeros(i);
+        }
+        if (x == 0) {
+            return 64 - shift;
+        }
+        i = ~row[x-1];
+        if (i != 0) {
+            return 64 - shift + Long.numberOfTrailingZeros(i);
+        }
+        if (x == 1) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfTrailingZeros(~row[x-2]);
+    }
+
+    /**
+     * Find the number of leading ones in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate & y-index of the first long in the 2D array.
+     * @param map 2D array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next unset bit.
+     */
+    public static int distanceVoidRight(int x, int y, long[][] map) {
+        long[] row = map[y];
+        int shift = x & 63;
+        x >>>= 6;
+
+        long i = ~row[x] << shift;
+        if (i != 0) {
+            return Long.numberOfLeadingZeros(i);
+        }
+        if (x == 3) {
+            return 64 - shift;
+        }
+        i = ~row[x+1];
+        if (i != 0) {
+            return 64 - shift + Long.numberOfLeadingZeros(i);
+        }
+        if (x == 2) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfLeadingZeros(~row[x+2]);
+    }
+
+    /**
+     * Differential check of every method in this class against the lookup
+     * tables in NavTools. Each seeded map is filled at a different obstacle
+     * density, and every (x, y) position of every map is compared.
+     * @param args optional number of random maps to check (default 200).
+     */
+    public static void main(String[] args) {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Random random = new Random(67);
+        int mismatches = 0;
+
+        for (int m = 0; m < maps; m++) {
+            long[][] map;
+            switch (m % 4) {
+                case 0:     // Uniform density from 0% to 100%.
+                    map = TestMaps.random(random, (m / 4) % 11 / 10.0);
+                    break;
+                case 1:     // Raw random words.
+                    map = new long[256][4];
+                    for (int y = 0; y < 256; y++) {
+                        for (int w = 0; w < 4; w++) {
+                            map[y][w] = random.nextLong();
+                        }
+                    }
+                    break;
+                case 2:     // Single bits near word boundaries.
+                    map = new long[256][4];
+                    for (int y = 0; y < 256; y++) {
+                        int x = (random.nextInt(4) * 64 + 62 + random.nextInt(4)) & 255;
+                        map[y][x/64] |= 1L << (63-(x % 64));
+                    }
+                    break;
+                default:    // Whole words empty or full.
+                    map = new long[256][4];
+                    for (int y = 0; y < 256; y++) {
+                        for (int w = 0; w < 4; w++) {
+                            map[y][w] = random.nextBoolean() ? 0 : -1L;
+                        }
+                    }
+                    break;
+            }
+
+            for (int y = 0; y < 256; y++) {
+                for (int x = 0; x < 256; x++) {
+                    mismatches += compare("distanceLeft", x, y,
+                            NavTools.distanceLeft(x, y, map), distanceLeft(x, y, map));
+                    mismatches += compare("distanceRight", x, y,
+                            NavTools.distanceRight(x, y, map), distanceRight(x, y, map));
+                    mismatches += compare("distanceVoidLeft", x, y,
+                            NavTools.distanceVoidLeft(x, y, map), distanceVoidLeft(x, y, map));
+                    mismatches += compare("distanceVoidRight", x, y,
+                            NavTools.distanceVoidRight(x, y, map), distanceVoidRight(x, y, map));
+                }
+            }
+        }
+
+        System.out.println(maps + " maps checked, " + mismatches + " mismatches");
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+
+    private static int compare(String method, int x, int y, int expected, int actual) {
+        if (expected == actual) {
+            return 0;
+        }
+        System.out.println(method + "(" + x + ", " + y + "): NavTools = "
+                + expected + ", NavToolsCompact = " + actual);
+        return 1;
+    }
+}
@@ -0,0 +1,198 @@
+package navigation;
+
+import java.util.Random;
+
+/**
+ * NavToolsCompact for maps stored in one flat array.
+ *
+ * Map.mapX is a long[256][4]: 256 separate row arrays, each with its own
+ * header, so every scan first loads the row reference and then the word.
+ * A flat map holds the same words in a single long[1024], row after row,
+ * with word w of row y at index y << 2 | w. A scan reads its words straight
+ * from one array, and neighbouring rows sit next to each other in memory,
+ * which suits the diagonal loop of Navigation: it scans row y and then row
+ * y - 1 or y + 1 on every step.
+ *
+ * The four distance methods return exactly what the methods of the same
+ * name in NavToolsCompact return for the jagged map that flatten was given.
+ * The same layout serves for Map.mapY, with a column in place of a row.
+ *
+ * @author David
+ */
+public final class NavToolsFlat {
+
+    public static final int STRIDE = 4;     // Words per row.
+
+    private NavToolsFlat() {
+    }
+
+    /**
+     * Copy a map into the flat layout.
+     * @param map 256 rows of 4 words, as Map.mapX or Map.mapY.
+     * @return the same words in one long[1024], word w of row y at y << 2 | w.
+     */
+    public static long[] flatten(long[][] map) {
+        long[] flat = new long[map.length * STRIDE];
+        for (int y = 0; y < map.length; y++) {
+            System.arraycopy(map[y], 0, flat, y * STRIDE, STRIDE);
+        }
+        return flat;
+    }
+
+    /**
+     * Find the number of trailing zeroes in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate.
+     * @param map flat array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next set bit.
+     */
+    public static int distanceLeft(int x, int y, long[] map) {
+        int shift = 63 - (x & 63);  // Amount to shift the first long's bits.
+        int w = x >>> 6;            // Word of the current position within the row.
+        int i = y << 2 | w;         // Index of that word in the array.
+
+        long bits = map[i] >>> shift;
+        if (bits != 0) {
+            return Long.numberOfTrailingZeros(bits);
+        }
+        if (w == 0) {
+            return 64 - shift;
+        }
+        bits = map[i-1];
+        if (bits != 0) {
+            return 64 - shift + Long.numberOfTrailingZeros(bits);
+        }
+        if (w == 1) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfTrailingZeros(map[i-2]);
+    }
+
+    /**
+     * Find the number of leading zeroes in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate.
+     * @param map flat array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next set bit.
+     */
+    public static int distanceRight(int x, int y, long[] map) {
+        int shift = x & 63;
+        int w = x >>> 6;
+        int i = y << 2 | w;
+
+        long bits = map[i] << shift;
+        if (bits != 0) {
+            return Long.numberOfLeadingZeros(bits);
+        }
+        if (w == 3) {
+            return 64 - shift;
+        }
+        bits = map[i+1];
+        if (bits != 0) {
+            return 64 - shift + Long.numberOfLeadingZeros(bits);
+        }
+        if (w == 2) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfLeadingZeros(map[i+2]);
+    }
+
+    /**
+     * Find the number of trailing ones in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate.
+     * @param map flat array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next unset bit.
+     */
+    public static int distanceVoidLeft(int x, int y, long[] map) {
+        int shift = 63 - (x & 63);
+        int w = x >>> 6;
+        int i = y << 2 | w;
+
+        long bits = ~map[i] >>> shift;
+        if (bits != 0) {
+            return Long.numberOfTrailingZeros(bits);
+        }
+        if (w == 0) {
+            return 64 - shift;
+        }
+        bits = ~map[i-1];
+        if (bits != 0) {
+            return 64 - shift + Long.numberOfTrailingZeros(bits);
+        }
+        if (w == 1) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfTrailingZeros(~map[i-2]);
+    }
+
+    /**
+     * Find the number of leading ones in the long at the current position.
+     * @param x current x-coordinate.
+     * @param y current y-coordinate.
+     * @param map flat array of longs representing the map based on set bits.
+     * @return number of bits between current position and the next unset bit.
+     */
+    public static int distanceVoidRight(int x, int y, long[] map) {
+        int shift = x & 63;
+        int w = x >>> 6;
+        int i = y << 2 | w;
+
+        long bits = ~map[i] << shift;
+        if (bits != 0) {
+            return Long.numberOfLeadingZeros(bits);
+        }
+        if (w == 3) {
+            return 64 - shift;
+        }
+        bits = ~map[i+1];
+        if (bits != 0) {
+            return 64 - shift + Long.numberOfLeadingZeros(bits);
+        }
+        if (w == 2) {
+            return 128 - shift;
+        }
+        return 128 - shift + Long.numberOfLeadingZeros(~map[i+2]);
+    }
+
+    /**
+     * Differential check of every method in this class against
+     * NavToolsCompact on the jagged form of each map, at every (x, y).
+     * @param args optional number of random maps to check (default 100).
+     */
+    public static void main(String[] args) {
+        int maps = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Random random = new Random(19);
+        int mismatches = 0;
+        for (int m = 0; m < maps; m++) {
+            long[][] map;
+            if (m % 2 == 0) {
+                map = new long[256][4];
+                for (long[] row : map) {
+                    for (int w = 0; w < 4; w++) {
+                        row[w] = random.nextLong();     // Raw random words.
+                    }
+                }
+            } else {
+                map = TestMaps.random(random, m % 11 / 10.0);
+            }
+            long[] flat = flatten(map);
+            for (int y = 0; y < 256; y++) {
+                for (int x = 0; x < 256; x++) {
+                    if (NavToolsCompact.distanceLeft(x, y, map) != distanceLeft(x, y, flat)
+                            || NavToolsCompact.distanceRight(x, y, map) != distanceRight(x, y, flat)
+                            || NavToolsCompact.distanceVoidLeft(x, y, map) != distanceVoidLeft(x, y, flat)
+                            || NavToolsCompact.distanceVoidRight(x, y, map) != distanceVoidRight(x, y, flat)) {
+                        System.out.println("mismatch at (" + x + ", " + y + ") on map " + m);
+                        mismatches++;
+                    }
+                }
+            }
+        }
+
+        System.out.println(maps + " maps checked, " + mismatches + " mismatches");
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -69,15 +69,61 @@ public class Navigation {
     
     Map map;
     Queue q;
-    
+    ScanEngine scan;    // Implementation of the bit scans used by getPath.
+    OpenList open;      // Priority structure of the open list.
+    CostModel cost;     // Model behind the heuristic.
+    int expanded;       // Nodes popped from the queue by the last search.
+    SearchContext context;  // Visited cells, reused by every search.
+    Components components;  // Reachability of goals, rebuilt when the map changes.
+
     public Navigation(int x, int y) {
+        this(x, y, ScanEngine.DEFAULT);
+    }
+
+    /**
+     * Constructor with an explicit choice of bit scan implementation.
+     * @param x - Best approximation for the X-midpoint of the real map.
+     * @param y - Best approximation for the Y-midpoint of the real map.
+     * @param scan - TABLES for NavTools, COMPACT for NavToolsCompact.
+     */
+    public Navigation(int x, int y, ScanEngine scan) {
+        this(x, y, scan, OpenList.DEFAULT);
+    }
+
+    /**
+     * Constructor with an explicit choice of bit scans and open list.
+     * @param x - Best approximation for the X-midpoint of the real map.
+     * @param y - Best approximation for the Y-midpoint of the real map.
+     * @param scan - TABLES for NavTools, COMPACT for NavToolsCompact.
+     * @param open - BUCKET for BucketQueue, otherwise Queue.
+     */
+    public Navigation(int x, int y, ScanEngine scan, OpenList open) {
         map = new Map(x,y);
+        this.scan = scan;
+        this.open = open;
+        cost = CostModel.DEFAULT;
+        context = new SearchContext();
+        components = new Components(map);
+    }
+
+    /**
+     * Choose the cost model behind the heuristic of later searches.
+     * @param model - CHEBYSHEV, OCTILE or MANHATTAN.
+     */
+    public void setCostModel(CostModel model) {
+        cost = model;
     }
     
     public Node getPath(int[] a, int[] b) {
-        q = new Queue(a,b);
-        while(q.front != null) {    // while the queue is not empty
+        if (!components.connected(a, b)) {
+            expanded = 0;   // The goal is walled off: no need to drain the queue.
+            return null;
+        }
+        q = open == OpenList.BUCKET ? new BucketQueue(a,b,context,cost) : new Queue(a,b,context,cost);
+        expanded = 0;
+        while(!q.isEmpty()) {       // while the queue is not empty
             Node next = q.pop();    // pop the top node on the queue
+            expanded++;
             
             // current position on the diagonal of the next Node
             int[] location = new int[] { next.location[0], next.location[1] };
@@ -95,29 +141,29 @@ public class Navigation {
                     // initialize as the distance from this node to x and y voids
                     lastStep = new int[]
                     {
-                        NavTools.distanceRight(location[0], location[1], map.mapX),
-                        NavTools.distanceLeft(location[1], location[0], map.mapY)
+                        scan.distanceRight(location[0], location[1], map.mapX),
+                        scan.distanceLeft(location[1], location[0], map.mapY)
                     };
                     
                     while (lastStep[0] != 0) { // while the current location is walkable
                         
                         // check if the goal is directly reachable from this location
                         if (q.goal[0] == location[0]) {
-                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - NavTools.distanceLeft(location[1], location[0], map.mapY)) {
+                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + NavTools.distanceRight(location[1], location[0], map.mapY)) {
+                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
                             }
                         } else if (q.goal[1] == location[1]) {
-                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - NavTools.distanceLeft(location[0], location[1], map.mapX)) {
+                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + NavTools.distanceRight(location[0], location[1], map.mapX)) {
+                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
@@ -125,8 +171,8 @@ public class Navigation {
                         }
                         
                         // step = distances to x and y voids & properly increment/decrement location
-                        step[0] = NavTools.distanceRight(++location[0], --location[1], map.mapX);
-                        step[1] = NavTools.distanceLeft(location[1], location[0], map.mapY);
+                        step[0] = scan.distanceRight(++location[0], --location[1], map.mapX);
+                        step[1] = scan.distanceLeft(location[1], location[0], map.mapY);
                             
                         // difference between last and current distances
                         int dX = step[0] - lastStep[0]; // should be -1
@@ -134,7 +180,7 @@ public class Navigation {
                         if (dX >= 0) { // if x difference is greater than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidRight(location[0]+lastStep[0]-1, location[1]+1, map.mapX);
+                            int voids = scan.distanceVoidRight(location[0]+lastStep[0]-1, location[1]+1, map.mapX);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dX - voids >= -1) {
@@ -154,7 +200,7 @@ public class Navigation {
                         } else if (dX < -1) { // if x difference is less than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidRight(location[0]+step[0], location[1], map.mapX);
+                            int voids = scan.distanceVoidRight(location[0]+step[0], location[1], map.mapX);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dX + voids < 0) {
@@ -177,7 +223,7 @@ public class Navigation {
                         if (dY >= 0) { // if y difference is greater than -1
                                 
                             // check the number of consecutive voids
-                            int voids = NavTools.distanceVoidLeft(location[1]-lastStep[1]+1, location[0]-1, map.mapY);
+                            int voids = scan.distanceVoidLeft(location[1]-lastStep[1]+1, location[0]-1, map.mapY);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dY - voids >= -1) {
@@ -197,7 +243,7 @@ public class Navigation {
                         } else if (dY < -1) { // if y difference is less than -1
                                 
                             // check the number of consecutive voids at
-                            int voids = NavTools.distanceVoidLeft(location[1]-step[1], location[0], map.mapY);
+                            int voids = scan.distanceVoidLeft(location[1]-step[1], location[0], map.mapY);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dY + voids < 0) {
@@ -224,29 +270,29 @@ public class Navigation {
                      // initialize as the distance from this node to x and y voids
                     lastStep = new int[]
                     {
-                        NavTools.distanceRight(location[0], location[1], map.mapX),
-                        NavTools.distanceRight(location[1], location[0], map.mapY)
+                        scan.distanceRight(location[0], location[1], map.mapX),
+                        scan.distanceRight(location[1], location[0], map.mapY)
                     };
                     
                     while (lastStep[0] != 0) { // while the current location is walkable
                         
                         // check if the goal is directly reachable from this location
                         if (q.goal[0] == location[0]) {
-                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - NavTools.distanceLeft(location[1], location[0], map.mapY)) {
+                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + NavTools.distanceRight(location[1], location[0], map.mapY)) {
+                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
                             }
                         } else if (q.goal[1] == location[1]) {
-                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - NavTools.distanceLeft(location[0], location[1], map.mapX)) {
+                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + NavTools.distanceRight(location[0], location[1], map.mapX)) {
+                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
@@ -254,8 +300,8 @@ public class Navigation {
                         }
                         
                         // step = distances to x and y voids & properly increment/decrement location
-                        step[0] = NavTools.distanceRight(++location[0], ++location[1], map.mapX);
-                        step[1] = NavTools.distanceRight(location[1], location[0], map.mapY);
+                        step[0] = scan.distanceRight(++location[0], ++location[1], map.mapX);
+                        step[1] = scan.distanceRight(location[1], location[0], map.mapY);
                             
                         // difference between last and current distances
                         int dX = step[0] - lastStep[0]; // should be -1
@@ -263,7 +309,7 @@ public class Navigation {
                         if (dX >= 0) { // if x difference is greater than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidRight(location[0]+lastStep[0]-1, location[1]-1, map.mapX);
+                            int voids = scan.distanceVoidRight(location[0]+lastStep[0]-1, location[1]-1, map.mapX);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dX - voids >= -1) {
@@ -283,7 +329,7 @@ public class Navigation {
                         } else if (dX < -1) { // if x difference is less than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidRight(location[0]+step[0], location[1], map.mapX);
+                            int voids = scan.distanceVoidRight(location[0]+step[0], location[1], map.mapX);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dX + voids < 0) {
@@ -306,7 +352,7 @@ public class Navigation {
                         if (dY >= 0) { // if y difference is greater than -1
                                 
                             // check the number of consecutive voids
-                            int voids = NavTools.distanceVoidRight(location[1]+lastStep[1]-1, location[0]-1, map.mapY);
+                            int voids = scan.distanceVoidRight(location[1]+lastStep[1]-1, location[0]-1, map.mapY);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dY - voids >= -1) {
@@ -326,7 +372,7 @@ public class Navigation {
                         } else if (dY < -1) { // if y difference is less than -1
                                 
                             // check the number of consecutive voids at
-                            int voids = NavTools.distanceVoidRight(location[1]+step[1], location[0], map.mapY);
+                            int voids = scan.distanceVoidRight(location[1]+step[1], location[0], map.mapY);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dY + voids < 0) {
@@ -353,29 +399,29 @@ public class Navigation {
                      // initialize as the distance from this node to x and y voids
                     lastStep = new int[]
                     {
-                        NavTools.distanceLeft(location[0], location[1], map.mapX),
-                        NavTools.distanceRight(location[1], location[0], map.mapY)
+                        scan.distanceLeft(location[0], location[1], map.mapX),
+                        scan.distanceRight(location[1], location[0], map.mapY)
                     };
                     
                     while (lastStep[0] != 0) { // while the current location is walkable
                         
                         // check if the goal is directly reachable from this location
                         if (q.goal[0] == location[0]) {
-                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - NavTools.distanceLeft(location[1], location[0], map.mapY)) {
+                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + NavTools.distanceRight(location[1], location[0], map.mapY)) {
+                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
                             }
                         } else if (q.goal[1] == location[1]) {
-                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - NavTools.distanceLeft(location[0], location[1], map.mapX)) {
+                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + NavTools.distanceRight(location[0], location[1], map.mapX)) {
+                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
@@ -383,8 +429,8 @@ public class Navigation {
                         }
                         
                         // step = distances to x and y voids & properly increment/decrement location
-                        step[0] = NavTools.distanceLeft(--location[0], ++location[1], map.mapX);
-                        step[1] = NavTools.distanceRight(location[1], location[0], map.mapY);
+                        step[0] = scan.distanceLeft(--location[0], ++location[1], map.mapX);
+                        step[1] = scan.distanceRight(location[1], location[0], map.mapY);
                             
                         // difference between last and current distances
                         int dX = step[0] - lastStep[0]; // should be -1
@@ -392,7 +438,7 @@ public class Navigation {
                         if (dX >= 0) { // if x difference is greater than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidLeft(location[0]-lastStep[0]+1, location[1]-1, map.mapX);
+                            int voids = scan.distanceVoidLeft(location[0]-lastStep[0]+1, location[1]-1, map.mapX);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dX - voids >= -1) {
@@ -412,7 +458,7 @@ public class Navigation {
                         } else if (dX < -1) { // if x difference is less than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidLeft(location[0]-step[0], location[1], map.mapX);
+                            int voids = scan.distanceVoidLeft(location[0]-step[0], location[1], map.mapX);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dX + voids < 0) {
@@ -435,7 +481,7 @@ public class Navigation {
                         if (dY >= 0) { // if y difference is greater than -1
                                 
                             // check the number of consecutive voids
-                            int voids = NavTools.distanceVoidRight(location[1]+lastStep[1]-1, location[0]+1, map.mapY);
+                            int voids = scan.distanceVoidRight(location[1]+lastStep[1]-1, location[0]+1, map.mapY);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dY - voids >= -1) {
@@ -455,7 +501,7 @@ public class Navigation {
                         } else if (dY < -1) { // if y difference is less than -1
                                 
                             // check the number of consecutive voids at
-                            int voids = NavTools.distanceVoidRight(location[1]+step[1], location[0], map.mapY);
+                            int voids = scan.distanceVoidRight(location[1]+step[1], location[0], map.mapY);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dY + voids < 0) {
@@ -482,29 +528,29 @@ public class Navigation {
                     // initialize as the distance from this node to x and y voids
                     lastStep = new int[]
                     {
-                        NavTools.distanceLeft(location[0], location[1], map.mapX),
-                        NavTools.distanceLeft(location[1], location[0], map.mapY)
+                        scan.distanceLeft(location[0], location[1], map.mapX),
+                        scan.distanceLeft(location[1], location[0], map.mapY)
                     };
                     
                     while (lastStep[0] != 0) { // while the current location is walkable
                         
                         // check if the goal is directly reachable from this location
                         if (q.goal[0] == location[0]) {
-                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - NavTools.distanceLeft(location[1], location[0], map.mapY)) {
+                            if (q.goal[1] <= location[1] && q.goal[1] >= location[1] - scan.distanceLeft(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + NavTools.distanceRight(location[1], location[0], map.mapY)) {
+                            } else if (q.goal[1] >= location[1] && q.goal[1] <= location[1] + scan.distanceRight(location[1], location[0], map.mapY)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
                             }
                         } else if (q.goal[1] == location[1]) {
-                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - NavTools.distanceLeft(location[0], location[1], map.mapX)) {
+                            if (q.goal[0] <= location[0] && q.goal[0] >= location[0] - scan.distanceLeft(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
-                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + NavTools.distanceRight(location[0], location[1], map.mapX)) {
+                            } else if (q.goal[0] >= location[0] && q.goal[0] <= location[0] + scan.distanceRight(location[0], location[1], map.mapX)) {
                                 next.mapNext = new Node(q.goal,location,next,0,0);
                                 next.mapNext.mapLast = next;
                                 return q.retrace(next);
@@ -512,8 +558,8 @@ public class Navigation {
                         }
                         
                         // step = distances to x and y voids & properly increment/decrement location
-                        step[0] = NavTools.distanceLeft(--location[0], --location[1], map.mapX);
-                        step[1] = NavTools.distanceLeft(location[1], location[0], map.mapY);
+                        step[0] = scan.distanceLeft(--location[0], --location[1], map.mapX);
+                        step[1] = scan.distanceLeft(location[1], location[0], map.mapY);
                             
                         // difference between last and current distances
                         int dX = step[0] - lastStep[0]; // should be -1
@@ -521,7 +567,7 @@ public class Navigation {
                         if (dX >= 0) { // if x difference is greater than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidLeft(location[0]-lastStep[0]+1, location[1]+1, map.mapX);
+                            int voids = scan.distanceVoidLeft(location[0]-lastStep[0]+1, location[1]+1, map.mapX);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dX - voids >= -1) {
@@ -541,7 +587,7 @@ public class Navigation {
                         } else if (dX < -1) { // if x difference is less than -1
                                 
                             // check the number of consecutive voids at x-1+distanceRight, y-1
-                            int voids = NavTools.distanceVoidLeft(location[0]-step[0], location[1], map.mapX);
+                            int voids = scan.distanceVoidLeft(location[0]-step[0], location[1], map.mapX);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dX + voids < 0) {
@@ -564,7 +610,7 @@ public class Navigation {
                         if (dY >= 0) { // if y difference is greater than -1
                                 
                             // check the number of consecutive voids
-                            int voids = NavTools.distanceVoidLeft(location[1]-lastStep[1]+1, location[0]+1, map.mapY);
+                            int voids = scan.distanceVoidLeft(location[1]-lastStep[1]+1, location[0]+1, map.mapY);
                             
                             // if the new difference is greater than 0, add a new Node to the queue
                             if (dY - voids >= -1) {
@@ -584,7 +630,7 @@ public class Navigation {
                         } else if (dY < -1) { // if y difference is less than -1
                                 
                             // check the number of consecutive voids at
-                            int voids = NavTools.distanceVoidLeft(location[1]-step[1], location[0], map.mapY);
+                            int voids = scan.distanceVoidLeft(location[1]-step[1], location[0], map.mapY);
                             
                             // if the new difference is greater than or equal to 0, add a new Node to the queue
                             if (dY + voids < 0) {
@@ -624,8 +670,8 @@ public class Navigation {
             case 1:     // NE
                 step = new int[] 
                 {
-                    NavTools.distanceLeft(node.location[0], node.location[1], map.mapY),
-                    NavTools.distanceLeft(node.location[0], node.location[1], map.mapX)
+                    scan.distanceLeft(node.location[0], node.location[1], map.mapY),
+                    scan.distanceLeft(node.location[0], node.location[1], map.mapX)
                 };
                 break;
             case 3:     // SE
@@ -0,0 +1,345 @@
+package navigation;
+
+import java.util.Arrays;
+
+/**
+ * Jump Point Search in all eight directions with octile costs.
+ *
+ * JumpSearch, like getPath in Navigation, only searches along the four
+ * diagonals and finds straight moves through its goal-in-line checks. This
+ * search also jumps along rows and columns, so a corridor costs one jump
+ * point per turn instead of a zigzag of diagonal ones, and the paths it
+ * returns are optimal.
+ *
+ * Moves follow the usual rules for grids where a diagonal step may not cut a
+ * corner: it needs both cells it passes between to be walkable. Under those
+ * rules:
+ *
+ * - A straight jump stops at the first cell beside which a wall ends, because
+ *   that cell is the only short way into the space behind the wall. Along a
+ *   row, the end of a wall in the row above or below is found with two bit
+ *   scans: distanceLeft/Right to the start of the wall, then
+ *   distanceVoidLeft/Right across it. A straight jump is therefore a
+ *   handful of scans whatever its length.
+ * - A diagonal jump stops at the first cell from which one of its two
+ *   straight jumps would stop.
+ *
+ * A straight step costs STRAIGHT and a diagonal step DIAGONAL, the costs of
+ * CostModel.OCTILE, so g and h here are those of the bucket and heap
+ * searches under that model. Every jump is a straight
+ * or diagonal line, so no waypoints are stored. The direction of a jump
+ * point is the 8-direction compass of Navigation.move (north = 0, east = 2,
+ * south = 4, west = 6).
+ *
+ * @author David
+ */
+public class OctileJumpSearch extends JumpSearch {
+
+    public static final int STRAIGHT = CostModel.STRAIGHT;
+    public static final int DIAGONAL = CostModel.DIAGONAL;
+
+    // Steps along x and y for each direction of the compass.
+    static final int[] DX = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    static final int[] DY = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+    private final int[] cellPoint;  // Best jump point at each cell, if stamped.
+    private final int[] cellStamp;  // Search that wrote each cellPoint entry.
+    private int generation;         // Number of the current search.
+
+    public OctileJumpSearch(Map map) {
+        this(map, ScanEngine.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     * @param map map to search; its bit arrays may be replaced between searches.
+     * @param scan implementation of the bit scans.
+     */
+    public OctileJumpSearch(Map map, ScanEngine scan) {
+        this(map, scan, new SearchContext());
+    }
+
+    /**
+     * Constructor sharing a record of closed cells.
+     * @param map map to search; its bit arrays may be replaced between searches.
+     * @param scan implementation of the bit scans.
+     * @param context record of closed cells.
+     */
+    public OctileJumpSearch(Map map, ScanEngine scan, SearchContext context) {
+        super(map, scan, context);
+        cellPoint = new int[65536];
+        cellStamp = new int[65536];
+    }
+
+    /**
+     * Search for a shortest path.
+     * @param start packed start point, y << 8 | x.
+     * @param goal packed goal point, y << 8 | x.
+     * @return index of the jump point at the goal, or -1 if there is no path.
+     */
+    @Override
+    public int search(int start, int goal) {
+        begin(start, goal);
+        while (size != 0) {
+            int next = pop();
+            if (!close(next)) {
+                continue;   // A shorter route to this cell was found later.
+            }
+            if (x[next] == goalX && y[next] == goalY) {
+                return next;
+            }
+            successors(next);
+        }
+        return -1;
+    }
+
+    /**
+     * Start a search: clear the open list and push the start.
+     * @return index of the jump point at the start.
+     */
+    int begin(int start, int goal) {
+        visited.begin();
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(cellStamp, 0);
+            generation = 1;
+        }
+        count = 0;
+        size = 0;
+        expanded = 0;
+        goalX = goal & 0xFF;
+        goalY = goal >>> 8;
+
+        int sx = start & 0xFF;
+        int sy = start >>> 8;
+        int first = create(sx, sy, 0, heuristic(sx, sy), -1, -1, -1);
+        cellStamp[start] = generation;
+        cellPoint[start] = first;
+        push(first);
+        return first;
+    }
+
+    /**
+     * Close the cell of a jump point taken from the open list.
+     * @return false if the jump point is stale: its cell is closed, or a
+     * shorter route to it was found later.
+     */
+    boolean close(int jp) {
+        int index = y[jp] << 8 | x[jp];
+        if (cellPoint[index] != jp || visited.get(index) == -1) {
+            return false;
+        }
+        visited.set(index, -1);
+        expanded++;
+        return true;
+    }
+
+    /**
+     * Jump from a closed jump point in every direction its arrival allows.
+     */
+    void successors(int next) {
+        int px = x[next];
+        int py = y[next];
+        int d = direction[next];
+        if (d == -1) {
+            for (int i = 0; i < 8; i++) {
+                jump(next, DX[i], DY[i]);
+            }
+            return;
+        }
+
+        int dx = DX[d];
+        int dy = DY[d];
+        if (dx != 0 && dy != 0) {
+            // Diagonal: continue straight along both axes and diagonally.
+            jump(next, dx, 0);
+            jump(next, 0, dy);
+            jump(next, dx, dy);
+        } else if (dx != 0) {
+            // Along a row: continue, and turn toward any open side.
+            jump(next, dx, 0);
+            if (!blocked(px, py - 1)) {
+                jump(next, dx, -1);
+                jump(next, 0, -1);
+            }
+            if (!blocked(px, py + 1)) {
+                jump(next, dx, 1);
+                jump(next, 0, 1);
+            }
+        } else {
+            // Along a column.
+            jump(next, 0, dy);
+            if (!blocked(px - 1, py)) {
+                jump(next, -1, dy);
+                jump(next, -1, 0);
+            }
+            if (!blocked(px + 1, py)) {
+                jump(next, 1, dy);
+                jump(next, 1, 0);
+            }
+        }
+    }
+
+    /**
+     * Jump from a jump point in one direction and insert the jump point found,
+     * if any.
+     */
+    void jump(int from, int dx, int dy) {
+        int px = x[from];
+        int py = y[from];
+        if (dy == 0) {
+            int k = straight(px, py, dx, map.mapX, goalY == py ? goalX : -1);
+            if (k != 0) {
+                insert(px + dx * k, py, from, compass(dx, 0), STRAIGHT * k);
+            }
+            return;
+        }
+        if (dx == 0) {
+            int k = straight(py, px, dy, map.mapY, goalX == px ? goalY : -1);
+            if (k != 0) {
+                insert(px, py + dy * k, from, compass(0, dy), STRAIGHT * k);
+            }
+            return;
+        }
+
+        long[][] mapX = map.mapX;
+        long[][] mapY = map.mapY;
+        int cx = px;
+        int cy = py;
+        for (int k = 1; ; k++) {
+            int nx = cx + dx;
+            int ny = cy + dy;
+            if (blocked(nx, ny) || blocked(nx, cy) || blocked(cx, ny)) {
+                return;     // Stepped into a wall or would cut a corner.
+            }
+            cx = nx;
+            cy = ny;
+            if ((cx == goalX && cy == goalY)
+                    || straight(cx, cy, dx, mapX, goalY == cy ? goalX : -1) != 0
+                    || straight(cy, cx, dy, mapY, goalX == cx ? goalY : -1) != 0) {
+                insert(cx, cy, from, compass(dx, dy), DIAGONAL * k);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Jump along one line of a bit array: a row of mapX or a column of mapY.
+     * @param pos position of the jump point along the line.
+     * @param line index of the line.
+     * @param step 1 toward 255, -1 toward 0.
+     * @param bits mapX for rows, mapY for columns.
+     * @param goal position of the goal if it lies on this line, otherwise -1.
+     * @return number of steps to the jump point, or 0 if the jump finds none.
+     */
+    int straight(int pos, int line, int step, long[][] bits, int goal) {
+        int run = free(pos + step, line, step, bits);  // Walkable cells ahead.
+        if (run == 0) {
+            return 0;
+        }
+        int best = Integer.MAX_VALUE;
+        if (goal != -1) {
+            int k = (goal - pos) * step;
+            if (k > 0 && k <= run) {
+                best = k;
+            }
+        }
+        // The first wall ending beside the run, on either side.
+        for (int side = line - 1; side <= line + 1; side += 2) {
+            if ((side & ~0xFF) != 0) {
+                continue;
+            }
+            int open = free(pos, side, step, bits);
+            int wall = pos + step * open;
+            if ((wall & ~0xFF) != 0) {
+                continue;
+            }
+            int k = open + solid(wall, side, step, bits);
+            if (k < best && ((pos + step * k) & ~0xFF) == 0) {
+                best = k;
+            }
+        }
+        return best <= run ? best : 0;
+    }
+
+    /**
+     * Number of walkable cells from pos along a line, stopping at the first
+     * wall or the edge of the map. Scans that stop at their three-long limit
+     * in open space are continued.
+     */
+    int free(int pos, int line, int step, long[][] bits) {
+        int total = 0;
+        while ((pos & ~0xFF) == 0) {
+            int d = step > 0 ? scan.distanceRight(pos, line, bits) : scan.distanceLeft(pos, line, bits);
+            total += d;
+            pos += step * d;
+            if ((pos & ~0xFF) != 0 || Map.isSet(pos, line, bits)) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Number of blocked cells from pos along a line, like free.
+     */
+    int solid(int pos, int line, int step, long[][] bits) {
+        int total = 0;
+        while ((pos & ~0xFF) == 0) {
+            int d = step > 0 ? scan.distanceVoidRight(pos, line, bits) : scan.distanceVoidLeft(pos, line, bits);
+            total += d;
+            pos += step * d;
+            if ((pos & ~0xFF) != 0 || !Map.isSet(pos, line, bits)) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Create a jump point unless its cell is closed or already has a route
+     * at least as short.
+     */
+    void insert(int nx, int ny, int from, int d, int cost) {
+        int index = ny << 8 | nx;
+        if (visited.get(index) == -1) {
+            return;
+        }
+        int gNew = g[from] + cost;
+        if (cellStamp[index] == generation && g[cellPoint[index]] <= gNew) {
+            return;
+        }
+        int jp = create(nx, ny, gNew, gNew + heuristic(nx, ny), d, from, -1);
+        cellStamp[index] = generation;
+        cellPoint[index] = jp;
+        push(jp);
+    }
+
+    /**
+     * Octile distance to the goal in units of STRAIGHT.
+     */
+    @Override
+    int heuristic(int px, int py) {
+        int dx = Math.abs(px - goalX);
+        int dy = Math.abs(py - goalY);
+        return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT) * Math.min(dx, dy);
+    }
+
+    /**
+     * @return true if the cell is blocked or off the map.
+     */
+    boolean blocked(int px, int py) {
+        return ((px | py) & ~0xFF) != 0 || Map.isSet(px, py, map.mapX);
+    }
+
+    /**
+     * @return compass direction of the step (dx, dy), north = 0.
+     */
+    static int compass(int dx, int dy) {
+        for (int i = 0; i < 8; i++) {
+            if (DX[i] == dx && DY[i] == dy) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,39 @@
+package navigation;
+
+/**
+ * Selects which priority structure holds the open list of a search.
+ *
+ * - ORDERED keeps the comparison-based structures: the sorted linked list of
+ *   Queue and the binary heap of bytecodeNav.Heap.
+ * - BUCKET keeps one bucket per integer score and finds the lowest occupied
+ *   bucket with a bit scan (BucketQueue and bytecodeNav.BucketHeap).
+ * - INDEXED keeps one entry per location and direction in a 4-ary heap with
+ *   decrease-key (bytecodeNav.IndexedHeap). Queue orders Nodes by h(n) alone,
+ *   which never changes for a location, so navigation.Navigation keeps the
+ *   sorted Queue for INDEXED.
+ *
+ * The default is read from the system property "navigation.open" ("ordered",
+ * "bucket" or "indexed") and falls back to ORDERED.
+ *
+ * @author David
+ */
+public enum OpenList {
+
+    ORDERED,
+    BUCKET,
+    INDEXED;
+
+    /**
+     * Open list used by a search that is not given one explicitly.
+     */
+    public static final OpenList DEFAULT = fromProperty(System.getProperty("navigation.open"));
+
+    private static OpenList fromProperty(String value) {
+        for (OpenList list : values()) {
+            if (list.name().equalsIgnoreCase(value)) {
+                return list;
+            }
+        }
+        return ORDERED;
+    }
+}
@@ -0,0 +1,398 @@
+package navigation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * Directory of files holding data precomputed for a map: jump tables,
+ * component labels and distance fields.
+ *
+ * Each map has one file, named after a hash of its mapX. Files are opened
+ * with FileChannel.map, so loading one costs a few page mappings instead of
+ * a rebuild, and every JVM on a host that maps the same file shares its
+ * pages. Data that is not in the file yet is built, added to the file and
+ * returned.
+ *
+ * File layout, little-endian:
+ *
+ *     offset  size
+ *          0     4  MAGIC
+ *          4     4  VERSION
+ *          8     8  hash of mapX
+ *         16     4  number of sections, n
+ *         20     4  unused
+ *         24  16*n  per section: tag (4), unused (4), offset (4), length (4)
+ *
+ * Sections start on 8-byte boundaries. A map's file holds at most one JUMPS
+ * and one LABELS section, and one DISTANCE section per source cell cached;
+ * the tag of a DISTANCE section is DISTANCE << 16 | source. Each store
+ * rewrites the whole file, so cache distance fields for a few fixed sources,
+ * such as bases, not for every goal of every search. Every file has a MAP section holding
+ * mapX, which is compared in full on load, so a hash collision reads as a
+ * miss rather than another map's data. A file with another magic or version
+ * is ignored and replaced.
+ *
+ * Files are written to a temporary name and moved into place, so another
+ * process never maps a half-written file. Two processes building the same
+ * data at once both write it, and the last move wins.
+ *
+ * The directory used by default is read from the system property
+ * "navigation.cache"; without it DEFAULT is null and nothing is cached.
+ *
+ * @author David
+ */
+public class PrecomputeCache {
+
+    public static final int MAGIC = 0x5056414E;     // "NAVP" in little-endian order.
+    public static final int VERSION = 1;
+
+    // Section tags.
+    public static final int MAP = 1;                // mapX, 1024 longs row by row.
+    public static final int JUMPS = 2;              // JumpTable entries, shorts.
+    public static final int LABELS = 3;             // Components labels, ints.
+    public static final int DISTANCE = 4;           // DistanceField of one source, shorts.
+
+    private static final int HEADER = 24;
+    private static final int ENTRY = 16;
+
+    public static final PrecomputeCache DEFAULT = fromProperty(System.getProperty("navigation.cache"));
+
+    private final File directory;
+
+    /**
+     * @param directory directory of the cache files; created when first written.
+     */
+    public PrecomputeCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param name directory name, or null.
+     * @return a cache in that directory, or null if name is null.
+     */
+    static PrecomputeCache fromProperty(String name) {
+        return name == null ? null : new PrecomputeCache(new File(name));
+    }
+
+    /**
+     * Jump table of a map, mapped from the cache file or built and stored.
+     * @param mapX row-major bit array, as in Map.mapX.
+     * @return the jump table.
+     * @throws IOException if the cache file cannot be read or written.
+     */
+    public JumpTable jumpTable(long[][] mapX) throws IOException {
+        ByteBuffer section = section(mapX, JUMPS);
+        if (section != null) {
+            return new JumpTable(section.asShortBuffer());
+        }
+        JumpTable table = new JumpTable(mapX);
+        ByteBuffer data = ByteBuffer.allocate(JumpTable.ENTRIES * 2).order(ByteOrder.LITTLE_ENDIAN);
+        data.asShortBuffer().put(table.entries());
+        store(mapX, JUMPS, data);
+        return table;
+    }
+
+    /**
+     * Components of a map, with labels copied from the cache file or built
+     * and stored. Later changes to the map are followed as by any Components.
+     * @param map map to label.
+     * @return the components.
+     * @throws IOException if the cache file cannot be read or written.
+     */
+    public Components components(Map map) throws IOException {
+        ByteBuffer section = section(map.mapX, LABELS);
+        if (section != null) {
+            return new Components(map, section.asIntBuffer());
+        }
+        Components components = new Components(map);
+        ByteBuffer data = ByteBuffer.allocate(65536 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        data.asIntBuffer().put(components.labels());
+        store(map.mapX, LABELS, data);
+        return components;
+    }
+
+    /**
+     * Distance field of one source, copied from the cache file or built and
+     * stored.
+     * @param map map to measure.
+     * @param source packed source point, y << 8 | x.
+     * @return the distance field.
+     * @throws IOException if the cache file cannot be read or written.
+     */
+    public DistanceField distanceField(Map map, int source) throws IOException {
+        int tag = DISTANCE << 16 | source;
+        ByteBuffer section = section(map.mapX, tag);
+        if (section != null) {
+            return new DistanceField(section.asShortBuffer());
+        }
+        DistanceField field = new DistanceField(map, source);
+        ByteBuffer data = ByteBuffer.allocate(65536 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        data.asShortBuffer().put(field.distances());
+        store(map.mapX, tag, data);
+        return field;
+    }
+
+    /**
+     * @param mapX row-major bit array, as in Map.mapX.
+     * @return the file holding the data of that map.
+     */
+    public File file(long[][] mapX) {
+        return new File(directory, String.format("%016x.nav", hash(mapX)));
+    }
+
+    /**
+     * Map one section of a map's file.
+     * @param mapX row-major bit array, as in Map.mapX.
+     * @param tag tag of the section.
+     * @return the section, little-endian and read-only, or null if the file
+     * is missing, stale, for another map, or has no such section.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    public ByteBuffer section(long[][] mapX, int tag) throws IOException {
+        ByteBuffer file = open(mapX);
+        return file == null ? null : find(file, tag);
+    }
+
+    /**
+     * Add a section to a map's file, keeping the sections already there
+     * under other tags.
+     * @param mapX row-major bit array, as in Map.mapX.
+     * @param tag tag of the section; not MAP.
+     * @param data contents of the section, from position to limit.
+     * @throws IOException if the file cannot be written.
+     */
+    public void store(long[][] mapX, int tag, ByteBuffer data) throws IOException {
+        if (tag == MAP) {
+            throw new IllegalArgumentException("the MAP section is written by the cache");
+        }
+        LinkedHashMap<Integer, ByteBuffer> sections = new LinkedHashMap<>();
+        ByteBuffer map = ByteBuffer.allocate(1024 * 8).order(ByteOrder.LITTLE_ENDIAN);
+        LongBuffer words = map.asLongBuffer();
+        for (long[] row : mapX) {
+            words.put(row);
+        }
+        sections.put(MAP, map);
+
+        ByteBuffer old = open(mapX);
+        if (old != null) {
+            for (int i = 0, n = old.getInt(16); i < n; i++) {
+                int oldTag = old.getInt(HEADER + ENTRY * i);
+                ByteBuffer section = find(old, oldTag);
+                if (oldTag != MAP && oldTag != tag && section != null) {
+                    sections.put(oldTag, section);
+                }
+            }
+        }
+        sections.put(tag, data.duplicate());
+
+        int offset = align(HEADER + ENTRY * sections.size());
+        int size = offset;
+        for (ByteBuffer section : sections.values()) {
+            size = align(size + section.remaining());
+        }
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putLong(hash(mapX)).putInt(sections.size()).putInt(0);
+        int i = 0;
+        for (java.util.Map.Entry<Integer, ByteBuffer> section : sections.entrySet()) {
+            ByteBuffer contents = section.getValue();
+            out.putInt(HEADER + ENTRY * i, section.getKey());
+            out.putInt(HEADER + ENTRY * i + 8, offset);
+            out.putInt(HEADER + ENTRY * i + 12, contents.remaining());
+            ((Buffer) out).position(offset);
+            out.put(contents.duplicate());
+            offset = align(offset + contents.remaining());
+            i++;
+        }
+        ((Buffer) out).clear();
+
+        directory.mkdirs();
+        File target = file(mapX);
+        Path temp = Files.createTempFile(directory.toPath(), target.getName(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        try {
+            Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Map a map's file and check its header and MAP section.
+     * @return the whole file, little-endian, or null if it is missing or not
+     * the file of this map in this version.
+     */
+    private ByteBuffer open(long[][] mapX) throws IOException {
+        File target = file(mapX);
+        if (!target.isFile()) {
+            return null;
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer file = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.limit() < HEADER || file.getInt(0) != MAGIC || file.getInt(4) != VERSION
+                || file.getLong(8) != hash(mapX)) {
+            return null;
+        }
+        int n = file.getInt(16);
+        if (n < 0 || HEADER + (long) ENTRY * n > file.limit()) {
+            return null;
+        }
+        ByteBuffer map = find(file, MAP);
+        if (map == null || map.remaining() != 1024 * 8) {
+            return null;
+        }
+        LongBuffer words = map.asLongBuffer();
+        for (long[] row : mapX) {
+            for (long word : row) {
+                if (words.get() != word) {
+                    return null;
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return the section with the given tag, or null if there is none or
+     * it does not fit in the file.
+     */
+    private static ByteBuffer find(ByteBuffer file, int tag) {
+        for (int i = 0, n = file.getInt(16); i < n; i++) {
+            int entry = HEADER + ENTRY * i;
+            if (file.getInt(entry) == tag) {
+                int offset = file.getInt(entry + 8);
+                int length = file.getInt(entry + 12);
+                if (offset < 0 || length < 0 || (long) offset + length > file.limit()) {
+                    return null;
+                }
+                // Called through Buffer: Java 9 added ByteBuffer overrides
+                // that a Java 8 runtime does not have.
+                ByteBuffer section = file.duplicate();
+                ((Buffer) section).position(offset).limit(offset + length);
+                return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return null;
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    /**
+     * 64-bit hash of the words of a row-major bit array: FNV-1a applied to
+     * whole words instead of bytes, with an xor-shift after each multiply so
+     * that the high bits of a word reach the low bits of the hash.
+     * @param mapX row-major bit array, as in Map.mapX.
+     * @return the hash.
+     */
+    public static long hash(long[][] mapX) {
+        long hash = 0xCBF29CE484222325L;
+        for (long[] row : mapX) {
+            for (long word : row) {
+                hash = (hash ^ word) * 0x100000001B3L;
+                hash ^= hash >>> 29;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Compare building jump tables, component labels and distance fields
+     * with loading them from a cache, and check that both give the same data.
+     * @param args cache directory, a temporary directory by default.
+     * @throws IOException if the cache cannot be used.
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = args.length > 0 ? new File(args[0])
+                : Files.createTempDirectory("navigation-cache").toFile();
+        PrecomputeCache cache = new PrecomputeCache(dir);
+        Random random = new Random(12);
+        int maps = 20, mismatches = 0;
+        long[] build = new long[3], store = new long[3], load = new long[3];
+        int source = 128 << 8 | 128;
+
+        for (int m = 0; m < maps; m++) {
+            Map map = new Map(128, 128);
+            for (long[] row : map.mapX) {
+                for (int w = 0; w < 4; w++) {
+                    row[w] = random.nextLong() & random.nextLong() & random.nextLong();
+                }
+            }
+            map.syncColumns();
+            long[][] mapX = map.mapX;
+            File file = cache.file(mapX);
+            file.delete();
+
+            long start = System.nanoTime();
+            JumpTable built = new JumpTable(mapX);
+            build[0] += System.nanoTime() - start;
+            start = System.nanoTime();
+            cache.jumpTable(mapX);              // Miss: builds and writes.
+            store[0] += System.nanoTime() - start;
+            start = System.nanoTime();
+            JumpTable loaded = cache.jumpTable(mapX);   // Hit: maps the file.
+            load[0] += System.nanoTime() - start;
+            if (!built.entries().equals(loaded.entries())) {
+                mismatches++;
+            }
+
+            start = System.nanoTime();
+            IntBuffer labels = new Components(map).labels();
+            build[1] += System.nanoTime() - start;
+            start = System.nanoTime();
+            cache.components(map);
+            store[1] += System.nanoTime() - start;
+            start = System.nanoTime();
+            Components components = cache.components(map);
+            load[1] += System.nanoTime() - start;
+            if (!labels.equals(components.labels())) {
+                mismatches++;
+            }
+            map.setRect(0, 100, 256, 1, true);  // Loaded labels follow changes.
+            if (!new Components(map).labels().equals(components.labels())) {
+                mismatches++;
+            }
+
+            start = System.nanoTime();
+            DistanceField field = new DistanceField(map, source);
+            build[2] += System.nanoTime() - start;
+            start = System.nanoTime();
+            cache.distanceField(map, source);
+            store[2] += System.nanoTime() - start;
+            start = System.nanoTime();
+            DistanceField cached = cache.distanceField(map, source);
+            load[2] += System.nanoTime() - start;
+            if (!field.distances().equals(cached.distances()) || field.radius() != cached.radius()) {
+                mismatches++;
+            }
+            file.delete();
+        }
+        System.out.printf("%d maps, %d mismatches%n", maps, mismatches);
+        String[] names = { "jump table", "labels", "distance" };
+        for (int i = 0; i < 3; i++) {
+            System.out.printf("%-10s  build %.2f ms, build and store %.2f ms, load %.3f ms%n",
+                    names[i], build[i] / 1e6 / maps, store[i] / 1e6 / maps, load[i] / 1e6 / maps);
+        }
+    }
+}
@@ -8,7 +8,8 @@ public class Queue {
 
     Node front;             // Head of the queue.
     int[] goal;             // Coordinates of the goal.
-    int[] visited;
+    SearchContext visited;  // Cells visited by this search.
+    CostModel cost;         // Model behind the heuristic.
     boolean firstDiagonal;  // true iff pathStart is the first diagonal.
     
     /**
@@ -17,17 +18,40 @@ public class Queue {
      * @param goal end coordinates.
      */
     public Queue(int[] start, int[] goal) {
-        visited = new int[65536];
+        this(start, goal, new SearchContext());
+    }
+
+    /**
+     * Constructor reusing the visited cells of an earlier search.
+     * @param start start coordinates.
+     * @param goal end coordinates.
+     * @param context record of visited cells; a new generation is started.
+     */
+    public Queue(int[] start, int[] goal, SearchContext context) {
+        this(start, goal, context, CostModel.CHEBYSHEV);
+    }
+
+    /**
+     * Constructor with a choice of cost model for the heuristic.
+     * @param start start coordinates.
+     * @param goal end coordinates.
+     * @param context record of visited cells; a new generation is started.
+     * @param cost model behind the heuristic.
+     */
+    public Queue(int[] start, int[] goal, SearchContext context, CostModel cost) {
+        this.cost = cost;
+        visited = context;
+        visited.begin();
         firstDiagonal = true;
         this.goal = new int[2];
         this.goal[0] = goal[0];
         this.goal[1] = goal[1];
-        int score = Math.max(Math.abs(goal[0] - start[0]), Math.abs(goal[1] - start[1]));
+        int score = cost.between(start, goal);
         front = new Node(start, score);
         Node next = new Node(start, score);
         Node next2 = new Node(start, score);
         Node next3 = new Node(start, score);
-        visited[start[1]*256+start[0]] = -1;
+        visited.set(start[1]*256+start[0], -1);
         switch (front.directionTo(goal)) {
             case 1:
                 front.direction = 1;
@@ -83,9 +107,16 @@ public class Queue {
         front.queueNext = next;
     }
 
-    // heuristic function, Chebyshev distance.
+    // heuristic function, distance to the goal under the cost model.
     public int heuristic(int[] a) {
-        return Math.max(Math.abs(goal[0] - a[0]), Math.abs(goal[1] - a[1]));
+        return cost.between(a, goal);
+    }
+    
+    /**
+     * @return true iff there are no Nodes left to pop.
+     */
+    public boolean isEmpty() {
+        return front == null;
     }
     
     /**
@@ -116,51 +147,23 @@ public class Queue {
      */
     public void offer(int[] newNode, int direction, int[] waypoint, Node lastNode) {
         int index = newNode[1]*256+newNode[0];  // linear index of newNode coordinates
-        int visitedDirection = visited[index];
+        int visitedDirection = visited.get(index);
         
         if (visitedDirection == 0) {
             
-            visited[index] = direction;
+            visited.set(index, direction);
         
-            // Create a new node.
-            Node node = new Node(newNode, waypoint, lastNode, direction,
-                    Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1])));
-            
-            // Add the new node to the queue.
-            if (front == null) {
-                front = node;
-            } else {
-                Node last = front;
-                Node next = last.queueNext;
-                while (next != null && next.score < node.score) {
-                    last = next;
-                    next = next.queueNext;
-                }
-                node.queueNext = next;
-                last.queueNext = node;
-            }
+            // Create a new node and add it to the queue.
+            add(new Node(newNode, waypoint, lastNode, direction,
+                    heuristic(newNode)));
             
         } else if (visitedDirection != direction && visitedDirection > 0) {
             
-            visited[index] = -1;
-            
-            // Create a new node.
-            Node node = new Node(newNode, waypoint, lastNode, direction,
-                    Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1])));
+            visited.set(index, -1);
             
-            // Add the new node to the queue.
-            if (front == null) {
-                front = node;
-            } else {
-                Node last = front;
-                Node next = last.queueNext;
-                while (next != null && next.score < node.score) {
-                    last = next;
-                    next = next.queueNext;
-                }
-                node.queueNext = next;
-                last.queueNext = node;
-            }
+            // Create a new node and add it to the queue.
+            add(new Node(newNode, waypoint, lastNode, direction,
+                    heuristic(newNode)));
         }
     }
     
@@ -173,51 +176,44 @@ public class Queue {
      */
     public void offer(int[] newNode, int direction, int[] waypoint, Node lastNode, boolean delete) {
         int index = newNode[1]*256+newNode[0];  // linear index of newNode coordinates
-        int visitedDirection = visited[index];
+        int visitedDirection = visited.get(index);
         
         if (visitedDirection == 0) {
             
-            visited[index] = direction;
+            visited.set(index, direction);
         
-            // Create a new node.
-            Node node = new Node(newNode, waypoint, lastNode, direction,
-                    Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1])));
-            
-            // Add the new node to the queue.
-            if (front == null) {
-                front = node;
-            } else {
-                Node last = front;
-                Node next = last.queueNext;
-                while (next != null && next.score < node.score) {
-                    last = next;
-                    next = next.queueNext;
-                }
-                node.queueNext = next;
-                last.queueNext = node;
-            }
+            // Create a new node and add it to the queue.
+            add(new Node(newNode, waypoint, lastNode, direction,
+                    heuristic(newNode)));
             
         } else if (visitedDirection != direction && visitedDirection > 0) {
             
-            visited[index] = -1;
-            
-            // Create a new node.
-            Node node = new Node(newNode, waypoint, lastNode, direction,
-                    Math.max(Math.abs(goal[0]-newNode[0]),Math.abs(goal[1]-newNode[1])));
+            visited.set(index, -1);
             
-            // Add the new node to the queue.
-            if (front == null) {
-                front = node;
-            } else {
-                Node last = front;
-                Node next = last.queueNext;
-                while (next != null && next.score < node.score) {
-                    last = next;
-                    next = next.queueNext;
-                }
-                node.queueNext = next;
-                last.queueNext = node;
+            // Create a new node and add it to the queue.
+            add(new Node(newNode, waypoint, lastNode, direction,
+                    heuristic(newNode)));
+        }
+    }
+    
+    /**
+     * Insert a Node behind every queued Node with a lower score and in front
+     * of those with the same score, so ties are popped newest first.
+     * The front Node is never displaced.
+     * @param node Node to insert.
+     */
+    protected void add(Node node) {
+        if (front == null) {
+            front = node;
+        } else {
+            Node last = front;
+            Node next = last.queueNext;
+            while (next != null && next.score < node.score) {
+                last = next;
+                next = next.queueNext;
             }
+            node.queueNext = next;
+            last.queueNext = node;
         }
     }
     
@@ -0,0 +1,91 @@
+package navigation;
+
+/**
+ * Selects which implementation of the bit scans Navigation runs.
+ *
+ * - TABLES runs the lookup-table methods in NavTools.
+ * - COMPACT runs the intrinsic-based methods in NavToolsCompact, which give
+ *   the same results and are small enough for the JIT to compile.
+ *
+ * The default is read from the system property "navigation.scan" (either
+ * "tables" or "compact") and falls back to COMPACT.
+ *
+ * @author David
+ */
+public enum ScanEngine {
+
+    TABLES {
+        @Override
+        public int distanceLeft(int x, int y, long[][] map) {
+            return NavTools.distanceLeft(x, y, map);
+        }
+
+        @Override
+        public int distanceRight(int x, int y, long[][] map) {
+            return NavTools.distanceRight(x, y, map);
+        }
+
+        @Override
+        public int distanceVoidLeft(int x, int y, long[][] map) {
+            return NavTools.distanceVoidLeft(x, y, map);
+        }
+
+        @Override
+        public int distanceVoidRight(int x, int y, long[][] map) {
+            return NavTools.distanceVoidRight(x, y, map);
+        }
+    },
+
+    COMPACT {
+        @Override
+        public int distanceLeft(int x, int y, long[][] map) {
+            return NavToolsCompact.distanceLeft(x, y, map);
+        }
+
+        @Override
+        public int distanceRight(int x, int y, long[][] map) {
+            return NavToolsCompact.distanceRight(x, y, map);
+        }
+
+        @Override
+        public int distanceVoidLeft(int x, int y, long[][] map) {
+            return NavToolsCompact.distanceVoidLeft(x, y, map);
+        }
+
+        @Override
+        public int distanceVoidRight(int x, int y, long[][] map) {
+            return NavToolsCompact.distanceVoidRight(x, y, map);
+        }
+    };
+
+    /**
+     * Engine used by a Navigation that is not given one explicitly.
+     */
+    public static final ScanEngine DEFAULT =
+            "tables".equalsIgnoreCase(System.getProperty("navigation.scan"))
+            ? TABLES : COMPACT;
+
+    /**
+     * Number of unset bits from the current position toward x = 0.
+     * @see NavTools#distanceLeft(int, int, long[][])
+     */
+    public abstract int distanceLeft(int x, int y, long[][] map);
+
+    /**
+     * Number of unset bits from the current position toward x = 255.
+     * @see NavTools#distanceRight(int, int, long[][])
+     */
+    public abstract int distanceRight(int x, int y, long[][] map);
+
+    /**
+     * Number of set bits from the current position toward x = 0.
+     * @see NavTools#distanceVoidLeft(int, int, long[][])
+     */
+    public abstract int distanceVoidLeft(int x, int y, long[][] map);
+
+    /**
+     * Number of set bits from the current position toward x = 255.
+     * @see NavTools#distanceVoidRight(int, int, long[][])
+     */
+    public abstract int distanceVoidRight(int x, int y, long[][] map);
+}
@@ -0,0 +1,106 @@
+package navigation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reusable record of which cells a search has visited and in which direction.
+ *
+ * Each entry holds the generation of the search that wrote it in its upper
+ * 28 bits and the direction in its lower 4 bits (15 for a closed cell).
+ * Starting a new search only increments the generation, so entries left by
+ * earlier searches read as unvisited and nothing has to be cleared. The
+ * entries are cleared once every 2^28 - 1 searches, when the generation
+ * wraps around.
+ *
+ * Entries are kept one row of the map per page, and a page is only
+ * allocated when a search first writes to its row, so a context costs
+ * memory for the rows its searches have reached rather than 256 KB from
+ * the start. This matters when many searches are in flight at once.
+ *
+ * Contexts can be kept by a search object for its whole life, or borrowed
+ * from a shared pool with acquire() and given back with release(). A context
+ * must only be used by one search at a time.
+ *
+ * @author David
+ */
+public class SearchContext {
+
+    private static final int CLOSED = 0xF;          // Direction bits of a closed cell.
+    private static final int MAX_GENERATION = 0xFFFFFFF;
+
+    private static final ConcurrentLinkedQueue<SearchContext> POOL =
+            new ConcurrentLinkedQueue<>();
+
+    private final int[][] rows;     // Entries of each row of the map, or null.
+    private int generation;
+
+    public SearchContext() {
+        rows = new int[256][];
+    }
+
+    /**
+     * Borrow a context from the shared pool, creating one if the pool is empty.
+     * @return a context whose previous searches read as unvisited.
+     */
+    public static SearchContext acquire() {
+        SearchContext context = POOL.poll();
+        if (context == null) {
+            context = new SearchContext();
+        }
+        context.begin();
+        return context;
+    }
+
+    /**
+     * Return this context to the shared pool. It must not be used afterwards.
+     */
+    public void release() {
+        POOL.offer(this);
+    }
+
+    /**
+     * Start a new search. Every cell reads as unvisited afterwards.
+     */
+    public void begin() {
+        if (++generation > MAX_GENERATION) {
+            for (int[] row : rows) {
+                if (row != null) {
+                    Arrays.fill(row, 0);
+                }
+            }
+            generation = 1;
+        }
+    }
+
+    /**
+     * @param index linear index of a cell, y*256+x.
+     * @return direction the cell was visited from in the current search,
+     * -1 if it is closed, or 0 if it has not been visited.
+     */
+    public int get(int index) {
+        int[] row = rows[index >>> 8];
+        if (row == null) {
+            return 0;
+        }
+        int entry = row[index & 0xFF];
+        if (entry >>> 4 != generation) {
+            return 0;
+        }
+        entry &= CLOSED;
+        return entry == CLOSED ? -1 : entry;
+    }
+
+    /**
+     * Record a cell as visited in the current search.
+     * @param index linear index of a cell, y*256+x.
+     * @param direction direction of search (1-7), or -1 to close the cell.
+     */
+    public void set(int index, int direction) {
+        int[] row = rows[index >>> 8];
+        if (row == null) {
+            row = rows[index >>> 8] = new int[256];
+        }
+        row[index & 0xFF] = generation << 4 | (direction & CLOSED);
+    }
+}
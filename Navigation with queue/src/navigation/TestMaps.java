@@ -6,6 +6,7 @@
 package navigation;
 
 import java.math.BigInteger;
+import java.util.Random;
 
 /**
  *
@@ -46,17 +47,60 @@ public class TestMaps {
         }
         return bitArray;
     }
-    public static long[][] getYMap(long[][] x) {
-        long[][] bitArray = new long[256][4];
-        
-        for (int i = 0; i < 256; i++) {
-            
-            for(int j = 0; j < 256; j++) {
-                if ((x[i][j/64] & (1L << (63-(j % 64)))) != 0) {
-                    bitArray[j][i/64] |= 1L << (63-(i % 64));
+    /**
+     * Random obstacles for the self-checks: each cell is blocked with the
+     * given probability, drawn row by row.
+     * @param random source of the obstacles.
+     * @param density probability that a cell is blocked, 0.0 to 1.0.
+     * @return bit array in the layout of Map.mapX.
+     */
+    public static long[][] random(Random random, double density) {
+        long[][] bits = new long[256][4];
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                if (random.nextDouble() < density) {
+                    bits[y][x/64] |= 1L << (63-(x % 64));
                 }
             }
         }
-        return bitArray;
+        return bits;
+    }
+
+    /**
+     * Map with random obstacles, as in random(Random, double), in both
+     * mapX and mapY. The Map is new, so its version is unchanged.
+     * @param random source of the obstacles.
+     * @param density probability that a cell is blocked, 0.0 to 1.0.
+     * @return the map, centred on (128, 128).
+     */
+    public static Map randomMap(Random random, double density) {
+        Map map = new Map(128, 128);
+        map.mapX = random(random, density);
+        Map.transpose(map.mapX, map.mapY);
+        return map;
+    }
+
+    /**
+     * Random cell that is not blocked.
+     * @param random source of the cell.
+     * @param bits bit array in the layout of Map.mapX, with an open cell.
+     * @return the cell, packed as y << 8 | x.
+     */
+    public static int randomOpen(Random random, long[][] bits) {
+        int cell;
+        do {
+            cell = random.nextInt(65536);
+        } while (Map.isSet(cell & 0xFF, cell >>> 8, bits));
+        return cell;
+    }
+
+    /**
+     * Column-major copy of a row-major map.
+     * @param x bit array in the layout of Map.mapX.
+     * @return bit array in the layout of Map.mapY.
+     * @see Map#transpose(long[][])
+     */
+    public static long[][] getYMap(long[][] x) {
+        return Map.transpose(x);
     }
 }
@@ -0,0 +1,510 @@
+package navigation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * OctileJumpSearch over a TiledMap of any size.
+ *
+ * The jumps, pruning and costs are those of OctileJumpSearch: 8 directions,
+ * no corner cutting, STRAIGHT and DIAGONAL step costs and optimal paths.
+ * The scans are the tile-crossing scans of TiledMap, so a jump across open
+ * space costs one step per tile instead of one per word.
+ *
+ * The state of each cell (best jump point, closed) is kept per tile, like
+ * the map. A tile's state array is taken the first time a search writes to
+ * the tile, and every array the search took is returned to a free list when
+ * the next search begins, so arrays are cleared and reused instead of being
+ * kept for every tile ever visited. Time grows with the area a search
+ * explores, and memory with the largest area any one search has explored,
+ * not with the size of the map or the number of searches.
+ *
+ * Coordinates are (x, y) pairs rather than packed points, since a TiledMap
+ * may have more than 256 rows or columns. A TiledJumpSearch is not
+ * thread-safe; use one per thread.
+ *
+ * @author David
+ */
+public class TiledJumpSearch {
+
+    public static final int STRAIGHT = OctileJumpSearch.STRAIGHT;
+    public static final int DIAGONAL = OctileJumpSearch.DIAGONAL;
+
+    private static final int CLOSED = Integer.MIN_VALUE;    // Cell state of an expanded cell.
+
+    final TiledMap map;
+
+    // Jump points, one entry per index.
+    int[] x, y, g, f, direction, parent;
+    int count;          // Number of jump points created by this search.
+
+    int[] heap;         // Open list, indices into the jump point arrays.
+    int size;           // Number of indices in the open list.
+
+    private final int[][] cells;    // Per tile: best jump point + 1, CLOSED, or 0; null if untouched.
+    private int[] used;             // Tiles written by the current search.
+    private int touched;            // Number of tiles in used.
+    private int[][] free;           // State arrays released by earlier searches.
+    private int freeCount;          // Number of arrays in free.
+
+    int goalX, goalY;   // Goal of the current search.
+    int expanded;       // Jump points removed from the open list.
+
+    /**
+     * Constructor.
+     * @param map map to search; cells may change between searches.
+     */
+    public TiledJumpSearch(TiledMap map) {
+        this.map = map;
+        x = new int[1024];
+        y = new int[1024];
+        g = new int[1024];
+        f = new int[1024];
+        direction = new int[1024];
+        parent = new int[1024];
+        heap = new int[1024];
+        cells = new int[map.tilesX * map.tilesY][];
+        used = new int[64];
+        free = new int[64][];
+    }
+
+    /**
+     * Search for a shortest path.
+     * @return index of the jump point at the goal, or -1 if there is no path
+     * or either end is blocked.
+     */
+    public int search(int sx, int sy, int gx, int gy) {
+        release();
+        count = 0;
+        size = 0;
+        expanded = 0;
+        goalX = gx;
+        goalY = gy;
+        if (map.isBlocked(sx, sy) || map.isBlocked(gx, gy)) {
+            return -1;
+        }
+
+        int first = create(sx, sy, 0, heuristic(sx, sy), -1, -1);
+        setState(sx, sy, first + 1);
+        push(first);
+
+        while (size != 0) {
+            int next = pop();
+            int px = x[next];
+            int py = y[next];
+            if (state(px, py) != next + 1) {
+                continue;   // Closed, or a shorter route to this cell was found later.
+            }
+            setState(px, py, CLOSED);
+            expanded++;
+            if (px == goalX && py == goalY) {
+                return next;
+            }
+
+            int d = direction[next];
+            if (d == -1) {
+                for (int i = 0; i < 8; i++) {
+                    jump(next, OctileJumpSearch.DX[i], OctileJumpSearch.DY[i]);
+                }
+                continue;
+            }
+
+            int dx = OctileJumpSearch.DX[d];
+            int dy = OctileJumpSearch.DY[d];
+            if (dx != 0 && dy != 0) {
+                jump(next, dx, 0);
+                jump(next, 0, dy);
+                jump(next, dx, dy);
+            } else if (dx != 0) {
+                jump(next, dx, 0);
+                if (!map.isBlocked(px, py - 1)) {
+                    jump(next, dx, -1);
+                    jump(next, 0, -1);
+                }
+                if (!map.isBlocked(px, py + 1)) {
+                    jump(next, dx, 1);
+                    jump(next, 0, 1);
+                }
+            } else {
+                jump(next, 0, dy);
+                if (!map.isBlocked(px - 1, py)) {
+                    jump(next, -1, dy);
+                    jump(next, -1, 0);
+                }
+                if (!map.isBlocked(px + 1, py)) {
+                    jump(next, 1, dy);
+                    jump(next, 1, 0);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Jump from a jump point in one direction and insert the jump point found,
+     * if any.
+     */
+    void jump(int from, int dx, int dy) {
+        int px = x[from];
+        int py = y[from];
+        if (dy == 0) {
+            int k = straight(px, py, dx, map.rows, map.width, map.height, goalY == py ? goalX : -1);
+            if (k != 0) {
+                insert(px + dx * k, py, from, OctileJumpSearch.compass(dx, 0), STRAIGHT * k);
+            }
+            return;
+        }
+        if (dx == 0) {
+            int k = straight(py, px, dy, map.columns, map.height, map.width, goalX == px ? goalY : -1);
+            if (k != 0) {
+                insert(px, py + dy * k, from, OctileJumpSearch.compass(0, dy), STRAIGHT * k);
+            }
+            return;
+        }
+
+        int cx = px;
+        int cy = py;
+        for (int k = 1; ; k++) {
+            int nx = cx + dx;
+            int ny = cy + dy;
+            if (map.isBlocked(nx, ny) || map.isBlocked(nx, cy) || map.isBlocked(cx, ny)) {
+                return;     // Stepped into a wall or would cut a corner.
+            }
+            cx = nx;
+            cy = ny;
+            if ((cx == goalX && cy == goalY)
+                    || straight(cx, cy, dx, map.rows, map.width, map.height, goalY == cy ? goalX : -1) != 0
+                    || straight(cy, cx, dy, map.columns, map.height, map.width, goalX == cx ? goalY : -1) != 0) {
+                insert(cx, cy, from, OctileJumpSearch.compass(dx, dy), DIAGONAL * k);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Jump along one row or column, as OctileJumpSearch.straight does.
+     * @param pos position of the jump point along the line.
+     * @param line index of the line.
+     * @param step 1 or -1.
+     * @param tiles map.rows for a row, map.columns for a column.
+     * @param length cells along the line.
+     * @param lines number of lines.
+     * @param goal position of the goal if it lies on this line, otherwise -1.
+     * @return number of steps to the jump point, or 0 if the jump finds none.
+     */
+    int straight(int pos, int line, int step, long[][] tiles, int length, int lines, int goal) {
+        int run = map.scan(tiles, line, pos + step, step, false);  // Walkable cells ahead.
+        if (run == 0) {
+            return 0;
+        }
+        int best = Integer.MAX_VALUE;
+        if (goal != -1) {
+            int k = (goal - pos) * step;
+            if (k > 0 && k <= run) {
+                best = k;
+            }
+        }
+        // The first wall ending beside the run, on either side.
+        for (int side = line - 1; side <= line + 1; side += 2) {
+            if (side < 0 || side >= lines) {
+                continue;
+            }
+            int open = map.scan(tiles, side, pos, step, false);
+            int wall = pos + step * open;
+            if (wall < 0 || wall >= length) {
+                continue;
+            }
+            int k = open + map.scan(tiles, side, wall, step, true);
+            int end = pos + step * k;
+            if (k < best && end >= 0 && end < length) {
+                best = k;
+            }
+        }
+        return best <= run ? best : 0;
+    }
+
+    /**
+     * Create a jump point unless its cell is closed or already has a route
+     * at least as short.
+     */
+    void insert(int nx, int ny, int from, int d, int cost) {
+        int s = state(nx, ny);
+        if (s == CLOSED) {
+            return;
+        }
+        int gNew = g[from] + cost;
+        if (s != 0 && g[s - 1] <= gNew) {
+            return;
+        }
+        int jp = create(nx, ny, gNew, gNew + heuristic(nx, ny), d, from);
+        setState(nx, ny, jp + 1);
+        push(jp);
+    }
+
+    /**
+     * @return state of a cell in this search: best jump point + 1, CLOSED, or 0.
+     */
+    private int state(int cx, int cy) {
+        int[] tile = cells[(cy >> 6) * map.tilesX + (cx >> 6)];
+        return tile == null ? 0 : tile[(cy & 63) << 6 | (cx & 63)];
+    }
+
+    private void setState(int cx, int cy, int value) {
+        int t = (cy >> 6) * map.tilesX + (cx >> 6);
+        if (cells[t] == null) {
+            if (freeCount != 0) {
+                cells[t] = free[--freeCount];
+            } else {
+                cells[t] = new int[TiledMap.TILE * TiledMap.TILE];
+            }
+            if (touched == used.length) {
+                used = Arrays.copyOf(used, 2 * touched);
+            }
+            used[touched++] = t;
+        }
+        cells[t][(cy & 63) << 6 | (cx & 63)] = value;
+    }
+
+    /**
+     * Clear the state arrays of the tiles the last search wrote and put them
+     * on the free list.
+     */
+    private void release() {
+        if (freeCount + touched > free.length) {
+            free = Arrays.copyOf(free, Math.max(2 * free.length, freeCount + touched));
+        }
+        for (int i = 0; i < touched; i++) {
+            int[] tile = cells[used[i]];
+            Arrays.fill(tile, 0);
+            free[freeCount++] = tile;
+            cells[used[i]] = null;
+        }
+        touched = 0;
+    }
+
+    /**
+     * Number of points in the path ending at the given jump point.
+     * @param end index returned by search.
+     */
+    public int pathLength(int end) {
+        int length = 0;
+        for (int i = end; i != -1; i = parent[i]) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Copy the path ending at the given jump point into a buffer.
+     * @param end index returned by search.
+     * @param out buffer of at least 2 * pathLength(end) ints.
+     * @return number of points written as x, y pairs, start first.
+     */
+    public int path(int end, int[] out) {
+        int length = pathLength(end);
+        int i = 2 * length;
+        for (int jp = end; jp != -1; jp = parent[jp]) {
+            out[--i] = y[jp];
+            out[--i] = x[jp];
+        }
+        return length;
+    }
+
+    /**
+     * @return cost of the path ending at the given jump point, in STRAIGHT
+     * units per step.
+     */
+    public int cost(int end) {
+        return g[end];
+    }
+
+    /**
+     * @return number of jump points expanded by the last search.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return number of tiles whose cell state the last search wrote.
+     */
+    public int getTouchedTiles() {
+        return touched;
+    }
+
+    /**
+     * @return number of tile state arrays held, in use or on the free list.
+     */
+    public int getStateArrays() {
+        return touched + freeCount;
+    }
+
+    int create(int nx, int ny, int gNew, int fNew, int d, int from) {
+        if (count == x.length) {
+            grow();
+        }
+        int i = count++;
+        x[i] = nx;
+        y[i] = ny;
+        g[i] = gNew;
+        f[i] = fNew;
+        direction[i] = d;
+        parent[i] = from;
+        return i;
+    }
+
+    void grow() {
+        int length = x.length * 2;
+        x = Arrays.copyOf(x, length);
+        y = Arrays.copyOf(y, length);
+        g = Arrays.copyOf(g, length);
+        f = Arrays.copyOf(f, length);
+        direction = Arrays.copyOf(direction, length);
+        parent = Arrays.copyOf(parent, length);
+        heap = Arrays.copyOf(heap, length);
+    }
+
+    /**
+     * True if jump point a should leave the open list before b: lower f
+     * first, ties broken toward the lower h (the higher g).
+     */
+    boolean before(int a, int b) {
+        return f[a] < f[b] || (f[a] == f[b] && g[a] > g[b]);
+    }
+
+    void push(int jp) {
+        int i = size++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (!before(jp, heap[up])) {
+                break;
+            }
+            heap[i] = heap[up];
+            i = up;
+        }
+        heap[i] = jp;
+    }
+
+    int pop() {
+        int top = heap[0];
+        int last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    /**
+     * Octile distance to the goal in units of STRAIGHT.
+     */
+    int heuristic(int px, int py) {
+        int dx = Math.abs(px - goalX);
+        int dy = Math.abs(py - goalY);
+        return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT) * Math.min(dx, dy);
+    }
+
+    /**
+     * Check path costs against OctileJumpSearch on random 256x256 maps, check
+     * that a sparse map allocates only the tiles holding obstacles and that
+     * the state arrays held never exceed the most tiles one search touched,
+     * then time searches of a fixed length on larger and larger maps: the
+     * arrays held should stay flat as the map grows, and the time should grow
+     * only with the cache misses of reading a larger map.
+     * @param args unused.
+     */
+    public static void main(String[] args) {
+        Random random = new Random(18);
+        int mismatches = 0, queries = 0;
+        for (int m = 0; m < 40; m++) {
+            Map map = TestMaps.randomMap(random, (m % 8) / 20.0);
+            OctileJumpSearch reference = new OctileJumpSearch(map);
+            TiledJumpSearch tiled = new TiledJumpSearch(TiledMap.of(map));
+            for (int q = 0; q < 25; q++) {
+                int sx = random.nextInt(256), sy = random.nextInt(256);
+                int gx = random.nextInt(256), gy = random.nextInt(256);
+                if (Map.isSet(sx, sy, map.mapX) || Map.isSet(gx, gy, map.mapX)) {
+                    continue;
+                }
+                int a = reference.search(sy << 8 | sx, gy << 8 | gx);
+                int b = tiled.search(sx, sy, gx, gy);
+                queries++;
+                if ((a == -1 ? -1 : reference.g[a]) != (b == -1 ? -1 : tiled.g[b])) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("256x256: %d queries, %d cost mismatches against OctileJumpSearch%n", queries, mismatches);
+
+        // Open 4096x4096 map: a wall of whole tiles is FULL, and only the
+        // tiles it ends in and two small obstacles are allocated.
+        TiledMap sparse = new TiledMap(4096, 4096);
+        sparse.setRect(1024, 0, 64, 4000, true);   // Tiles (16, 0..61) FULL, (16, 62) allocated.
+        sparse.setBlocked(2000, 2000);             // Tile (31, 31).
+        sparse.setRect(3010, 1000, 10, 10, true);  // Tile (47, 15).
+        TiledJumpSearch open = new TiledJumpSearch(sparse);
+        int mostTouched = 0;
+        for (int i = 0; i < 200; i++) {
+            int sx = random.nextInt(4096), sy = random.nextInt(4096);
+            int gx = Math.min(4095, sx + random.nextInt(300)), gy = Math.min(4095, sy + random.nextInt(300));
+            if (sparse.isBlocked(sx, sy) || sparse.isBlocked(gx, gy)) {
+                continue;
+            }
+            if (open.search(sx, sy, gx, gy) == -1) {
+                mismatches++;   // Every pair is connected around the end of the wall.
+            }
+            mostTouched = Math.max(mostTouched, open.getTouchedTiles());
+        }
+        System.out.printf("sparse:  %d tiles allocated of %d, %d state arrays held for at most %d touched%n",
+                sparse.allocatedTiles(), sparse.tilesX * sparse.tilesY, open.getStateArrays(), mostTouched);
+        if (mismatches != 0 || sparse.allocatedTiles() != 3 || open.getStateArrays() != mostTouched) {
+            System.exit(1);
+        }
+
+        // Rooms of 32x32 cells with doors, searched over a fixed 200-cell span.
+        System.out.printf("%-11s %8s %10s %10s %10s %10s%n",
+                "size", "tiles", "allocated", "us/search", "touched", "arrays");
+        for (int size = 256; size <= 16384; size *= 4) {
+            TiledMap map = new TiledMap(size, size);
+            for (int wall = 32; wall < size; wall += 32) {
+                map.setRect(wall, 0, 1, size, true);
+                map.setRect(0, wall, size, 1, true);
+            }
+            for (int wall = 32; wall < size; wall += 32) {
+                for (int door = 16; door < size; door += 32) {
+                    map.clear(wall, door);
+                    map.clear(door, wall);
+                }
+            }
+            TiledJumpSearch search = new TiledJumpSearch(map);
+            Random r = new Random(7);
+            int runs = 2000;
+            long total = 0;
+            int touched = 0;
+            for (int i = 0; i < runs; i++) {
+                int sx = r.nextInt(size - 200), sy = r.nextInt(size - 200);
+                int gx = sx + 100 + r.nextInt(100), gy = sy + r.nextInt(200);
+                if (map.isBlocked(sx, sy) || map.isBlocked(gx, gy)) {
+                    i--;
+                    continue;
+                }
+                long start = System.nanoTime();
+                search.search(sx, sy, gx, gy);
+                total += System.nanoTime() - start;
+                touched += search.getTouchedTiles();
+            }
+            System.out.printf("%-11s %8d %10d %10.1f %10.1f %10d%n", size + "x" + size, map.tilesX * map.tilesY,
+                    map.allocatedTiles(), total / 1e3 / runs, touched / (double) runs, search.getStateArrays());
+        }
+    }
+}
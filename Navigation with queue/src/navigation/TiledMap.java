@@ -0,0 +1,324 @@
+package navigation;
+
+import java.util.Arrays;
+
+/**
+ * Map of any size stored as 64x64 tiles of bits.
+ *
+ * Map holds a fixed 256x256 grid in two long[256][4] arrays. A TiledMap
+ * splits a width x height grid into 64x64 tiles instead, each stored like a
+ * small Map: 64 row words (bit 63 - c of row r is cell (c, r) of the tile)
+ * and 64 column words (bit 63 - r of column c). Set bits are non-walkable.
+ *
+ * Tiles are allocated lazily. A tile with no obstacles is null and a tile
+ * that is entirely blocked is FULL, a shared array that is never written;
+ * both cost one reference. Writing a cell of either allocates the tile.
+ *
+ * Cells outside the grid are blocked: the parts of the edge tiles beyond
+ * width or height are filled in, and tiles beyond the grid read as FULL.
+ *
+ * The scans count walkable or blocked cells along a row or column from a
+ * cell, like the distance methods of NavTools, but are not limited to three
+ * words: they cross tiles until the run ends or the grid does. A null or
+ * FULL tile is crossed in one step, so the cost of a scan grows with the
+ * number of tiles holding obstacles that it crosses, not with its length.
+ *
+ * @author David
+ */
+public class TiledMap {
+
+    public static final int TILE = 64;          // Cells along each side of a tile.
+
+    static final long[] FULL = new long[TILE];  // Shared rows or columns of a blocked tile.
+
+    static {
+        Arrays.fill(FULL, -1L);
+    }
+
+    public final int width;         // Cells per row.
+    public final int height;        // Cells per column.
+    final int tilesX;               // Tiles per row of tiles.
+    final int tilesY;               // Tiles per column of tiles.
+    final long[][] rows;            // Row words of each tile, [ty * tilesX + tx], null if empty.
+    final long[][] columns;         // Column words of each tile, same index.
+    public int version;             // Incremented by every change.
+
+    /**
+     * Constructor. Every cell starts walkable.
+     * @param width cells per row.
+     * @param height cells per column.
+     */
+    public TiledMap(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        tilesX = (width + TILE - 1) / TILE;
+        tilesY = (height + TILE - 1) / TILE;
+        rows = new long[tilesX * tilesY][];
+        columns = new long[tilesX * tilesY][];
+        // Block the parts of the edge tiles that lie beyond the grid.
+        fill(width, 0, tilesX * TILE, tilesY * TILE, true);
+        fill(0, height, width, tilesY * TILE, true);
+    }
+
+    /**
+     * Copy a Map: the cells of its 256x256 grid, walls at the edges included.
+     * @param map map to copy.
+     * @return a 256x256 TiledMap.
+     */
+    public static TiledMap of(Map map) {
+        TiledMap tiled = new TiledMap(256, 256);
+        for (int t = 0; t < 16; t++) {
+            int tx = t & 3;
+            int ty = t >>> 2;
+            long[] r = new long[TILE];
+            long[] c = new long[TILE];
+            boolean empty = true;
+            boolean full = true;
+            for (int i = 0; i < TILE; i++) {
+                r[i] = map.mapX[ty << 6 | i][tx];
+                c[i] = map.mapY[tx << 6 | i][ty];
+                empty &= r[i] == 0;
+                full &= r[i] == -1L;
+            }
+            tiled.rows[t] = empty ? null : full ? FULL : r;
+            tiled.columns[t] = empty ? null : full ? FULL : c;
+        }
+        return tiled;
+    }
+
+    /**
+     * @return true if the cell is blocked or outside the grid.
+     */
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return true;
+        }
+        long[] tile = rows[(y >> 6) * tilesX + (x >> 6)];
+        return tile != null && ((tile[y & 63] >>> (63 - (x & 63))) & 1L) != 0;
+    }
+
+    /**
+     * Mark one cell as non-walkable.
+     */
+    public void setBlocked(int x, int y) {
+        setRect(x, y, 1, 1, true);
+    }
+
+    /**
+     * Mark one cell as walkable.
+     */
+    public void clear(int x, int y) {
+        setRect(x, y, 1, 1, false);
+    }
+
+    /**
+     * Mark a rectangle of cells as non-walkable or walkable. Tiles the
+     * rectangle covers entirely become FULL or null without being written.
+     * The part of the rectangle outside the grid is ignored.
+     * @param x x-coordinate of the left column.
+     * @param y y-coordinate of the top row.
+     * @param w number of columns.
+     * @param h number of rows.
+     * @param blocked true for non-walkable, false for walkable.
+     */
+    public void setRect(int x, int y, int w, int h, boolean blocked) {
+        int x1 = Math.min(x + w, width);
+        int y1 = Math.min(y + h, height);
+        x = Math.max(x, 0);
+        y = Math.max(y, 0);
+        if (x < x1 && y < y1) {
+            version++;
+            fill(x, y, x1, y1, blocked);
+        }
+    }
+
+    /**
+     * Write the cells from (x, y) to (x1 - 1, y1 - 1); the bounds must lie
+     * within the tiles.
+     */
+    private void fill(int x, int y, int x1, int y1, boolean blocked) {
+        if (x >= x1 || y >= y1) {
+            return;
+        }
+        for (int ty = y >> 6; ty <= (y1 - 1) >> 6; ty++) {
+            for (int tx = x >> 6; tx <= (x1 - 1) >> 6; tx++) {
+                int t = ty * tilesX + tx;
+                int cx0 = Math.max(x, tx << 6) & 63;        // Covered part of the tile, inclusive.
+                int cx1 = (Math.min(x1, (tx + 1) << 6) - 1) & 63;
+                int cy0 = Math.max(y, ty << 6) & 63;
+                int cy1 = (Math.min(y1, (ty + 1) << 6) - 1) & 63;
+                if (cx0 == 0 && cx1 == 63 && cy0 == 0 && cy1 == 63) {
+                    rows[t] = blocked ? FULL : null;
+                    columns[t] = rows[t];
+                    continue;
+                }
+                long[] r = writable(rows, t);
+                long[] c = writable(columns, t);
+                write(r, cy0, cy1, mask(cx0, cx1), blocked);
+                write(c, cx0, cx1, mask(cy0, cy1), blocked);
+                if (!blocked && allEqual(r, 0)) {
+                    rows[t] = null;
+                    columns[t] = null;
+                } else if (blocked && allEqual(r, -1L)) {
+                    rows[t] = FULL;
+                    columns[t] = FULL;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the words of tile t, allocated or copied from FULL if needed.
+     */
+    private static long[] writable(long[][] tiles, int t) {
+        long[] tile = tiles[t];
+        if (tile == null) {
+            tile = new long[TILE];
+        } else if (tile == FULL) {
+            tile = FULL.clone();
+        }
+        tiles[t] = tile;
+        return tile;
+    }
+
+    private static void write(long[] words, int from, int to, long mask, boolean blocked) {
+        for (int i = from; i <= to; i++) {
+            words[i] = blocked ? words[i] | mask : words[i] & ~mask;
+        }
+    }
+
+    /**
+     * @return bits 63 - from down to 63 - to set.
+     */
+    private static long mask(int from, int to) {
+        return (-1L >>> from) & (-1L << (63 - to));
+    }
+
+    private static boolean allEqual(long[] words, long value) {
+        for (long word : words) {
+            if (word != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of tiles holding their own arrays, neither empty nor FULL.
+     */
+    public int allocatedTiles() {
+        int n = 0;
+        for (long[] tile : rows) {
+            if (tile != null && tile != FULL) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Number of walkable cells from (x, y) toward larger x, stopping at the
+     * first blocked cell or the edge of the grid.
+     */
+    public int distanceRight(int x, int y) {
+        return scan(rows, y, x, 1, false);
+    }
+
+    /**
+     * Number of walkable cells from (x, y) toward smaller x.
+     */
+    public int distanceLeft(int x, int y) {
+        return scan(rows, y, x, -1, false);
+    }
+
+    /**
+     * Number of walkable cells from (x, y) toward larger y.
+     */
+    public int distanceDown(int x, int y) {
+        return scan(columns, x, y, 1, false);
+    }
+
+    /**
+     * Number of walkable cells from (x, y) toward smaller y.
+     */
+    public int distanceUp(int x, int y) {
+        return scan(columns, x, y, -1, false);
+    }
+
+    /**
+     * Number of blocked cells from (x, y) toward larger x, stopping at the
+     * first walkable cell or the edge of the grid.
+     */
+    public int distanceVoidRight(int x, int y) {
+        return scan(rows, y, x, 1, true);
+    }
+
+    /**
+     * Number of blocked cells from (x, y) toward smaller x.
+     */
+    public int distanceVoidLeft(int x, int y) {
+        return scan(rows, y, x, -1, true);
+    }
+
+    /**
+     * Number of blocked cells from (x, y) toward larger y.
+     */
+    public int distanceVoidDown(int x, int y) {
+        return scan(columns, x, y, 1, true);
+    }
+
+    /**
+     * Number of blocked cells from (x, y) toward smaller y.
+     */
+    public int distanceVoidUp(int x, int y) {
+        return scan(columns, x, y, -1, true);
+    }
+
+    /**
+     * Count the run of walkable (or blocked, if solid) cells along one line,
+     * a tile at a time.
+     * @param tiles rows for a row, columns for a column.
+     * @param line y of the row or x of the column.
+     * @param pos position of the first cell along the line.
+     * @param step 1 or -1.
+     * @param solid true to count blocked cells.
+     * @return length of the run, 0 if the first cell does not belong to it.
+     */
+    int scan(long[][] tiles, int line, int pos, int step, boolean solid) {
+        boolean row = tiles == rows;
+        int lineTiles = row ? tilesY : tilesX;
+        int posTiles = row ? tilesX : tilesY;
+        int lt = line >> 6;
+        if (line < 0 || lt >= lineTiles) {
+            return 0;
+        }
+        int total = 0;
+        while (pos >= 0 && (pos >> 6) < posTiles) {
+            int pt = pos >> 6;
+            long[] tile = tiles[row ? lt * tilesX + pt : pt * tilesX + lt];
+            int avail = step > 0 ? 64 - (pos & 63) : (pos & 63) + 1;   // Cells left in the tile.
+            int n;
+            if (tile == null || tile == FULL) {
+                n = (tile == FULL) == solid ? avail : 0;
+            } else {
+                long word = tile[line & 63];
+                if (solid) {
+                    word = ~word;   // The run ends at the first set bit.
+                }
+                n = step > 0
+                        ? Long.numberOfLeadingZeros(word << (pos & 63))
+                        : Long.numberOfTrailingZeros(word >>> (63 - (pos & 63)));
+                n = Math.min(n, avail);
+            }
+            total += n;
+            if (n < avail) {
+                return total;
+            }
+            pos += step * avail;
+        }
+        return total;
+    }
+}